@@ -1,8 +1,18 @@
 package com.qa.framework.config;
 
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
+/**
+ * Настройки окружения из {@code <test.env>.properties}.
+ * <p>
+ * Системное свойство (-Dkey=value или System.setProperty) переопределяет значение из файла во всех методах
+ * чтения - переопределение глобальное для JVM и читается при каждом вызове. Клиенты, которые уже созданы и
+ * закешированы (продюсеры ProducerAdapter, консюмеры ConsumerPool, AdminClient TopicMetadata), его не видят:
+ * их нужно пересоздать (см. PropertyOverrides в тестах на контейнерах).
+ */
 public final class ConfigurationManager {
 
     private static final Properties properties = new Properties();
@@ -54,23 +64,41 @@ public final class ConfigurationManager {
     }
 
     private static String getRequired(String key) {
-        String value = properties.getProperty(key);
+        String value = lookup(key);
         if (value == null || value.isBlank()) {
             throw new RuntimeException("❌ Missing required property: " + key);
         }
         return value;
     }
 
+    private static List<String> getList(String key, String defaultValue) {
+        return Arrays.stream(getProperty(key, defaultValue).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Копия настроек файла окружения с учетом переопределений системными свойствами
+     */
     public static Properties getProperties() {
-        return new Properties(properties); // Возвращаем копию для безопасности
+        Properties copy = new Properties();
+        properties.stringPropertyNames().forEach(key -> copy.setProperty(key, lookup(key)));
+        return copy;
     }
 
     public static String getProperty(String key) {
-        return properties.getProperty(key);
+        return lookup(key);
     }
 
     public static String getProperty(String key, String defaultValue) {
-        return properties.getProperty(key, defaultValue);
+        String value = lookup(key);
+        return value != null ? value : defaultValue;
+    }
+
+    // Единственное место чтения: системное свойство важнее файла окружения
+    private static String lookup(String key) {
+        return System.getProperty(key, properties.getProperty(key));
     }
 
     // МЕТОДЫ ДЛЯ KAFKA
@@ -90,6 +118,95 @@ public final class ConfigurationManager {
         return getProperty("kafka.topic.system_logs", "system_logs");
     }
 
+    public static int getKafkaProducerLingerMs() {
+        return Integer.parseInt(getProperty("kafka.producer.linger.ms", "5"));
+    }
+
+    public static int getKafkaProducerBatchSize() {
+        return Integer.parseInt(getProperty("kafka.producer.batch.size", "65536"));
+    }
+
+    public static String getKafkaProducerCompressionType() {
+        return getProperty("kafka.producer.compression.type", "lz4");
+    }
+
+    public static int getKafkaLoadMaxInFlight() {
+        return Integer.parseInt(getProperty("kafka.load.max.in.flight", "10000"));
+    }
+
+    public static int getKafkaScanParallelism() {
+        return Integer.parseInt(getProperty("kafka.scan.parallelism", "8"));
+    }
+
+    public static long getKafkaScanSplitSize() {
+        return Long.parseLong(getProperty("kafka.scan.split.size", "50000"));
+    }
+
+    public static int getKafkaSearchIndexMaxEntries() {
+        return Integer.parseInt(getProperty("kafka.search.index.max.entries", "200000"));
+    }
+
+    public static List<String> getKafkaTailerFields() {
+        return getList("kafka.tailer.fields", "testRunId");
+    }
+
+    public static List<String> getKafkaTailerHeaders() {
+        return getList("kafka.tailer.headers", "X-Transaction-Req-Id");
+    }
+
+    public static int getKafkaTailerIndexMaxEntries() {
+        return Integer.parseInt(getProperty("kafka.tailer.index.max.entries", "100000"));
+    }
+
+    public static int getKafkaTailerRetentionMinutes() {
+        return Integer.parseInt(getProperty("kafka.tailer.retention.minutes", "60"));
+    }
+
+    public static int getKafkaTailerBackfillMinutes() {
+        return Integer.parseInt(getProperty("kafka.tailer.backfill.minutes", "5"));
+    }
+
+    public static int getKafkaAwaitRecentBufferSize() {
+        return Integer.parseInt(getProperty("kafka.await.recent.buffer.size", "1000"));
+    }
+
+    public static int getKafkaAwaitLookbackSeconds() {
+        return Integer.parseInt(getProperty("kafka.await.lookback.seconds", "60"));
+    }
+
+    public static int getKafkaPublisherBufferSize() {
+        return Integer.parseInt(getProperty("kafka.publisher.buffer.size", "1000"));
+    }
+
+    public static String getKafkaCaptureDir() {
+        return getProperty("kafka.capture.dir", System.getProperty("java.io.tmpdir"));
+    }
+
+    public static int getKafkaCaptureSegmentSizeMb() {
+        return Integer.parseInt(getProperty("kafka.capture.segment.size.mb", "64"));
+    }
+
+    public static int getKafkaArchiveBlockRecords() {
+        return Integer.parseInt(getProperty("kafka.archive.block.records", "1000"));
+    }
+
+    public static int getKafkaArchiveSegmentSizeMb() {
+        return Integer.parseInt(getProperty("kafka.archive.segment.size.mb", "64"));
+    }
+
+    // Кодек тела топика: kafka.value.codec.<topic>, иначе kafka.value.codec
+    public static String getKafkaValueCodec(String topic) {
+        return getProperty("kafka.value.codec." + topic, getProperty("kafka.value.codec", "json"));
+    }
+
+    public static int getKafkaConsumerPoolMaxIdle() {
+        return Integer.parseInt(getProperty("kafka.consumer.pool.max.idle", "8"));
+    }
+
+    public static long getKafkaConsumerPoolIdleTimeoutMs() {
+        return Long.parseLong(getProperty("kafka.consumer.pool.idle.timeout.ms", "300000"));
+    }
+
     // МЕТОДЫ ДЛЯ ПРИЛОЖЕНИЯ
     public static String getAppBaseUrl() {
         return getProperty("app.base.url");
@@ -1,10 +1,15 @@
 package com.qa.framework.config;
 
+import com.qa.framework.kafka.ValueCodecDeserializer;
+import com.qa.framework.kafka.ValueCodecSerializer;
 import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.SslConfigs;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
 import java.util.Properties;
@@ -77,25 +82,40 @@ public class KafkaConfig {
         Properties kafkaProps = getCommonKafkaProperties();
         kafkaProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, getBootstrapServers());
         kafkaProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
-        kafkaProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        // Тело кодируется кодеком топика (kafka.value.codec): json, avro, protobuf
+        kafkaProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ValueCodecSerializer.class.getName());
 
         // Настройки для надежности
         kafkaProps.put(ProducerConfig.ACKS_CONFIG, "all");
         kafkaProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         kafkaProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
 
-        // Настройки из вашего старого KafkaConfig
-        kafkaProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        // Пачки для асинхронной отправки (общий продюсер в ProducerAdapter)
+        kafkaProps.put(ProducerConfig.LINGER_MS_CONFIG, ConfigurationManager.getKafkaProducerLingerMs());
+        kafkaProps.put(ProducerConfig.BATCH_SIZE_CONFIG, ConfigurationManager.getKafkaProducerBatchSize());
+        kafkaProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, ConfigurationManager.getKafkaProducerCompressionType());
         kafkaProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 5000); // Таймаут для соединения
 
         return kafkaProps;
     }
 
+    /**
+     * То же, что {@link #getKafkaProducerProperties()}, но ключ и тело отправляются как есть
+     * (ByteArraySerializer) - для воспроизведения записанного трафика байт в байт.
+     */
+    public Properties getKafkaRawProducerProperties() {
+        Properties kafkaProps = getKafkaProducerProperties();
+        kafkaProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        kafkaProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+
+        return kafkaProps;
+    }
+
     public Properties getKafkaConsumerProperties(String groupId) {
         Properties kafkaProps = getCommonKafkaProperties();
         kafkaProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, getBootstrapServers());
         kafkaProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        kafkaProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        kafkaProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ValueCodecDeserializer.class.getName());
         kafkaProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
 
         // Настройки из вашего старого KafkaConfig
@@ -107,6 +127,45 @@ public class KafkaConfig {
         return kafkaProps;
     }
 
+    /**
+     * Настройки консюмера без group.id - для чтения через assign().
+     * Такой консюмер не вступает в группу: нет ребалансировки и не остается "осиротевших" групп на брокере.
+     * Коммит offset'ов в этом режиме невозможен.
+     */
+    public Properties getKafkaAssignOnlyConsumerProperties() {
+        Properties kafkaProps = getCommonKafkaProperties();
+        kafkaProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, getBootstrapServers());
+        kafkaProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        kafkaProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ValueCodecDeserializer.class.getName());
+        kafkaProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        kafkaProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+
+        return kafkaProps;
+    }
+
+    /**
+     * То же, что {@link #getKafkaAssignOnlyConsumerProperties()}, но ключ и тело не декодируются в строки
+     * (ByteArrayDeserializer) - для сканирования, где большинство записей отбрасывается фильтром.
+     */
+    public Properties getKafkaAssignOnlyRawConsumerProperties() {
+        Properties kafkaProps = getKafkaAssignOnlyConsumerProperties();
+        kafkaProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        kafkaProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+
+        return kafkaProps;
+    }
+
+    /**
+     * Настройки AdminClient - только подключение и SSL, без настроек консюмера.
+     */
+    public Properties getKafkaAdminProperties() {
+        Properties kafkaProps = getCommonKafkaProperties();
+        kafkaProps.remove(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG);
+        kafkaProps.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, getBootstrapServers());
+
+        return kafkaProps;
+    }
+
     // Дополнительные методы для удобства - оставлены
     public Properties getKafkaConsumerProperties(String groupId, int maxPollRecords) {
         Properties props = getKafkaConsumerProperties(groupId);
@@ -0,0 +1,78 @@
+package com.qa.framework.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qa.framework.utils.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Двоичное кодирование Avro для плоской записи: int/long - zigzag varint, double - 8 байт little-endian,
+ * boolean - байт, string - длина (zigzag varint) и UTF-8. Необязательное поле - union ["null", тип]:
+ * индекс ветки (0 - null, 1 - значение), затем значение. Байты совпадают с GenericDatumWriter для той же схемы
+ * ({@link RecordSchema#toAvroSchema()}).
+ */
+final class AvroValueCodec extends SchemaValueCodec {
+
+    @Override
+    public String name() {
+        return "avro";
+    }
+
+    @Override
+    void writeRecord(RecordSchema schema, JsonNode record, ByteArrayOutputStream out) {
+        for (RecordSchema.Field field : schema.fields()) {
+            JsonNode value = fieldValue(record, field);
+            if (field.optional()) {
+                writeLong(out, value == null ? 0 : 1);
+                if (value == null) {
+                    continue;
+                }
+            }
+            switch (field.type()) {
+                case STRING -> {
+                    byte[] bytes = value.asText().getBytes(StandardCharsets.UTF_8);
+                    writeLong(out, bytes.length);
+                    out.write(bytes, 0, bytes.length);
+                }
+                case INT -> writeLong(out, value.asInt());
+                case LONG -> writeLong(out, value.asLong());
+                case DOUBLE -> writeDoubleLittleEndian(out, value.asDouble());
+                case BOOLEAN -> out.write(value.asBoolean() ? 1 : 0);
+            }
+        }
+    }
+
+    @Override
+    ObjectNode readRecord(RecordSchema schema, ByteBuffer buffer) {
+        ObjectNode record = JsonUtils.createObjectNode();
+        for (RecordSchema.Field field : schema.fields()) {
+            if (field.optional() && readLong(buffer) == 0) {
+                continue;
+            }
+            switch (field.type()) {
+                case STRING -> {
+                    byte[] bytes = new byte[(int) readLong(buffer)];
+                    buffer.get(bytes);
+                    record.put(field.name(), new String(bytes, StandardCharsets.UTF_8));
+                }
+                case INT -> record.put(field.name(), (int) readLong(buffer));
+                case LONG -> record.put(field.name(), readLong(buffer));
+                case DOUBLE -> record.put(field.name(), readDoubleLittleEndian(buffer));
+                case BOOLEAN -> record.put(field.name(), buffer.get() != 0);
+            }
+        }
+        return record;
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readLong(ByteBuffer buffer) {
+        long value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
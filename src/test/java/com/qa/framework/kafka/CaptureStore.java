@@ -0,0 +1,301 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище захваченных сообщений вне heap.
+ * <p>
+ * Ключ, тело и заголовки записываются байтами подряд в memory-mapped сегменты (файлы во временном каталоге,
+ * kafka.capture.segment.size.mb каждый). В heap остается только индекс - по одному long (сегмент + позиция)
+ * на сообщение. Сообщения читаются обратно как {@link KafkaMessage}-представления над сегментом: тело, ключ
+ * и заголовки декодируются только при обращении. Объем захвата ограничен диском, а не -Xmx.
+ * <p>
+ * Запись - из одного потока; читать можно после записи (или из того же потока).
+ * {@link #close()} удаляет файлы сегментов - прочитанные сообщения после этого использовать нельзя.
+ *
+ * <pre>
+ * try (CaptureStore capture = ConsumerAdapter.captureMessagesInTimeRange(bootstrapServers, "system_logs", from, to, 600)) {
+ *     long errors = capture.stream().filter(msg -&gt; msg.getBody().contains("ERROR")).count();
+ * }
+ * </pre>
+ */
+public final class CaptureStore implements AutoCloseable {
+
+    // Позиция в индексе: номер сегмента в старших битах, смещение в сегменте - в младших 40
+    private static final int POSITION_BITS = 40;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    private static final int NULL_LENGTH = -1;
+
+    private final Path directory;
+    private final String topicName;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private long[] index = new long[1024];
+    private int count = 0;
+    private long capturedBytes = 0;
+    private boolean closed = false;
+
+    private CaptureStore(Path directory, String topicName, int segmentSize) {
+        this.directory = directory;
+        this.topicName = topicName;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Новое хранилище во временном каталоге (kafka.capture.dir, по умолчанию java.io.tmpdir)
+     */
+    public static CaptureStore create(String topicName) {
+        try {
+            Path parent = Paths.get(ConfigurationManager.getKafkaCaptureDir());
+            Files.createDirectories(parent);
+            Path directory = Files.createTempDirectory(parent, "kafka-capture-");
+            int segmentSize = (int) Math.min(Integer.MAX_VALUE,
+                    ConfigurationManager.getKafkaCaptureSegmentSizeMb() * 1024L * 1024L);
+            System.out.println("💾 Capture store for " + topicName + " in " + directory);
+            return new CaptureStore(directory, topicName, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create capture directory", e);
+        }
+    }
+
+    /**
+     * Добавляет сообщение; у {@link LazyKafkaMessage} берутся исходные байты без декодирования
+     */
+    public void append(KafkaMessage message) {
+        byte[] key = LazyKafkaMessage.keyBytes(message);
+        byte[] value = LazyKafkaMessage.bodyBytes(message);
+        List<Header> headers = message.getHeaders() != null ? message.getHeaders() : List.of();
+
+        int size = Integer.BYTES + Long.BYTES * 2 + lengthPrefixed(key) + lengthPrefixed(value) + Integer.BYTES;
+        for (Header header : headers) {
+            size += lengthPrefixed(header.key().getBytes(StandardCharsets.UTF_8)) + lengthPrefixed(header.value());
+        }
+
+        ByteBuffer segment = segmentFor(size);
+        int position = segment.position();
+        segment.putInt(message.getPartition());
+        segment.putLong(message.getOffset());
+        segment.putLong(message.getTimestamp());
+        putBytes(segment, key);
+        putBytes(segment, value);
+        segment.putInt(headers.size());
+        for (Header header : headers) {
+            putBytes(segment, header.key().getBytes(StandardCharsets.UTF_8));
+            putBytes(segment, header.value());
+        }
+
+        if (count == index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[count++] = ((long) (segments.size() - 1) << POSITION_BITS) | position;
+        capturedBytes += size;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Объем записанных данных в сегментах (байт)
+     */
+    public long capturedBytes() {
+        return capturedBytes;
+    }
+
+    /**
+     * Сообщение по порядковому номеру захвата
+     */
+    public KafkaMessage get(int i) {
+        if (closed) {
+            throw new IllegalStateException("Capture store is closed");
+        }
+        Objects.checkIndex(i, count);
+        long entry = index[i];
+        return new CapturedMessage(segments.get((int) (entry >>> POSITION_BITS)), (int) (entry & POSITION_MASK), topicName);
+    }
+
+    /**
+     * Все сообщения в порядке захвата; каждое - ленивое представление над сегментом
+     */
+    public Stream<KafkaMessage> stream() {
+        return IntStream.range(0, count).mapToObj(this::get);
+    }
+
+    /**
+     * Удаляет файлы сегментов
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.clear();
+        index = new long[0];
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to delete capture directory " + directory + ": " + e.getMessage());
+        }
+        System.out.println("💾 Capture store closed: " + count + " messages, " + capturedBytes + " bytes");
+    }
+
+    private ByteBuffer segmentFor(int size) {
+        if (closed) {
+            throw new IllegalStateException("Capture store is closed");
+        }
+        if (!segments.isEmpty()) {
+            MappedByteBuffer current = segments.get(segments.size() - 1);
+            if (current.remaining() >= size) {
+                return current;
+            }
+        }
+
+        // Запись больше сегмента получает собственный сегмент своего размера
+        int mappedSize = Math.max(segmentSize, size);
+        Path file = directory.resolve(String.format("segment-%05d.bin", segments.size()));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Отображение остается действительным после закрытия канала
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map capture segment " + file, e);
+        }
+    }
+
+    private static int lengthPrefixed(byte[] bytes) {
+        return Integer.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * KafkaMessage над записью в сегменте: partition/offset/timestamp читаются сразу,
+     * ключ, тело и заголовки - при первом обращении (абсолютное чтение, позиция сегмента не меняется)
+     */
+    private static final class CapturedMessage extends KafkaMessage {
+        private final ByteBuffer segment;
+        private final int keyPosition;
+
+        private boolean keyDecoded;
+        private boolean bodyDecoded;
+        private boolean headersDecoded;
+
+        CapturedMessage(ByteBuffer segment, int position, String topicName) {
+            this.segment = segment;
+            setPartition(segment.getInt(position));
+            setOffset(segment.getLong(position + Integer.BYTES));
+            setTimestamp(segment.getLong(position + Integer.BYTES + Long.BYTES));
+            setTopic(topicName);
+            this.keyPosition = position + Integer.BYTES + Long.BYTES * 2;
+        }
+
+        @Override
+        public String getKey() {
+            if (!keyDecoded) {
+                super.setKey(decode(readBytes(keyPosition)));
+                keyDecoded = true;
+            }
+            return super.getKey();
+        }
+
+        @Override
+        public void setKey(String key) {
+            super.setKey(key);
+            keyDecoded = true;
+        }
+
+        @Override
+        public String getBody() {
+            if (!bodyDecoded) {
+                super.setBody(ValueCodecs.decode(getTopic(), readBytes(valuePosition())));
+                bodyDecoded = true;
+            }
+            return super.getBody();
+        }
+
+        @Override
+        public void setBody(String body) {
+            super.setBody(body);
+            bodyDecoded = true;
+        }
+
+        @Override
+        public List<Header> getHeaders() {
+            if (!headersDecoded) {
+                int position = skip(valuePosition());
+                int headerCount = segment.getInt(position);
+                position += Integer.BYTES;
+
+                List<Header> headers = new ArrayList<>(headerCount);
+                for (int i = 0; i < headerCount; i++) {
+                    String name = decode(readBytes(position));
+                    position = skip(position);
+                    headers.add(new RecordHeader(name, readBytes(position)));
+                    position = skip(position);
+                }
+                super.setHeaders(headers);
+                headersDecoded = true;
+            }
+            return super.getHeaders();
+        }
+
+        @Override
+        public void setHeaders(List<Header> headers) {
+            super.setHeaders(headers);
+            headersDecoded = true;
+        }
+
+        private int valuePosition() {
+            return skip(keyPosition);
+        }
+
+        private int skip(int position) {
+            int length = segment.getInt(position);
+            return position + Integer.BYTES + Math.max(length, 0);
+        }
+
+        private byte[] readBytes(int position) {
+            int length = segment.getInt(position);
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            segment.get(position + Integer.BYTES, bytes);
+            return bytes;
+        }
+
+        private static String decode(byte[] bytes) {
+            return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.qa.framework.kafka;
 
 import com.qa.framework.config.KafkaConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -8,38 +10,154 @@ import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.utils.Utils;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+/**
+ * Чтение сообщений из Kafka.
+ * Консюмеры берутся из {@link ConsumerPool} и читают через assign() без consumer group,
+ * поэтому параметр groupName в методах сохранен только для совместимости.
+ */
 public class ConsumerAdapter {
 
     private static final int NUMBER_LAST_MESSAGE = 5;
     private static final int DEFAULT_MAX_WAIT_ATTEMPTS = 20; // 10 секунд при poll 500ms
     private static final KafkaConfig KAFKA_CONFIG = new KafkaConfig();
+    private static final PartitionScanEngine SCAN_ENGINE = PartitionScanEngine.shared();
     private static final SimpleDateFormat TIMESTAMP_FORMATTER =
             new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
 
     /**
-     * Создание Consumer с указанным groupId
+     * Форматирование timestamp в читаемую строку
      */
-    private static KafkaConsumer<String, String> createConsumer(String bootstrapServers,
-                                                                String topicName,
-                                                                String groupName) {
-        final Properties props = KAFKA_CONFIG.getKafkaConsumerProperties(groupName);
-        final KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-        consumer.subscribe(Arrays.asList(topicName));
-        return consumer;
+    private static String formatTimestamp(long timestampMs) {
+        return TIMESTAMP_FORMATTER.format(new Date(timestampMs)) + " (" + timestampMs + ")";
     }
 
     /**
-     * Форматирование timestamp в читаемую строку
+     * Выполняет действие с консюмером из ConsumerPool.
+     * При ошибке консюмер не возвращается в пул, а закрывается.
      */
-    private static String formatTimestamp(long timestampMs) {
-        return TIMESTAMP_FORMATTER.format(new Date(timestampMs)) + " (" + timestampMs + ")";
+    private static <T> T withPooledConsumer(String bootstrapServers,
+                                            String topicName,
+                                            Function<ConsumerPool.Lease<String, String>, T> action) {
+        try (ConsumerPool.Lease<String, String> lease = ConsumerPool.borrow(bootstrapServers, topicName)) {
+            try {
+                return action.apply(lease);
+            } catch (RuntimeException e) {
+                lease.invalidate();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Перемещает консюмер в каждой partition на первый offset с timestamp >= startTimestampMs
+     * (offsetsForTimes). Если такого offset'а нет - все сообщения partition старше startTimestampMs,
+     * поэтому partition читается с конца, а не с начала. Конец берется снимком endOffsets() в момент вызова,
+     * а не ленивым seekToEnd: иначе позиция определится только при первом poll(), и записи,
+     * отправленные до него, будут пропущены.
+     */
+    static void seekToTimestamp(KafkaConsumer<?, ?> consumer,
+                                Set<TopicPartition> partitions,
+                                long startTimestampMs) {
+        Map<TopicPartition, Long> timestampsToSearch = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            timestampsToSearch.put(partition, startTimestampMs);
+        }
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestampsToSearch);
+
+        Set<TopicPartition> toEnd = new HashSet<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndTimestamp offsetAndTimestamp = offsets.get(partition);
+
+            if (offsetAndTimestamp != null) {
+                consumer.seek(partition, offsetAndTimestamp.offset());
+                System.out.println("   Partition " + partition.partition() +
+                        ": Seeking to offset " + offsetAndTimestamp.offset() +
+                        " (timestamp: " + formatTimestamp(offsetAndTimestamp.timestamp()) + ")");
+            } else {
+                toEnd.add(partition);
+            }
+        }
+
+        if (!toEnd.isEmpty()) {
+            consumer.endOffsets(toEnd).forEach((partition, endOffset) -> {
+                consumer.seek(partition, endOffset);
+                System.out.println("   Partition " + partition.partition() +
+                        ": Seeking to end offset " + endOffset + " (no messages after " + formatTimestamp(startTimestampMs) + ")");
+            });
+        }
+    }
+
+    /**
+     * Снимок границ чтения на момент начала сканирования: для каждой partition - offset,
+     * до которого (не включая) нужно дочитать. Без конечного timestamp это endOffsets(),
+     * с конечным - первый offset с timestamp > endTimestampMs (offsetsForTimes), а если его нет - endOffsets().
+     */
+    static Map<TopicPartition, Long> snapshotEndOffsets(KafkaConsumer<?, ?> consumer,
+                                                        Set<TopicPartition> partitions,
+                                                        long endTimestampMs) {
+        Map<TopicPartition, Long> bounds = new HashMap<>(consumer.endOffsets(partitions));
+
+        if (endTimestampMs > 0) {
+            Map<TopicPartition, Long> timestampsToSearch = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                timestampsToSearch.put(partition, endTimestampMs + 1);
+            }
+            consumer.offsetsForTimes(timestampsToSearch).forEach((partition, offsetAndTimestamp) -> {
+                if (offsetAndTimestamp != null) {
+                    bounds.put(partition, offsetAndTimestamp.offset());
+                }
+            });
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Ставит на паузу partitions, дочитанные до своей границы, чтобы не получать записи за ней.
+     *
+     * @return true, если все partitions дочитаны и сканирование можно завершать
+     */
+    static boolean pauseCompletedPartitions(KafkaConsumer<?, ?> consumer,
+                                            Map<TopicPartition, Long> bounds) {
+        Set<TopicPartition> paused = consumer.paused();
+        List<TopicPartition> completed = new ArrayList<>();
+        boolean allCompleted = true;
+
+        for (Map.Entry<TopicPartition, Long> bound : bounds.entrySet()) {
+            if (paused.contains(bound.getKey())) {
+                continue;
+            }
+            if (consumer.position(bound.getKey()) >= bound.getValue()) {
+                completed.add(bound.getKey());
+            } else {
+                allCompleted = false;
+            }
+        }
+
+        if (!completed.isEmpty()) {
+            consumer.pause(completed);
+        }
+        return allCompleted;
+    }
+
+    static boolean isBeforeBound(ConsumerRecord<?, ?> record, Map<TopicPartition, Long> bounds) {
+        Long bound = bounds.get(new TopicPartition(record.topic(), record.partition()));
+        return bound == null || record.offset() < bound;
     }
 
     /**
@@ -47,6 +165,7 @@ public class ConsumerAdapter {
      * ВНИМАНИЕ: Этот метод читает ВСЕ сообщения НАЧИНАЯ с указанного timestamp,
      * без ограничения по конечной дате. Для ограниченного диапазона используйте
      * метод readMessagesInTimeRange.
+     * Чтение завершается, как только все partitions дочитаны до endOffsets на момент старта.
      *
      * @param startTimestampMs временная метка, начиная с которой нужно читать сообщения (в миллисекундах).
      * @return List<KafkaMessage> список прочитанных и конвертированных сообщений.
@@ -58,96 +177,75 @@ public class ConsumerAdapter {
             long startTimestampMs,
             int maxWaitSeconds) {
 
+        return readMessagesFromTimestamp(bootstrapServers, topicName, startTimestampMs, maxWaitSeconds, false);
+    }
+
+    /**
+     * Читает сообщения начиная с timestamp.
+     *
+     * @param waitForNewData false - остановиться, когда все partitions дочитаны до конца;
+     *                       true - ждать новые сообщения все maxWaitSeconds
+     */
+    public static List<KafkaMessage> readMessagesFromTimestamp(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            int maxWaitSeconds,
+            boolean waitForNewData) {
+
         System.out.println("\n🔎 Начинаем чтение сообщений с timestamp: " + formatTimestamp(startTimestampMs));
 
-        final Properties props = KAFKA_CONFIG.getKafkaConsumerProperties(groupName);
-        props.setProperty("enable.auto.commit", "false");
-        final KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-        consumer.subscribe(Arrays.asList(topicName));
+        return withPooledConsumer(bootstrapServers, topicName, lease ->
+                readFromTimestamp(lease.consumer(), lease.assignment(), topicName,
+                        startTimestampMs, maxWaitSeconds, waitForNewData));
+    }
 
-        // 1. Ожидаем assignment и получаем разделы
-        consumer.poll(Duration.ofSeconds(2));
-        Set<TopicPartition> partitions = consumer.assignment();
+    private static List<KafkaMessage> readFromTimestamp(
+            KafkaConsumer<String, String> consumer,
+            Set<TopicPartition> partitions,
+            String topicName,
+            long startTimestampMs,
+            int maxWaitSeconds,
+            boolean waitForNewData) {
 
-        // ИСПРАВЛЕННАЯ ПРОВЕРКА: Улучшенное ожидание назначения partitions
+        // 1. Пул уже дождался assignment
         if (partitions.isEmpty()) {
-            System.out.println("⏳ No partitions assigned yet, waiting for assignment...");
-
-            // Делаем несколько попыток получить partitions
-            int attempts = 0;
-            while (partitions.isEmpty() && attempts < 5) {
-                System.out.println("  Attempt " + (attempts + 1) + "/5 to get partitions...");
-                consumer.poll(Duration.ofMillis(500));
-                partitions = consumer.assignment();
-                attempts++;
-
-                // Проверяем существование топика после нескольких неудачных попыток
-                if (attempts >= 3 && partitions.isEmpty()) {
-                    try {
-                        var partitionsInfo = consumer.partitionsFor(topicName);
-                        if (partitionsInfo == null || partitionsInfo.isEmpty()) {
-                            System.err.println("❌ Topic " + topicName + " does not exist or has no partitions");
-                            consumer.close();
-                            return Collections.emptyList();
-                        } else {
-                            System.out.println("ℹ️ Topic exists with " + partitionsInfo.size() +
-                                    " partitions, but consumer not assigned yet");
-                        }
-                    } catch (Exception e) {
-                        System.err.println("❌ Error checking topic existence: " + e.getMessage());
-                    }
-                }
-            }
-
-            if (partitions.isEmpty()) {
-                System.err.println("❌ Failed to get partition assignment for topic " + topicName +
-                        " after 5 attempts. Possible reasons:");
-                System.err.println("   - Topic doesn't exist");
-                System.err.println("   - Kafka cluster issues");
-                System.err.println("   - Consumer group coordination delay");
-                consumer.close();
-                return Collections.emptyList();
-            }
+            System.err.println("❌ Failed to get partition assignment for topic " + topicName + ". Possible reasons:");
+            System.err.println("   - Topic doesn't exist");
+            System.err.println("   - Kafka cluster issues");
+            System.err.println("   - Consumer group coordination delay");
+            return Collections.emptyList();
         }
 
         System.out.println("✅ Assigned partitions: " + partitions);
 
-        // 2. Получаем OffsetAndTimestamp для каждой партиции
-        Map<TopicPartition, Long> timestampsToSearch = new HashMap<>();
-        for (TopicPartition partition : partitions) {
-            timestampsToSearch.put(partition, startTimestampMs);
-        }
-        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestampsToSearch);
-
-        // 3. Перемещаемся (Seek) к найденному offset
-        for (Map.Entry<TopicPartition, OffsetAndTimestamp> entry : offsets.entrySet()) {
-            TopicPartition partition = entry.getKey();
-            OffsetAndTimestamp offsetAndTimestamp = entry.getValue();
+        // 2-3. Перемещаемся (Seek) к первому offset'у с нужным timestamp
+        seekToTimestamp(consumer, partitions, startTimestampMs);
 
-            if (offsetAndTimestamp != null) {
-                consumer.seek(partition, offsetAndTimestamp.offset());
-                System.out.println("   Partition " + partition.partition() +
-                        ": Seeking to offset " + offsetAndTimestamp.offset() +
-                        " (timestamp: " + formatTimestamp(offsetAndTimestamp.timestamp()) + ")");
-            } else {
-                // Если не нашли offset для указанного timestamp, начинаем с самого начала
-                consumer.seekToBeginning(Collections.singleton(partition));
-                System.out.println("   Partition " + partition.partition() +
-                        ": Seeking to beginning (no offset found for timestamp " +
-                        formatTimestamp(startTimestampMs) + ")");
-            }
-        }
+        // 4. Запоминаем границы: дальше текущего конца partitions не читаем (если не ждем новые данные)
+        Map<TopicPartition, Long> bounds = waitForNewData
+                ? Collections.emptyMap()
+                : snapshotEndOffsets(consumer, partitions, 0);
 
-        // 4. Читаем записи
+        // 5. Читаем записи
         List<ConsumerRecord<String, String>> collectedRecords = new ArrayList<>();
         int attempts = 0;
         int maxAttempts = maxWaitSeconds * 2; // Каждые 0.5 секунды
 
         while (attempts < maxAttempts) {
+            if (!waitForNewData && pauseCompletedPartitions(consumer, bounds)) {
+                System.out.println("   Stopping: all partitions read up to end offsets");
+                break;
+            }
+
             ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(500));
 
             if (!records.isEmpty()) {
-                records.forEach(collectedRecords::add);
+                for (ConsumerRecord<String, String> record : records) {
+                    if (waitForNewData || isBeforeBound(record, bounds)) {
+                        collectedRecords.add(record);
+                    }
+                }
                 System.out.println("   Found " + records.count() +
                         " records. Total collected: " + collectedRecords.size());
             } else {
@@ -165,8 +263,6 @@ public class ConsumerAdapter {
             }
         }
 
-        consumer.close();
-
         if (collectedRecords.isEmpty()) {
             System.out.println("❌ No messages found starting from " + formatTimestamp(startTimestampMs));
         } else {
@@ -179,63 +275,74 @@ public class ConsumerAdapter {
     /**
      * ИСПРАВЛЕННЫЙ МЕТОД: Читает последние N сообщений из топика.
      * Улучшенная логика ожидания назначения partitions.
+     * Возвращаются последние NUMBER_LAST_MESSAGE сообщений по timestamp среди всех partitions.
      */
     public static ConsumerRecords<String, String> readMessage(String bootstrapServers,
                                                               String topicName,
                                                               String groupName) {
-        final KafkaConsumer<String, String> consumer =
-                createConsumer(bootstrapServers, topicName, groupName);
-
-        ConsumerRecords<String, String> consumerRecords = null;
-        final int giveUp = 100;
-        int noRecordsCount = 0;
+        return withPooledConsumer(bootstrapServers, topicName, lease ->
+                readLastMessages(lease.consumer(), lease.assignment(), topicName));
+    }
 
-        // 1. Улучшенная логика получения назначенных partitions
-        Set<TopicPartition> setOfPartitions = consumer.assignment();
-        int partitionWaitAttempts = 0;
-        int maxPartitionWaitAttempts = 10;
-
-        while (setOfPartitions.isEmpty() && partitionWaitAttempts < maxPartitionWaitAttempts) {
-            System.out.printf("⏳ Waiting for partition assignment (attempt %d/%d)...%n",
-                    partitionWaitAttempts + 1, maxPartitionWaitAttempts);
-
-            consumer.poll(Duration.ofSeconds(1));
-            setOfPartitions = consumer.assignment();
-            partitionWaitAttempts++;
-
-            // Проверяем существование топика после нескольких неудачных попыток
-            if (partitionWaitAttempts >= 3 && setOfPartitions.isEmpty()) {
-                try {
-                    var partitionsInfo = consumer.partitionsFor(topicName);
-                    if (partitionsInfo == null || partitionsInfo.isEmpty()) {
-                        System.err.println("❌ Topic " + topicName + " does not exist or has no partitions");
-                        consumer.close();
-                        return ConsumerRecords.empty();
-                    } else {
-                        System.out.println("ℹ️ Topic exists with " + partitionsInfo.size() +
-                                " partitions, waiting for assignment...");
-                    }
-                } catch (Exception e) {
-                    System.err.println("❌ Error checking topic " + topicName + ": " + e.getMessage());
-                }
+    /**
+     * Последние count сообщений топика по timestamp среди всех partitions (в порядке timestamp).
+     * Из каждой partition читаются только ее последние count записей - среди них обязательно есть
+     * все записи общего хвоста, - partitions читаются параллельно.
+     */
+    public static List<KafkaMessage> readLastMessages(String bootstrapServers,
+                                                      String topicName,
+                                                      int count,
+                                                      int maxWaitSeconds) {
+        List<TopicPartition> partitions = TopicMetadata.partitions(bootstrapServers, topicName);
+        Map<TopicPartition, ListOffsetsResultInfo> earliest =
+                TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.earliest());
+        Map<TopicPartition, ListOffsetsResultInfo> latest =
+                TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.latest());
+
+        List<PartitionScanEngine.OffsetRange> ranges = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            long to = latest.get(partition).offset();
+            long from = Math.max(earliest.get(partition).offset(), to - count);
+            if (from < to) {
+                ranges.add(new PartitionScanEngine.OffsetRange(partition, from, to));
             }
         }
 
+        // Результат движка упорядочен partition -> offset: раскладываем по partitions и сливаем по timestamp
+        Map<Integer, List<KafkaMessage>> byPartition = new TreeMap<>();
+        SCAN_ENGINE.runRanges(bootstrapServers, topicName, ranges, 0, 0, message -> true,
+                        Integer.MAX_VALUE, maxWaitSeconds, new AtomicBoolean())
+                .forEach(message -> byPartition.computeIfAbsent(message.getPartition(), p -> new ArrayList<>())
+                        .add(message));
+
+        List<Iterator<KafkaMessage>> sources = new ArrayList<>();
+        byPartition.values().forEach(messages -> sources.add(messages.iterator()));
+        return TimestampMerge.tail(TimestampMerge.merge(sources, KafkaMessage::getTimestamp), count);
+    }
+
+    private static ConsumerRecords<String, String> readLastMessages(KafkaConsumer<String, String> consumer,
+                                                                    Set<TopicPartition> setOfPartitions,
+                                                                    String topicName) {
+        final int giveUp = 100;
+        int noRecordsCount = 0;
+
+        // 1. Пул уже дождался назначения partitions
         if (setOfPartitions.isEmpty()) {
-            System.err.println("❌ Failed to get partition assignment for topic " +
-                    topicName + " after " + maxPartitionWaitAttempts + " attempts");
-            consumer.close();
+            System.err.println("❌ Failed to get partition assignment for topic " + topicName);
             return ConsumerRecords.empty();
         }
 
         System.out.println("✅ Assigned partitions: " + setOfPartitions);
 
         // 2. Вычисляем и устанавливаем смещения (seek logic)
+        Map<TopicPartition, Long> endPositions = new HashMap<>();
+        long totalToRead = 0;
         for (TopicPartition topicPartition : setOfPartitions) {
             consumer.seekToBeginning(Collections.singleton(topicPartition));
             long startPosition = consumer.position(topicPartition);
             consumer.seekToEnd(Collections.singleton(topicPartition));
             long endPosition = consumer.position(topicPartition);
+            endPositions.put(topicPartition, endPosition);
 
             if (endPosition - startPosition > NUMBER_LAST_MESSAGE) {
                 // Если сообщений больше, чем NUMBER_LAST_MESSAGE, читаем только последние N
@@ -243,19 +350,28 @@ public class ConsumerAdapter {
                 System.out.printf("   Partition %d: reading last %d messages (offset %d to %d)%n",
                         topicPartition.partition(), NUMBER_LAST_MESSAGE,
                         endPosition - NUMBER_LAST_MESSAGE, endPosition);
+                totalToRead += NUMBER_LAST_MESSAGE;
             } else {
                 // Иначе читаем с начала
                 consumer.seek(topicPartition, startPosition);
                 System.out.printf("   Partition %d: reading all %d messages (offset %d to %d)%n",
                         topicPartition.partition(), endPosition - startPosition,
                         startPosition, endPosition);
+                totalToRead += endPosition - startPosition;
             }
         }
 
+        if (totalToRead == 0) {
+            System.out.println("ℹ️ Topic " + topicName + " is empty, nothing to read");
+            return ConsumerRecords.empty();
+        }
+
         System.out.println("📥 Consumes records from topic " + topicName + ":");
 
-        // 3. Основной цикл чтения
-        while (true) {
+        // 3. Основной цикл чтения: дочитываем хвосты всех partitions до конца на момент старта
+        Map<TopicPartition, List<ConsumerRecord<String, String>>> tails = new HashMap<>();
+        while (!pauseCompletedPartitions(consumer, endPositions)) {
+            ConsumerRecords<String, String> consumerRecords;
             try {
                 consumerRecords = consumer.poll(Duration.ofMillis(500));
             } catch (Exception e) {
@@ -276,23 +392,38 @@ public class ConsumerAdapter {
                 continue;
             }
 
-            System.out.printf("✅ Found %d messages in topic %s%n",
-                    consumerRecords.count(), topicName);
+            for (ConsumerRecord<String, String> record : consumerRecords) {
+                if (isBeforeBound(record, endPositions)) {
+                    tails.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                            partition -> new ArrayList<>()).add(record);
+                }
+            }
+        }
 
-            // Логируем найденные сообщения
-            consumerRecords.forEach(record -> {
-                System.out.printf("   Partition %d, Offset %d: %s%n",
-                        record.partition(), record.offset(),
-                        record.value().length() > 100 ?
-                                record.value().substring(0, 100) + "..." : record.value());
-            });
+        // 4. Общий хвост: слияние хвостов partitions по timestamp и последние NUMBER_LAST_MESSAGE
+        List<Iterator<ConsumerRecord<String, String>>> sources = new ArrayList<>();
+        TimestampMerge.partitionsInOrder(tails.keySet()).forEach(partition -> sources.add(tails.get(partition).iterator()));
+        List<ConsumerRecord<String, String>> lastRecords = TimestampMerge.tail(
+                TimestampMerge.merge(sources, ConsumerRecord::timestamp), NUMBER_LAST_MESSAGE);
 
-            consumer.commitAsync();
-            break;
+        if (lastRecords.isEmpty()) {
+            return ConsumerRecords.empty();
         }
 
-        consumer.close();
-        return consumerRecords != null ? consumerRecords : ConsumerRecords.empty();
+        System.out.printf("✅ Found %d messages in topic %s%n", lastRecords.size(), topicName);
+
+        // Логируем найденные сообщения
+        Map<TopicPartition, List<ConsumerRecord<String, String>>> result = new LinkedHashMap<>();
+        lastRecords.forEach(record -> {
+            System.out.printf("   Partition %d, Offset %d: %s%n",
+                    record.partition(), record.offset(),
+                    record.value().length() > 100 ?
+                            record.value().substring(0, 100) + "..." : record.value());
+            result.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                    partition -> new ArrayList<>()).add(record);
+        });
+
+        return new ConsumerRecords<>(result);
     }
 
     /**
@@ -317,66 +448,53 @@ public class ConsumerAdapter {
         System.out.println("   С: " + formatTimestamp(startTimestampMs));
         System.out.println("   По: " + (endTimestampMs > 0 ? formatTimestamp(endTimestampMs) : "текущее время"));
 
-        final Properties props = KAFKA_CONFIG.getKafkaConsumerProperties(groupName);
-        props.setProperty("enable.auto.commit", "false");
-        final KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-        consumer.subscribe(Arrays.asList(topicName));
+        if (endTimestampMs <= System.currentTimeMillis()) {
+            // Исторический диапазон: читаем partitions параллельно
+            return SCAN_ENGINE.scan(bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds);
+        }
 
-        // 1. Ожидаем assignment и получаем разделы
-        consumer.poll(Duration.ofSeconds(2));
-        Set<TopicPartition> partitions = consumer.assignment();
+        // Конец диапазона в будущем - ждем новые сообщения одним консюмером
+        return withPooledConsumer(bootstrapServers, topicName, lease ->
+                readInTimeRange(lease.consumer(), lease.assignment(), startTimestampMs, endTimestampMs, maxWaitSeconds));
+    }
 
-        // Улучшенная проверка назначения partitions
-        if (partitions.isEmpty()) {
-            System.out.println("⏳ No partitions assigned, waiting...");
-            int attempts = 0;
-            while (partitions.isEmpty() && attempts < 5) {
-                consumer.poll(Duration.ofMillis(500));
-                partitions = consumer.assignment();
-                attempts++;
-            }
+    private static List<KafkaMessage> readInTimeRange(
+            KafkaConsumer<String, String> consumer,
+            Set<TopicPartition> partitions,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
 
-            if (partitions.isEmpty()) {
-                System.err.println("❌ Failed to get partition assignment");
-                consumer.close();
-                return Collections.emptyList();
-            }
+        // 1. Пул уже дождался assignment
+        if (partitions.isEmpty()) {
+            System.err.println("❌ Failed to get partition assignment");
+            return Collections.emptyList();
         }
 
         System.out.println("✅ Assigned partitions: " + partitions);
 
-        // 2. Получаем OffsetAndTimestamp для начала диапазона
-        Map<TopicPartition, Long> timestampsToSearch = new HashMap<>();
-        for (TopicPartition partition : partitions) {
-            timestampsToSearch.put(partition, startTimestampMs);
-        }
-        Map<TopicPartition, OffsetAndTimestamp> startOffsets = consumer.offsetsForTimes(timestampsToSearch);
+        // 2-3. Перемещаемся к началу диапазона
+        seekToTimestamp(consumer, partitions, startTimestampMs);
 
-        // 3. Перемещаемся к началу диапазона
-        for (Map.Entry<TopicPartition, OffsetAndTimestamp> entry : startOffsets.entrySet()) {
-            TopicPartition partition = entry.getKey();
-            OffsetAndTimestamp offsetAndTimestamp = entry.getValue();
+        // 4. Запоминаем границы диапазона по offset'ам. Если конец диапазона еще не наступил -
+        //    это режим ожидания новых данных, ограничиваемся только maxWaitSeconds
+        boolean waitForNewData = endTimestampMs > System.currentTimeMillis();
+        Map<TopicPartition, Long> bounds = waitForNewData
+                ? Collections.emptyMap()
+                : snapshotEndOffsets(consumer, partitions, endTimestampMs);
 
-            if (offsetAndTimestamp != null) {
-                consumer.seek(partition, offsetAndTimestamp.offset());
-                System.out.println("   Partition " + partition.partition() +
-                        ": Seeking to offset " + offsetAndTimestamp.offset() +
-                        " (timestamp: " + formatTimestamp(offsetAndTimestamp.timestamp()) + ")");
-            } else {
-                // Если не нашли offset для указанного timestamp, начинаем с самого начала
-                consumer.seekToBeginning(Collections.singleton(partition));
-                System.out.println("   Partition " + partition.partition() +
-                        ": Seeking to beginning (timestamp not found)");
-            }
-        }
-
-        // 4. Читаем записи с фильтрацией по времени
+        // 5. Читаем записи с фильтрацией по времени
         List<ConsumerRecord<String, String>> collectedRecords = new ArrayList<>();
         int attempts = 0;
         int maxAttempts = maxWaitSeconds * 2; // Каждые 0.5 секунды
         boolean keepReading = true;
 
         while (attempts < maxAttempts && keepReading) {
+            if (!waitForNewData && pauseCompletedPartitions(consumer, bounds)) {
+                System.out.println("   ⏹️ All partitions read up to the end of range, stopping");
+                break;
+            }
+
             ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(500));
 
             if (!records.isEmpty()) {
@@ -395,10 +513,10 @@ public class ConsumerAdapter {
                         withinTimeRange = record.timestamp() >= startTimestampMs;
                     }
 
-                    if (withinTimeRange) {
+                    if (withinTimeRange && (waitForNewData || isBeforeBound(record, bounds))) {
                         collectedRecords.add(record);
                         recordsInRange++;
-                    } else if (endTimestampMs > 0 && record.timestamp() > endTimestampMs) {
+                    } else if (waitForNewData && record.timestamp() > endTimestampMs) {
                         // Если запись вышла за пределы диапазона, останавливаем чтение
                         keepReading = false;
                         System.out.println("   ⏹️ Record timestamp " + formatTimestamp(record.timestamp()) +
@@ -419,8 +537,8 @@ public class ConsumerAdapter {
 
             // Останавливаем, если:
             // 1. Превышено максимальное количество попыток
-            // 2. Нашли записи и достигли конца диапазона
-            // 3. Не нашли записей и проверили достаточно раз
+            // 2. Все partitions дочитаны до границ (проверка в начале цикла)
+            // 3. В режиме ожидания получили запись позже конца диапазона
             if ((!keepReading) ||
                     (attempts >= maxAttempts && !collectedRecords.isEmpty()) ||
                     (attempts >= maxAttempts && collectedRecords.isEmpty())) {
@@ -446,7 +564,6 @@ public class ConsumerAdapter {
                     " records outside time range");
         }
 
-        consumer.close();
         return convertRawRecordsToMessageObject(filteredRecords);
     }
 
@@ -478,6 +595,44 @@ public class ConsumerAdapter {
         );
     }
 
+    /**
+     * Читает сообщения начиная с timestamp без consumer group (assign + offsetsForTimes).
+     */
+    public static List<KafkaMessage> readMessagesFromTimestamp(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            int maxWaitSeconds) {
+
+        return readMessagesFromTimestamp(bootstrapServers, topicName, null, startTimestampMs, maxWaitSeconds);
+    }
+
+    /**
+     * Читает сообщения за временной диапазон без consumer group (assign + offsetsForTimes).
+     */
+    public static List<KafkaMessage> readMessagesInTimeRange(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
+
+        return readMessagesInTimeRange(bootstrapServers, topicName, null,
+                startTimestampMs, endTimestampMs, maxWaitSeconds);
+    }
+
+    /**
+     * Читает сообщения за последние N минут без consumer group (assign + offsetsForTimes).
+     */
+    public static List<KafkaMessage> readMessagesFromLastMinutes(
+            String bootstrapServers,
+            String topicName,
+            int minutes,
+            int maxWaitSeconds) {
+
+        return readMessagesFromLastMinutes(bootstrapServers, topicName, null, minutes, maxWaitSeconds);
+    }
+
     /**
      * Читает сообщения за последние N часов
      * @param hours количество часов для поиска назад
@@ -500,6 +655,220 @@ public class ConsumerAdapter {
         );
     }
 
+    /**
+     * Ленивый поток сообщений за временной диапазон.
+     * Сообщения читаются из Kafka по мере потребления потока: filter(...).findFirst() или limit(n)
+     * прекращают чтение сразу после нужного количества совпадений.
+     * Поток держит консюмер из пула - обязательно закрывайте его (try-with-resources).
+     * Сообщения потока - {@link LazyKafkaMessage}: тело декодируется только при обращении к нему.
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public static Stream<KafkaMessage> streamMessagesInTimeRange(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
+
+        System.out.println("\n🔎 Потоковое чтение сообщений из " + topicName + " с " + formatTimestamp(startTimestampMs));
+
+        MessageScanIterator iterator = new MessageScanIterator(
+                ConsumerPool.borrowRaw(bootstrapServers, topicName),
+                startTimestampMs, endTimestampMs, maxWaitSeconds);
+
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Ленивый поток сообщений за временной диапазон в порядке timestamp по всем partitions.
+     * В отличие от streamMessagesInTimeRange (порядок poll()), сообщения разных partitions сливаются по timestamp;
+     * в памяти держится ограниченный буфер на partition, а не весь диапазон.
+     * Читается до конца топика на момент вызова. Поток нужно закрывать (try-with-resources).
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public static Stream<KafkaMessage> streamMessagesInTimeRangeByTimestamp(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
+
+        System.out.println("\n🔎 Чтение сообщений из " + topicName + " в порядке timestamp с " +
+                formatTimestamp(startTimestampMs));
+
+        TimestampOrderedScanIterator iterator = new TimestampOrderedScanIterator(
+                ConsumerPool.borrowRaw(bootstrapServers, topicName),
+                startTimestampMs, endTimestampMs, maxWaitSeconds);
+
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Ленивый поток сообщений нескольких топиков за временной диапазон в порядке timestamp.
+     * Все partitions всех топиков читает один консюмер из пула (assign, без группы), сообщения
+     * сливаются по timestamp так же, как в streamMessagesInTimeRangeByTimestamp. Поток нужно закрывать.
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топиков
+     */
+    public static Stream<KafkaMessage> streamTopicsInTimeRangeByTimestamp(
+            String bootstrapServers,
+            Collection<String> topicNames,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
+
+        System.out.println("\n🔎 Чтение сообщений из " + String.join(", ", topicNames) + " в порядке timestamp с " +
+                formatTimestamp(startTimestampMs));
+
+        TimestampOrderedScanIterator iterator = new TimestampOrderedScanIterator(
+                ConsumerPool.borrowRaw(bootstrapServers, topicNames),
+                startTimestampMs, endTimestampMs, maxWaitSeconds);
+
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Захват всех сообщений за временной диапазон в {@link CaptureStore} вне heap.
+     * Сырые байты записей пишутся в memory-mapped сегменты по мере чтения, поэтому объем захвата
+     * ограничен диском, а не -Xmx. Хранилище нужно закрывать (try-with-resources).
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public static CaptureStore captureMessagesInTimeRange(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
+
+        CaptureStore capture = CaptureStore.create(topicName);
+        try (Stream<KafkaMessage> messages = streamMessagesInTimeRange(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds)) {
+            messages.forEach(capture::append);
+        } catch (RuntimeException e) {
+            capture.close();
+            throw e;
+        }
+
+        System.out.println("💾 Захвачено " + capture.size() + " сообщений (" + capture.capturedBytes() + " байт) из " + topicName);
+        return capture;
+    }
+
+    /**
+     * Запись сообщений за временной диапазон в сжатый архив на диске ({@link TrafficArchive}) в порядке timestamp.
+     * Архив можно воспроизвести в другой топик или брокер через {@link TrafficReplayer}.
+     *
+     * Если чтение прервалось ошибкой, записанные сегменты удаляются и исключение пробрасывается дальше -
+     * неполный архив не остается на диске.
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     * @param directory      пустой каталог архива
+     */
+    public static TrafficArchive recordMessagesInTimeRange(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds,
+            Path directory) {
+
+        TrafficArchive.Writer writer = TrafficArchive.writer(directory, topicName);
+        try (Stream<KafkaMessage> messages = streamMessagesInTimeRangeByTimestamp(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds)) {
+            messages.forEach(writer);
+        } catch (RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+        return TrafficArchive.open(directory);
+    }
+
+    /**
+     * Ленивый поток сообщений за последние N минут (см. streamMessagesInTimeRange).
+     */
+    public static Stream<KafkaMessage> streamMessagesFromLastMinutes(
+            String bootstrapServers,
+            String topicName,
+            int minutes,
+            int maxWaitSeconds) {
+
+        long endTimestampMs = System.currentTimeMillis();
+        long startTimestampMs = endTimestampMs - (minutes * 60 * 1000L);
+
+        return streamMessagesInTimeRange(bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds);
+    }
+
+    /**
+     * Читает одно сообщение по partition и offset.
+     *
+     * @return Optional.empty(), если offset уже удален retention'ом или еще не записан
+     */
+    public static Optional<KafkaMessage> readMessageAt(String bootstrapServers,
+                                                       String topicName,
+                                                       int partition,
+                                                       long offset) {
+        TopicPartition topicPartition = new TopicPartition(topicName, partition);
+
+        return withPooledConsumer(bootstrapServers, topicName, lease -> {
+            KafkaConsumer<String, String> consumer = lease.consumer();
+            if (!lease.assignment().contains(topicPartition)) {
+                return Optional.empty();
+            }
+
+            Set<TopicPartition> others = new HashSet<>(lease.assignment());
+            others.remove(topicPartition);
+            consumer.pause(others);
+            consumer.seek(topicPartition, offset);
+
+            for (int attempt = 0; attempt < DEFAULT_MAX_WAIT_ATTEMPTS; attempt++) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500)).records(topicPartition)) {
+                    if (record.offset() == offset) {
+                        return Optional.of(toKafkaMessage(record));
+                    }
+                    if (record.offset() > offset) {
+                        return Optional.empty();
+                    }
+                }
+                if (consumer.position(topicPartition) > offset) {
+                    return Optional.empty();
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    /**
+     * Поиск первых maxMatches сообщений, удовлетворяющих условию, с остановкой чтения после последнего совпадения.
+     */
+    public static List<KafkaMessage> findMessagesInTimeRange(
+            String bootstrapServers,
+            String topicName,
+            long startTimestampMs,
+            long endTimestampMs,
+            Predicate<KafkaMessage> condition,
+            int maxMatches,
+            int maxWaitSeconds) {
+
+        try (Stream<KafkaMessage> messages = streamMessagesInTimeRange(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds)) {
+            return messages.filter(condition)
+                    .limit(maxMatches)
+                    .collect(Collectors.toList());
+        }
+    }
+
     /**
      * Поиск сообщений по условию в указанном временном диапазоне
      */
@@ -512,6 +881,12 @@ public class ConsumerAdapter {
             java.util.function.Predicate<String> condition,
             int maxWaitSeconds) {
 
+        if (endTimestampMs <= System.currentTimeMillis()) {
+            // Исторический диапазон - параллельно по partitions, условие проверяется при чтении
+            return SCAN_ENGINE.scan(bootstrapServers, topicName, startTimestampMs, endTimestampMs,
+                    msg -> condition.test(msg.getBody()), Integer.MAX_VALUE, maxWaitSeconds);
+        }
+
         List<KafkaMessage> allMessages = readMessagesInTimeRange(
                 bootstrapServers, topicName, groupName,
                 startTimestampMs, endTimestampMs, maxWaitSeconds
@@ -533,13 +908,70 @@ public class ConsumerAdapter {
             java.util.function.Predicate<String> condition,
             int maxWaitSeconds) {
 
-        List<KafkaMessage> allMessages = readMessagesFromLastMinutes(
-                bootstrapServers, topicName, groupName, minutes, maxWaitSeconds
-        );
+        long endTimestampMs = System.currentTimeMillis();
+        long startTimestampMs = endTimestampMs - (minutes * 60 * 1000L);
 
-        return allMessages.stream()
-                .filter(msg -> condition.test(msg.getBody()))
-                .collect(Collectors.toList());
+        return findMessagesInTimeRange(bootstrapServers, topicName, groupName,
+                startTimestampMs, endTimestampMs, condition, maxWaitSeconds);
+    }
+
+    /**
+     * Partition ключа - так же, как ее выбирает продюсер с partitioner'ом по умолчанию:
+     * murmur2 от UTF-8 байтов ключа (StringSerializer) по модулю числа partitions.
+     */
+    public static int partitionForKey(String key, int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be positive");
+        }
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+
+    /**
+     * Поиск сообщений с заданным ключом за диапазон: читается только partition ключа.
+     * Работает, если продюсер использует partitioner по умолчанию, не задает partition явно
+     * и число partitions не менялось после записи.
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public static List<KafkaMessage> findMessagesByKey(
+            String bootstrapServers,
+            String topicName,
+            String key,
+            long startTimestampMs,
+            long endTimestampMs,
+            int maxWaitSeconds) {
+
+        int partitionCount = TopicMetadata.partitions(bootstrapServers, topicName).size();
+        if (partitionCount == 0) {
+            System.out.println("⚠️ Topic " + topicName + " not found");
+            return Collections.emptyList();
+        }
+
+        int partition = partitionForKey(key, partitionCount);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        System.out.println("🔑 Key " + key + " -> partition " + partition + " of " + partitionCount);
+
+        return SCAN_ENGINE.scanPartition(bootstrapServers, topicName, partition, startTimestampMs, endTimestampMs,
+                message -> message instanceof LazyKafkaMessage lazy && lazy.getRawKey() != null
+                        ? Arrays.equals(lazy.getRawKey(), keyBytes)
+                        : key.equals(message.getKey()),
+                Integer.MAX_VALUE, maxWaitSeconds);
+    }
+
+    /**
+     * Поиск сообщений с заданным ключом за последние N минут (только partition ключа)
+     */
+    public static List<KafkaMessage> findMessagesByKeyFromLastMinutes(
+            String bootstrapServers,
+            String topicName,
+            String key,
+            int minutes,
+            int maxWaitSeconds) {
+
+        long endTimestampMs = System.currentTimeMillis();
+        long startTimestampMs = endTimestampMs - (minutes * 60 * 1000L);
+
+        return findMessagesByKey(bootstrapServers, topicName, key, startTimestampMs, endTimestampMs, maxWaitSeconds);
     }
 
     // Вспомогательный метод для конвертации сырых записей
@@ -547,28 +979,27 @@ public class ConsumerAdapter {
             List<ConsumerRecord<String, String>> rawRecords) {
 
         List<KafkaMessage> result = new ArrayList<>();
+        rawRecords.forEach(record -> result.add(toKafkaMessage(record)));
+        return result;
+    }
 
-        rawRecords.forEach(record -> {
-            Headers consumedHeaders = record.headers();
-
-            // Сохраняем все заголовки
-            List<Header> headersList = StreamSupport.stream(consumedHeaders.spliterator(), false)
-                    .collect(Collectors.toList());
+    // Конвертация одной записи
+    static KafkaMessage toKafkaMessage(ConsumerRecord<String, String> record) {
+        Headers consumedHeaders = record.headers();
 
-            KafkaMessage msg = KafkaMessage.builder()
-                    .headers(headersList)
-                    .body(record.value())
-                    .partition(record.partition())
-                    .offset(record.offset())
-                    .timestamp(record.timestamp())
-                    .key(record.key())
-                    .topic(record.topic())
-                    .build();
-
-            result.add(msg);
-        });
+        // Сохраняем все заголовки
+        List<Header> headersList = StreamSupport.stream(consumedHeaders.spliterator(), false)
+                .collect(Collectors.toList());
 
-        return result;
+        return KafkaMessage.builder()
+                .headers(headersList)
+                .body(record.value())
+                .partition(record.partition())
+                .offset(record.offset())
+                .timestamp(record.timestamp())
+                .key(record.key())
+                .topic(record.topic())
+                .build();
     }
 
     /**
@@ -582,9 +1013,23 @@ public class ConsumerAdapter {
         return convertRawRecordsToMessageObject(rawRecords);
     }
 
+    /**
+     * Конвертирует ConsumerRecords в List<KafkaMessage> в порядке timestamp по всем partitions
+     * (k-way слияние, записи с одинаковым timestamp сохраняются)
+     */
+    public static List<KafkaMessage> convertRecordsToMessagesSortedByTimestamp(
+            ConsumerRecords<String, String> consumerRecords) {
+
+        return convertRawRecordsToMessageObject(TimestampMerge.sortedByTimestamp(consumerRecords));
+    }
+
     /**
      * Конвертирует записи в отсортированную по времени карту
+     *
+     * @deprecated записи с одинаковым timestamp перезаписывают друг друга;
+     * используйте {@link #convertRecordsToMessagesSortedByTimestamp(ConsumerRecords)}
      */
+    @Deprecated
     public static SortedMap<Long, String> convertRecordsToMessageSortedByTimestamp(
             ConsumerRecords<String, String> consumerRecords) {
 
@@ -596,6 +1041,18 @@ public class ConsumerAdapter {
         return map;
     }
 
+    /**
+     * Асинхронное ожидание сообщения, удовлетворяющего условию.
+     * Сообщения читает один общий консюмер топика ({@link MessageAwaiter}), поэтому параллельные тесты
+     * не создают своих консюмеров и не опрашивают Kafka в цикле.
+     */
+    public static CompletableFuture<KafkaMessage> awaitMessage(String bootstrapServers,
+                                                               String topicName,
+                                                               Predicate<KafkaMessage> condition,
+                                                               Duration timeout) {
+        return MessageAwaiter.awaitMessage(bootstrapServers, topicName, condition, timeout);
+    }
+
     /**
      * Чтение сообщений с ожиданием (основной метод для тестов)
      */
@@ -605,29 +1062,20 @@ public class ConsumerAdapter {
             String groupName,
             int maxWaitSeconds) {
 
-        final KafkaConsumer<String, String> consumer =
-                createConsumer(bootstrapServers, topicName, groupName);
+        return withPooledConsumer(bootstrapServers, topicName, lease ->
+                readFromBeginningWithWait(lease.consumer(), lease.assignment(), topicName, maxWaitSeconds));
+    }
+
+    private static ConsumerRecords<String, String> readFromBeginningWithWait(
+            KafkaConsumer<String, String> consumer,
+            Set<TopicPartition> setOfPartitions,
+            String topicName,
+            int maxWaitSeconds) {
 
         ConsumerRecords<String, String> consumerRecords = null;
         int attempts = 0;
         int maxAttempts = maxWaitSeconds * 2;
 
-        // Инициализация assignment
-        consumer.poll(Duration.ofMillis(100));
-
-        Set<TopicPartition> setOfPartitions = consumer.assignment();
-
-        // Улучшенное ожидание partitions
-        if (setOfPartitions.isEmpty()) {
-            System.out.println("⏳ Waiting for partition assignment...");
-            int waitAttempts = 0;
-            while (setOfPartitions.isEmpty() && waitAttempts < 5) {
-                consumer.poll(Duration.ofMillis(500));
-                setOfPartitions = consumer.assignment();
-                waitAttempts++;
-            }
-        }
-
         if (!setOfPartitions.isEmpty()) {
             consumer.seekToBeginning(setOfPartitions);
             System.out.println("✅ Reading from beginning of " + setOfPartitions.size() + " partitions");
@@ -649,62 +1097,37 @@ public class ConsumerAdapter {
             }
         }
 
-        if (consumerRecords != null && consumerRecords.count() > 0) {
-            consumer.commitAsync();
-        }
-
-        consumer.close();
         return consumerRecords != null ? consumerRecords : ConsumerRecords.empty();
     }
 
     /**
-     * Получение информации о топике (количество сообщений, partitions и т.д.)
+     * Получение информации о топике (количество сообщений, partitions и т.д.).
+     * Только метаданные через AdminClient ({@link TopicMetadata}) - сообщения не читаются.
      */
     public static Map<String, Object> getTopicInfo(String bootstrapServers, String topicName) {
-        String groupId = "info-group-" + System.currentTimeMillis();
-
-        try (KafkaConsumer<String, String> consumer =
-                     createConsumer(bootstrapServers, topicName, groupId)) {
-
+        try {
             Map<String, Object> info = new HashMap<>();
 
             // Получаем информацию о partitions
-            var partitionsInfo = consumer.partitionsFor(topicName);
-            if (partitionsInfo == null || partitionsInfo.isEmpty()) {
+            List<TopicPartition> partitions = TopicMetadata.partitions(bootstrapServers, topicName);
+            if (partitions.isEmpty()) {
                 System.err.println("❌ Topic " + topicName + " not found");
                 info.put("error", "Topic not found");
                 return info;
             }
 
-            // Подписываемся и ждем assignment
-            consumer.poll(Duration.ofMillis(500));
-            Set<TopicPartition> partitions = consumer.assignment();
-
-            // Улучшенное ожидание assignment
-            if (partitions.isEmpty()) {
-                int attempts = 0;
-                while (partitions.isEmpty() && attempts < 3) {
-                    consumer.poll(Duration.ofMillis(500));
-                    partitions = consumer.assignment();
-                    attempts++;
-                }
-            }
-
-            if (partitions.isEmpty()) {
-                info.put("error", "Could not assign partitions");
-                return info;
-            }
-
             // Получаем offsets
-            Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
-            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, ListOffsetsResultInfo> beginningOffsets =
+                    TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.earliest());
+            Map<TopicPartition, ListOffsetsResultInfo> endOffsets =
+                    TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.latest());
 
             List<Map<String, Object>> partitionsData = new ArrayList<>();
             long totalMessages = 0;
 
             for (TopicPartition partition : partitions) {
-                Long beginning = beginningOffsets.get(partition);
-                Long end = endOffsets.get(partition);
+                Long beginning = beginningOffsets.containsKey(partition) ? beginningOffsets.get(partition).offset() : null;
+                Long end = endOffsets.containsKey(partition) ? endOffsets.get(partition).offset() : null;
                 long partitionMessages = (end != null && beginning != null) ? end - beginning : 0;
 
                 Map<String, Object> partitionInfo = new HashMap<>();
@@ -718,7 +1141,7 @@ public class ConsumerAdapter {
             }
 
             info.put("topic", topicName);
-            info.put("partitionCount", partitionsInfo.size());
+            info.put("partitionCount", partitions.size());
             info.put("totalMessages", totalMessages);
             info.put("partitions", partitionsData);
             info.put("checkTime", formatTimestamp(System.currentTimeMillis()));
@@ -0,0 +1,290 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import com.qa.framework.config.KafkaConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул долгоживущих KafkaConsumer, ключ - bootstrap servers + набор топиков.
+ * <p>
+ * Создание консюмера (подключение, SSL handshake, получение метаданных) стоит 2-5 секунд.
+ * Пул выдает уже "прогретые" консюмеры, поэтому повторные чтения одного и того же топика
+ * пропускают эти шаги.
+ * <p>
+ * Консюмеры пула не входят ни в какую группу: все partitions топика назначаются через assign()
+ * (см. {@link KafkaConfig#getKafkaAssignOnlyConsumerProperties()}), поэтому нет ожидания ребалансировки.
+ * Позиции сбрасываются при возврате в пул - следующий пользователь обязан сам сделать seek.
+ * Свободных консюмеров на ключ не больше kafka.consumer.pool.max.idle; простоявший в пуле дольше
+ * kafka.consumer.pool.idle.timeout.ms (по умолчанию как max.poll.interval.ms) закрывается при следующем
+ * обращении к его ключу - не выдается консюмер с давно устаревшими метаданными и закрытыми брокером соединениями.
+ * Все консюмеры закрываются при остановке JVM.
+ * <p>
+ * Строковые ({@link #borrow}) и "сырые" byte[] ({@link #borrowRaw}) консюмеры хранятся раздельно.
+ * Консюмер на несколько топиков ({@link #borrowRaw(String, Collection)}) - отдельный ключ пула.
+ * <p>
+ * Настройки клиента читаются при создании консюмера. После их изменения вызовите {@link #reset()}:
+ * свободные консюмеры закрываются, выданные - закрываются при возврате.
+ */
+public final class ConsumerPool {
+
+    private static final Duration METADATA_TIMEOUT = Duration.ofSeconds(10);
+    private static final KafkaConfig KAFKA_CONFIG = new KafkaConfig();
+    private static final AtomicInteger CLIENT_SEQUENCE = new AtomicInteger();
+
+    private static final Map<PoolKey, Deque<PooledConsumer<?, ?>>> IDLE = new ConcurrentHashMap<>();
+    private static volatile boolean shuttingDown = false;
+    // Поколение настроек: консюмер прошлого поколения в пул не возвращается
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ConsumerPool::closeAll, "kafka-consumer-pool-shutdown"));
+    }
+
+    private ConsumerPool() {
+    }
+
+    /**
+     * Выдает консюмер для топика: из пула, если есть свободный, иначе создает новый.
+     * Консюмер возвращается в пул при закрытии Lease (используйте try-with-resources).
+     */
+    public static Lease<String, String> borrow(String bootstrapServers, String topicName) {
+        return borrow(new PoolKey(bootstrapServers, Set.of(topicName), false));
+    }
+
+    /**
+     * Выдает консюмер с ByteArrayDeserializer: ключ и тело записи остаются байтами
+     * (см. {@link KafkaConfig#getKafkaAssignOnlyRawConsumerProperties()}).
+     */
+    public static Lease<byte[], byte[]> borrowRaw(String bootstrapServers, String topicName) {
+        return borrow(new PoolKey(bootstrapServers, Set.of(topicName), true));
+    }
+
+    /**
+     * Один "сырой" консюмер на несколько топиков: назначаются все partitions всех топиков
+     */
+    public static Lease<byte[], byte[]> borrowRaw(String bootstrapServers, Collection<String> topicNames) {
+        return borrow(new PoolKey(bootstrapServers, new HashSet<>(topicNames), true));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Lease<K, V> borrow(PoolKey key) {
+        Deque<PooledConsumer<?, ?>> idle = IDLE.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+        closeExpired(idle);
+
+        // Тип консюмера однозначно определяется флагом raw в ключе
+        PooledConsumer<K, V> pooled = (PooledConsumer<K, V>) idle.pollFirst();
+        if (pooled == null) {
+            pooled = create(key);
+        } else {
+            System.out.println("♻️ Reusing pooled consumer " + pooled.clientId + " for topic " + key.topicNames());
+            pooled.consumer.resume(pooled.consumer.assignment());
+        }
+
+        Lease<K, V> lease = new Lease<>(key, pooled);
+        try {
+            assignAllPartitions(pooled, key.topics);
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            lease.close();
+            throw e;
+        }
+        return lease;
+    }
+
+    /**
+     * Закрывает все свободные консюмеры пула.
+     */
+    public static void closeAll() {
+        shuttingDown = true;
+        IDLE.values().forEach(idle -> {
+            PooledConsumer<?, ?> pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                closeQuietly(pooled);
+            }
+        });
+    }
+
+    /**
+     * Закрывает свободные консюмеры, созданные со старыми настройками; пул продолжает работать
+     */
+    public static void reset() {
+        GENERATION.incrementAndGet();
+        IDLE.values().forEach(idle -> {
+            PooledConsumer<?, ?> pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                closeQuietly(pooled);
+            }
+        });
+    }
+
+    private static <K, V> PooledConsumer<K, V> create(PoolKey key) {
+        // Поколение берется до чтения настроек: reset() во время создания не оставит консюмер в пуле
+        int generation = GENERATION.get();
+        String clientId = "qa-pool-" + (key.raw ? "raw-" : "") + String.join("+", key.topics) +
+                "-" + CLIENT_SEQUENCE.incrementAndGet();
+
+        final Properties props = key.raw
+                ? KAFKA_CONFIG.getKafkaAssignOnlyRawConsumerProperties()
+                : KAFKA_CONFIG.getKafkaAssignOnlyConsumerProperties();
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, clientId);
+        if (key.bootstrapServers != null && !key.bootstrapServers.isBlank()) {
+            props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, key.bootstrapServers);
+        }
+
+        System.out.println("🔌 Creating pooled consumer " + clientId + " for topic " + key.topicNames());
+        return new PooledConsumer<>(new KafkaConsumer<>(props), clientId, generation);
+    }
+
+    /**
+     * Назначает консюмеру все partitions топиков через assign().
+     * Повторный assign делается только если набор partitions изменился (например, топик расширили).
+     */
+    private static void assignAllPartitions(PooledConsumer<?, ?> pooled, Set<String> topicNames) {
+        KafkaConsumer<?, ?> consumer = pooled.consumer;
+
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (String topicName : topicNames) {
+            var partitionsInfo = consumer.partitionsFor(topicName, METADATA_TIMEOUT);
+            if (partitionsInfo == null || partitionsInfo.isEmpty()) {
+                System.err.println("❌ Topic " + topicName + " does not exist or has no partitions");
+                continue;
+            }
+            partitionsInfo.forEach(info -> partitions.add(new TopicPartition(topicName, info.partition())));
+        }
+
+        if (!partitions.equals(consumer.assignment())) {
+            consumer.assign(partitions);
+        }
+    }
+
+    private static void release(PoolKey key, PooledConsumer<?, ?> pooled, boolean invalid) {
+        if (invalid || shuttingDown || pooled.generation != GENERATION.get()) {
+            closeQuietly(pooled);
+            return;
+        }
+
+        try {
+            // Сбрасываем позиции (seekToEnd ленивый и очищает буфер уже полученных записей)
+            Set<TopicPartition> assignment = pooled.consumer.assignment();
+            pooled.consumer.seekToEnd(assignment);
+            pooled.consumer.pause(assignment);
+        } catch (RuntimeException e) {
+            System.err.println("❌ Failed to reset pooled consumer " + pooled.clientId + ": " + e.getMessage());
+            closeQuietly(pooled);
+            return;
+        }
+
+        Deque<PooledConsumer<?, ?>> idle = IDLE.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+        closeExpired(idle);
+        if (idle.size() < ConfigurationManager.getKafkaConsumerPoolMaxIdle()) {
+            pooled.idleSinceNanos = System.nanoTime();
+            idle.offerFirst(pooled);
+        } else {
+            closeQuietly(pooled);
+        }
+    }
+
+    /**
+     * Закрывает консюмеры, простоявшие дольше kafka.consumer.pool.idle.timeout.ms.
+     * Консюмеры возвращаются в голову очереди, поэтому самые давние - в хвосте
+     */
+    private static void closeExpired(Deque<PooledConsumer<?, ?>> idle) {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(ConfigurationManager.getKafkaConsumerPoolIdleTimeoutMs());
+        PooledConsumer<?, ?> oldest;
+        while ((oldest = idle.peekLast()) != null && System.nanoTime() - oldest.idleSinceNanos > timeoutNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                System.out.println("⏳ Closing pooled consumer " + oldest.clientId + " idle for more than " +
+                        TimeUnit.NANOSECONDS.toSeconds(timeoutNanos) + "s");
+                closeQuietly(oldest);
+            }
+        }
+    }
+
+    private static void closeQuietly(PooledConsumer<?, ?> pooled) {
+        try {
+            pooled.consumer.close(Duration.ofSeconds(5));
+        } catch (Exception e) {
+            System.err.println("⚠️ Error closing pooled consumer " + pooled.clientId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Временное владение консюмером из пула. KafkaConsumer не потокобезопасен,
+     * поэтому один Lease нельзя использовать из нескольких потоков.
+     */
+    public static final class Lease<K, V> implements AutoCloseable {
+        private final PoolKey key;
+        private final PooledConsumer<K, V> pooled;
+        private boolean invalid = false;
+        private boolean closed = false;
+
+        private Lease(PoolKey key, PooledConsumer<K, V> pooled) {
+            this.key = key;
+            this.pooled = pooled;
+        }
+
+        public KafkaConsumer<K, V> consumer() {
+            return pooled.consumer;
+        }
+
+        public Set<TopicPartition> assignment() {
+            return pooled.consumer.assignment();
+        }
+
+        /**
+         * Помечает консюмер как неисправный - при закрытии Lease он будет закрыт, а не возвращен в пул.
+         */
+        public void invalidate() {
+            this.invalid = true;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(key, pooled, invalid);
+        }
+    }
+
+    private static final class PooledConsumer<K, V> {
+        private final KafkaConsumer<K, V> consumer;
+        private final String clientId;
+        private final int generation;
+        // Момент возврата в пул (System.nanoTime)
+        private volatile long idleSinceNanos;
+
+        private PooledConsumer(KafkaConsumer<K, V> consumer, String clientId, int generation) {
+            this.consumer = consumer;
+            this.clientId = clientId;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * @param topics топики консюмера; порядок не важен - набор хранится отсортированным
+     */
+    private record PoolKey(String bootstrapServers, Set<String> topics, boolean raw) {
+
+        private PoolKey {
+            if (topics.isEmpty()) {
+                throw new IllegalArgumentException("At least one topic is required");
+            }
+            topics = Collections.unmodifiableSortedSet(new TreeSet<>(topics));
+        }
+
+        String topicNames() {
+            return String.join(", ", topics);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.utils.LongHashSet;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая проверка доставки: нет дублей, нет пропусков и порядок по ключу сохранен.
+ * <p>
+ * У каждого сообщения берется ключ (по умолчанию ключ записи) и номер в последовательности этого ключа
+ * (заголовок или JSON поле). Для ключа хранится водяной знак - все номера до него включительно получены -
+ * и максимальный полученный номер. Номера, пришедшие раньше предшественников, кладутся в общее множество
+ * (ключ, номер) на примитивах ({@link LongHashSet}) и удаляются из него, как только водяной знак их догоняет.
+ * Если максимальный номер ключа уходит от водяного знака дальше окна перестановок ({@link Builder#reorderWindow}),
+ * недостающий номер считается потерянным: водяной знак перешагивает его и забирает из множества следующие номера.
+ * Поэтому даже при настоящей потере множество не растет с числом сообщений: при доставке по порядку оно пустое,
+ * а в худшем случае - не больше окна на ключ; память - O(число ключей × окно), а не O(число сообщений).
+ * Номер, опоздавший больше чем на окно, уже посчитан потерянным и при получении будет DUPLICATE.
+ * <p>
+ * Нарушения сообщаются по мере чтения (onViolation, по умолчанию - первые {@value #MAX_PRINTED} в лог):
+ * <ul>
+ *     <li>DUPLICATE - номер уже был;</li>
+ *     <li>REORDER - номер меньше уже полученного для ключа;</li>
+ *     <li>GAP - номер больше следующего ожидаемого. Если пропуск потом заполнится, заполнившие его
+ *     сообщения будут REORDER; итоговое число недостающих номеров - в {@link VerificationReport#missingSequences()}.</li>
+ * </ul>
+ * Порядок проверяется в порядке чтения partition, поэтому ключ должен жить в одной partition.
+ * Объект не потокобезопасен.
+ *
+ * <pre>
+ * VerificationReport report = DeliveryVerifier.builder()
+ *         .sequenceHeader("X-Sequence")
+ *         .build()
+ *         .verify(bootstrapServers, "processed_orders", from, to, 600);
+ * assertTrue(report.isClean(), report.toString());
+ * </pre>
+ */
+public final class DeliveryVerifier implements Consumer<KafkaMessage> {
+
+    public enum ViolationType {
+        DUPLICATE,
+        REORDER,
+        GAP
+    }
+
+    private static final int MAX_PRINTED = 20;
+    private static final int MAX_SAMPLES = 100;
+    private static final long DEFAULT_REORDER_WINDOW = 10_000;
+
+    private final Function<KafkaMessage, String> keyExtractor;
+    private final Function<KafkaMessage, String> sequenceExtractor;
+    private final Long firstSequence;
+    private final long reorderWindow;
+    private final Consumer<Violation> onViolation;
+
+    private final Map<String, KeyState> keys = new HashMap<>();
+    private final LongHashSet pending = new LongHashSet();
+    private final List<Violation> samples = new ArrayList<>();
+
+    private long messages = 0;
+    private long skipped = 0;
+    private long duplicates = 0;
+    private long reorders = 0;
+    private long gaps = 0;
+    // Номера, которые водяной знак перешагнул по окну перестановок
+    private long expired = 0;
+    private long printed = 0;
+
+    private DeliveryVerifier(Builder builder) {
+        this.keyExtractor = builder.keyExtractor;
+        this.sequenceExtractor = builder.sequenceExtractor;
+        this.firstSequence = builder.firstSequence;
+        this.reorderWindow = builder.reorderWindow;
+        this.onViolation = builder.onViolation != null ? builder.onViolation : this::printViolation;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Проверяет все сообщения топика за диапазон (в порядке чтения partitions)
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public VerificationReport verify(String bootstrapServers,
+                                     String topicName,
+                                     long startTimestampMs,
+                                     long endTimestampMs,
+                                     int maxWaitSeconds) {
+        try (Stream<KafkaMessage> stream = ConsumerAdapter.streamMessagesInTimeRange(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds)) {
+            stream.forEach(this);
+        }
+        VerificationReport report = finish();
+        report.print();
+        return report;
+    }
+
+    @Override
+    public void accept(KafkaMessage message) {
+        messages++;
+
+        long sequence;
+        try {
+            String value = sequenceExtractor.apply(message);
+            if (value == null) {
+                skipped++;
+                return;
+            }
+            sequence = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            skipped++;
+            return;
+        }
+
+        String key = keyExtractor.apply(message);
+        KeyState state = keys.computeIfAbsent(String.valueOf(key), ignored -> new KeyState(
+                keys.size(), (firstSequence != null ? firstSequence : sequence) - 1));
+        long previousMax = state.maxSequence;
+
+        if (sequence <= state.watermark) {
+            report(ViolationType.DUPLICATE, key, sequence, previousMax, message);
+            return;
+        }
+
+        if (sequence == state.watermark + 1) {
+            // Следующий по порядку: двигаем водяной знак и забираем из множества догнанные номера
+            state.watermark = sequence;
+            while (state.pending > 0 && pending.remove(fingerprint(state.id, state.watermark + 1))) {
+                state.watermark++;
+                state.pending--;
+            }
+        } else {
+            if (!pending.add(fingerprint(state.id, sequence))) {
+                report(ViolationType.DUPLICATE, key, sequence, previousMax, message);
+                return;
+            }
+            state.pending++;
+            expireBeyondWindow(state, previousMax, sequence);
+        }
+
+        if (sequence < previousMax) {
+            report(ViolationType.REORDER, key, sequence, previousMax, message);
+        } else {
+            if (sequence > previousMax + 1) {
+                report(ViolationType.GAP, key, sequence, previousMax, message);
+            }
+            state.maxSequence = sequence;
+        }
+    }
+
+    /**
+     * Двигает водяной знак, пока максимальный номер ключа дальше окна: непришедшие номера считаются потерянными,
+     * пришедшие забираются из множества
+     */
+    private void expireBeyondWindow(KeyState state, long previousMax, long sequence) {
+        long target = Math.max(previousMax, sequence) - reorderWindow;
+        // Прежние номера ключа в множестве не выше previousMax, а previousMax не дальше окна от водяного знака -
+        // перебор по одному занимает не больше окна шагов
+        while (state.watermark < target && state.watermark < previousMax) {
+            state.watermark++;
+            if (state.pending > 0 && pending.remove(fingerprint(state.id, state.watermark))) {
+                state.pending--;
+            } else {
+                expired++;
+            }
+        }
+        // Выше previousMax в множестве только новый номер, а он выше target - остаток разрыва перешагивается сразу
+        if (state.watermark < target) {
+            expired += target - state.watermark;
+            state.watermark = target;
+        }
+        // Номера сразу за новым водяным знаком могли уже прийти
+        while (state.pending > 0 && pending.remove(fingerprint(state.id, state.watermark + 1))) {
+            state.watermark++;
+            state.pending--;
+        }
+    }
+
+    /**
+     * Итог проверки: недостающие номера - перешагнутые по окну и между водяным знаком и максимальным номером каждого ключа
+     */
+    public VerificationReport finish() {
+        long missing = expired;
+        for (KeyState state : keys.values()) {
+            missing += state.maxSequence - state.watermark - state.pending;
+        }
+        return new VerificationReport(messages, skipped, keys.size(), duplicates, reorders, gaps, missing,
+                pending.size(), List.copyOf(samples));
+    }
+
+    private void report(ViolationType type, String key, long sequence, long previousMax, KafkaMessage message) {
+        switch (type) {
+            case DUPLICATE -> duplicates++;
+            case REORDER -> reorders++;
+            case GAP -> gaps++;
+        }
+        Violation violation = new Violation(type, key, sequence, previousMax,
+                message.getPartition(), message.getOffset(), message.getTimestamp());
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add(violation);
+        }
+        onViolation.accept(violation);
+    }
+
+    private void printViolation(Violation violation) {
+        if (printed++ < MAX_PRINTED) {
+            System.err.println("⚠️ " + violation);
+        } else if (printed == MAX_PRINTED + 1) {
+            System.err.println("⚠️ Further delivery violations are counted but not printed");
+        }
+    }
+
+    /**
+     * 64-битный отпечаток пары (ключ, номер) - перемешивание fmix64.
+     * Вероятность совпадения двух отпечатков среди n одновременно ожидаемых номеров - по оценке дня рождения
+     * ~n^2 / 2^65: для миллиона пропусков ~3·10^-8. Совпадение дает ложный DUPLICATE или пропущенный разрыв.
+     */
+    private static long fingerprint(long keyId, long sequence) {
+        long hash = sequence * 0x9E3779B97F4A7C15L ^ keyId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class KeyState {
+        private final long id;
+        // Все номера <= watermark получены
+        private long watermark;
+        private long maxSequence;
+        // Сколько номеров ключа выше watermark лежит в множестве
+        private int pending;
+
+        KeyState(long id, long watermark) {
+            this.id = id;
+            this.watermark = watermark;
+            this.maxSequence = watermark;
+        }
+    }
+
+    /**
+     * Нарушение доставки
+     *
+     * @param previousMaxSequence максимальный номер ключа до этого сообщения
+     */
+    public record Violation(ViolationType type,
+                            String key,
+                            long sequence,
+                            long previousMaxSequence,
+                            int partition,
+                            long offset,
+                            long timestamp) {
+
+        @Override
+        public String toString() {
+            String detail = switch (type) {
+                case DUPLICATE -> "sequence " + sequence + " already received";
+                case REORDER -> "sequence " + sequence + " after " + previousMaxSequence;
+                case GAP -> "sequences " + (previousMaxSequence + 1) + ".." + (sequence - 1) + " missing before " + sequence;
+            };
+            return type + " key=" + key + ": " + detail + " (partition " + partition + ", offset " + offset + ")";
+        }
+    }
+
+    /**
+     * Итог проверки
+     *
+     * @param skipped          сообщения без номера (нет заголовка/поля или не число)
+     * @param gaps             сколько раз номер перескакивал вперед
+     * @param missingSequences сколько номеров так и не пришло (между первым и последним номером ключа)
+     * @param pendingEntries   размер множества номеров, пришедших раньше предшественников
+     * @param samples          первые нарушения
+     */
+    public record VerificationReport(long messages,
+                                     long skipped,
+                                     long keys,
+                                     long duplicates,
+                                     long reorders,
+                                     long gaps,
+                                     long missingSequences,
+                                     long pendingEntries,
+                                     List<Violation> samples) {
+
+        public boolean isClean() {
+            return duplicates == 0 && reorders == 0 && missingSequences == 0;
+        }
+
+        public void print() {
+            System.out.println("\n🧮 Delivery verification: " + (isClean() ? "✅ clean" : "❌ violations found"));
+            System.out.println("   Messages: " + messages + ", skipped: " + skipped + ", keys: " + keys);
+            System.out.println("   Duplicates: " + duplicates + ", reorders: " + reorders +
+                    ", gaps: " + gaps + ", missing sequences: " + missingSequences);
+        }
+    }
+
+    // Builder pattern (ручная реализация)
+    public static class Builder {
+        private Function<KafkaMessage, String> keyExtractor = KafkaMessage::getKey;
+        private Function<KafkaMessage, String> sequenceExtractor;
+        private Long firstSequence;
+        private long reorderWindow = DEFAULT_REORDER_WINDOW;
+        private Consumer<Violation> onViolation;
+
+        /**
+         * Номер в последовательности - из заголовка (без декодирования тела)
+         */
+        public Builder sequenceHeader(String headerName) {
+            this.sequenceExtractor = message -> {
+                Header header = message.getHeader(headerName);
+                return header != null && header.value() != null
+                        ? new String(header.value(), StandardCharsets.UTF_8)
+                        : null;
+            };
+            return this;
+        }
+
+        /**
+         * Номер в последовательности - из JSON поля тела (путь через точку)
+         */
+        public Builder sequenceField(String fieldName) {
+            this.sequenceExtractor = message -> KafkaUtils.extractField(message, fieldName);
+            return this;
+        }
+
+        /**
+         * Ключ последовательности - из JSON поля тела вместо ключа записи
+         */
+        public Builder keyField(String fieldName) {
+            this.keyExtractor = message -> KafkaUtils.extractField(message, fieldName);
+            return this;
+        }
+
+        /**
+         * Первый номер каждого ключа. Если не задан, последовательность ключа отсчитывается от первого
+         * прочитанного номера (захват с середины потока); номер меньше него тогда будет DUPLICATE.
+         */
+        public Builder firstSequence(long firstSequence) {
+            this.firstSequence = firstSequence;
+            return this;
+        }
+
+        /**
+         * Окно перестановок: на сколько номеров максимальный номер ключа может обогнать первый недостающий,
+         * прежде чем тот будет посчитан потерянным (по умолчанию {@value DeliveryVerifier#DEFAULT_REORDER_WINDOW}).
+         * Ограничивает память на ключ при настоящих потерях.
+         */
+        public Builder reorderWindow(long reorderWindow) {
+            this.reorderWindow = reorderWindow;
+            return this;
+        }
+
+        /**
+         * Колбэк на каждое нарушение (по умолчанию - вывод первых нарушений в лог)
+         */
+        public Builder onViolation(Consumer<Violation> onViolation) {
+            this.onViolation = onViolation;
+            return this;
+        }
+
+        public DeliveryVerifier build() {
+            if (sequenceExtractor == null) {
+                throw new IllegalStateException("Sequence header or field is required");
+            }
+            if (reorderWindow < 1) {
+                throw new IllegalArgumentException("Reorder window must be at least 1");
+            }
+            return new DeliveryVerifier(this);
+        }
+    }
+}
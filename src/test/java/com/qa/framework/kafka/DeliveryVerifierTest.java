@@ -0,0 +1,113 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка доставки без брокера: дубли, перестановки, потери и ограниченная память при потерях
+ */
+class DeliveryVerifierTest {
+
+    private static final String SEQUENCE_HEADER = "X-Sequence";
+
+    @Test
+    @DisplayName("🧮 Перестановка внутри окна - REORDER без потерь")
+    void testReorderWithinWindow() {
+        DeliveryVerifier verifier = verifier(100);
+        for (long sequence : new long[]{1, 2, 4, 3, 5, 6}) {
+            verifier.accept(message("A", sequence));
+        }
+
+        DeliveryVerifier.VerificationReport report = verifier.finish();
+        assertEquals(1, report.reorders());
+        assertEquals(0, report.duplicates());
+        assertEquals(0, report.missingSequences());
+        assertEquals(0, report.pendingEntries());
+    }
+
+    @Test
+    @DisplayName("🧮 Дубль и потеря в конце потока находятся")
+    void testDuplicateAndTrailingGap() {
+        DeliveryVerifier verifier = verifier(100);
+        for (long sequence : new long[]{1, 2, 2, 3, 5}) {
+            verifier.accept(message("A", sequence));
+        }
+
+        DeliveryVerifier.VerificationReport report = verifier.finish();
+        assertEquals(1, report.duplicates());
+        assertEquals(1, report.gaps());
+        assertEquals(1, report.missingSequences());
+        assertFalse(report.isClean());
+    }
+
+    @Test
+    @DisplayName("🧮 Настоящая потеря не раздувает множество ожидаемых номеров")
+    void testPermanentGapKeepsPendingBounded() {
+        int window = 50;
+        DeliveryVerifier verifier = verifier(window);
+        for (long sequence = 1; sequence <= 100_000; sequence++) {
+            // Номера 10 и 20_000 потеряны навсегда, у второго ключа - каждый тысячный
+            if (sequence != 10 && sequence != 20_000) {
+                verifier.accept(message("A", sequence));
+            }
+            if (sequence % 1_000 != 0) {
+                verifier.accept(message("B", sequence));
+            }
+            if (sequence % 10_000 == 0) {
+                assertTrue(verifier.finish().pendingEntries() <= 2L * window,
+                        "Множество не больше окна на ключ: " + verifier.finish().pendingEntries());
+            }
+        }
+
+        DeliveryVerifier.VerificationReport report = verifier.finish();
+        // У B последний номер 100_000 потерян, но после него ничего нет - он не виден как пропуск
+        assertEquals(2 + 99, report.missingSequences());
+        assertEquals(0, report.duplicates());
+        assertEquals(0, report.reorders());
+        assertTrue(report.pendingEntries() <= 2L * window);
+    }
+
+    @Test
+    @DisplayName("🧮 Огромный скачок номера перешагивается сразу")
+    void testHugeJump() {
+        DeliveryVerifier verifier = verifier(10);
+        verifier.accept(message("A", 1));
+        verifier.accept(message("A", 3));
+        verifier.accept(message("A", 1_000_000_000L));
+
+        DeliveryVerifier.VerificationReport report = verifier.finish();
+        assertEquals(1_000_000_000L - 3, report.missingSequences());
+        assertTrue(report.pendingEntries() <= 1);
+    }
+
+    @Test
+    @DisplayName("🧮 Окно меньше 1 отклоняется")
+    void testWindowValidation() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DeliveryVerifier.builder().sequenceHeader(SEQUENCE_HEADER).reorderWindow(0).build());
+    }
+
+    private static DeliveryVerifier verifier(long window) {
+        return DeliveryVerifier.builder()
+                .sequenceHeader(SEQUENCE_HEADER)
+                .firstSequence(1)
+                .reorderWindow(window)
+                .onViolation(violation -> {
+                })
+                .build();
+    }
+
+    private static KafkaMessage message(String key, long sequence) {
+        List<Header> headers = new ArrayList<>();
+        headers.add(new RecordHeader(SEQUENCE_HEADER, Long.toString(sequence).getBytes(StandardCharsets.UTF_8)));
+        return new KafkaMessage(headers, "{}", 0, sequence, sequence, key, "orders");
+    }
+}
@@ -0,0 +1,95 @@
+package com.qa.framework.kafka;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронная отправка с ограничением числа неподтвержденных записей и подсчетом ack - общая часть
+ * {@link LoadGenerator} и {@link TrafficReplayer}. Используется из одного потока отправки;
+ * подтверждения приходят из потока продюсера.
+ */
+final class InFlightSender {
+
+    static final long ACK_WAIT_SECONDS = 30;
+
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final AtomicLong acked = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long sent = 0;
+
+    InFlightSender(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Ждет (parkNanos) до момента по System.nanoTime()
+     */
+    static void parkUntil(long deadlineNanos) {
+        long now;
+        while ((now = System.nanoTime()) < deadlineNanos) {
+            LockSupport.parkNanos(deadlineNanos - now);
+        }
+    }
+
+    /**
+     * Отправляет запись, когда неподтвержденных меньше maxInFlight
+     *
+     * @param onAck вызывается в потоке продюсера после успешного подтверждения (может быть null)
+     */
+    void send(Supplier<? extends CompletableFuture<?>> send, Runnable onAck) throws InterruptedException {
+        inFlight.acquire();
+        CompletableFuture<?> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+        sent++;
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                failed.incrementAndGet();
+            } else {
+                acked.incrementAndGet();
+                if (onAck != null) {
+                    onAck.run();
+                }
+            }
+            inFlight.release();
+        });
+    }
+
+    /**
+     * Ждет подтверждения всех отправленных записей не дольше {@link #ACK_WAIT_SECONDS}
+     *
+     * @return false - не все записи подтверждены
+     */
+    boolean awaitAcks() throws InterruptedException {
+        if (inFlight.tryAcquire(maxInFlight, ACK_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            inFlight.release(maxInFlight);
+            return true;
+        }
+        return false;
+    }
+
+    long sent() {
+        return sent;
+    }
+
+    long acked() {
+        return acked.get();
+    }
+
+    long failed() {
+        return failed.get();
+    }
+}
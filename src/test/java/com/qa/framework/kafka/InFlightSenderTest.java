@@ -0,0 +1,76 @@
+package com.qa.framework.kafka;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ограничение неподтвержденных записей без брокера: future отправки завершаются вручную
+ */
+class InFlightSenderTest {
+
+    @Test
+    @DisplayName("🚦 Отправка ждет, пока неподтвержденных меньше maxInFlight")
+    void testBlocksAtMaxInFlight() throws Exception {
+        InFlightSender sender = new InFlightSender(2);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        AtomicInteger acks = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            futures.add(future);
+            sender.send(() -> future, acks::incrementAndGet);
+        }
+
+        CountDownLatch thirdSent = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                sender.send(() -> CompletableFuture.completedFuture(null), acks::incrementAndGet);
+                thirdSent.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        assertFalse(thirdSent.await(200, TimeUnit.MILLISECONDS), "Третья запись ждет подтверждения");
+
+        futures.get(0).completeExceptionally(new IllegalStateException("broker down"));
+        assertTrue(thirdSent.await(5, TimeUnit.SECONDS));
+        futures.get(1).complete(null);
+        thread.join();
+
+        assertTrue(sender.awaitAcks());
+        assertEquals(3, sender.sent());
+        assertEquals(2, sender.acked());
+        assertEquals(1, sender.failed());
+        assertEquals(2, acks.get());
+        // После ожидания разрешения возвращены - можно отправлять дальше
+        sender.send(() -> CompletableFuture.completedFuture(null), null);
+        assertTrue(sender.awaitAcks());
+    }
+
+    @Test
+    @DisplayName("🚦 Исключение при создании отправки не занимает разрешение навсегда")
+    void testSendFailureReleasesPermit() throws Exception {
+        InFlightSender sender = new InFlightSender(1);
+        assertThrows(IllegalStateException.class, () -> sender.send(() -> {
+            throw new IllegalStateException("payload");
+        }, null));
+
+        assertEquals(0, sender.sent());
+        assertTrue(sender.awaitAcks());
+    }
+
+    @Test
+    @DisplayName("🚦 maxInFlight меньше 1 отклоняется")
+    void testMaxInFlightValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new InFlightSender(0));
+    }
+}
@@ -0,0 +1,314 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Сквозные пути транзакций по нескольким топикам (fan-in).
+ * <p>
+ * Одна бизнес-транзакция проходит топики по очереди (по умолчанию incoming_orders, user_activities,
+ * system_logs) и связана заголовком X-Transaction-Req-Id. Все топики читает один консюмер
+ * ({@link ConsumerAdapter#streamTopicsInTimeRangeByTimestamp}) в порядке timestamp, а сообщения
+ * раскладываются по id корреляции (заголовок или JSON поле) в хронологию шагов {@link Journey}.
+ * Корреляция по заголовку не декодирует тело.
+ * <p>
+ * Задержка перехода (hop) - от первого шага в топике до первого шага в следующем по порядку топике
+ * (не раньше по timestamp). По всем транзакциям задержки переходов и сквозная задержка (первый топик -
+ * последний) собираются в {@link LatencyHistogram} в миллисекундах.
+ * <p>
+ * Шаг хранит только координаты записи; тело сохраняется при {@link Builder#retainMessages(boolean)}.
+ * Объект не потокобезопасен.
+ *
+ * <pre>
+ * JourneyReport report = JourneyCorrelator.builder()
+ *         .build()
+ *         .collect(bootstrapServers, from, 0, 30);
+ * Journey journey = report.journey(transactionId).orElseThrow();
+ * assertTrue(journey.isComplete(report.topics()));
+ * </pre>
+ */
+public final class JourneyCorrelator implements Consumer<KafkaMessage> {
+
+    public static final String DEFAULT_CORRELATION_HEADER = "X-Transaction-Req-Id";
+
+    private final List<String> topics;
+    private final Function<KafkaMessage, String> correlationExtractor;
+    private final boolean retainMessages;
+
+    private final Map<String, Journey> journeys = new LinkedHashMap<>();
+    private long messages = 0;
+    private long uncorrelated = 0;
+
+    private JourneyCorrelator(Builder builder) {
+        this.topics = List.copyOf(builder.topics);
+        this.correlationExtractor = builder.correlationExtractor;
+        this.retainMessages = builder.retainMessages;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Читает все топики за диапазон одним консюмером и собирает пути транзакций
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топиков
+     */
+    public JourneyReport collect(String bootstrapServers,
+                                 long startTimestampMs,
+                                 long endTimestampMs,
+                                 int maxWaitSeconds) {
+        try (Stream<KafkaMessage> stream = ConsumerAdapter.streamTopicsInTimeRangeByTimestamp(
+                bootstrapServers, topics, startTimestampMs, endTimestampMs, maxWaitSeconds)) {
+            stream.forEach(this);
+        }
+        JourneyReport report = finish();
+        report.print();
+        return report;
+    }
+
+    @Override
+    public void accept(KafkaMessage message) {
+        messages++;
+        String correlationId = correlationExtractor.apply(message);
+        if (correlationId == null || correlationId.isEmpty()) {
+            uncorrelated++;
+            return;
+        }
+        journeys.computeIfAbsent(correlationId, Journey::new)
+                .add(new Step(message.getTopic(), message.getPartition(), message.getOffset(),
+                        message.getTimestamp(), retainMessages ? message : null));
+    }
+
+    /**
+     * Итог: пути транзакций и задержки переходов между соседними топиками
+     */
+    public JourneyReport finish() {
+        Map<String, LatencyHistogram> hopLatencies = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < topics.size(); i++) {
+            hopLatencies.put(hopName(topics.get(i), topics.get(i + 1)), new LatencyHistogram());
+        }
+        LatencyHistogram endToEnd = new LatencyHistogram();
+
+        long complete = 0;
+        for (Journey journey : journeys.values()) {
+            for (int i = 0; i + 1 < topics.size(); i++) {
+                LatencyHistogram histogram = hopLatencies.get(hopName(topics.get(i), topics.get(i + 1)));
+                journey.latency(topics.get(i), topics.get(i + 1)).ifPresent(latency -> histogram.record(latency.toMillis()));
+            }
+            if (topics.size() > 1) {
+                journey.latency(topics.get(0), topics.get(topics.size() - 1))
+                        .ifPresent(latency -> endToEnd.record(latency.toMillis()));
+            }
+            if (journey.isComplete(topics)) {
+                complete++;
+            }
+        }
+        return new JourneyReport(topics, messages, uncorrelated, complete,
+                Collections.unmodifiableMap(journeys), hopLatencies, endToEnd);
+    }
+
+    static String hopName(String fromTopic, String toTopic) {
+        return fromTopic + " → " + toTopic;
+    }
+
+    /**
+     * Шаг транзакции: запись в одном из топиков
+     *
+     * @param message сообщение целиком, только при retainMessages(true), иначе null
+     */
+    public record Step(String topic, int partition, long offset, long timestamp, KafkaMessage message) {
+
+        @Override
+        public String toString() {
+            return topic + "[" + partition + "]@" + offset + " ts=" + timestamp;
+        }
+    }
+
+    /**
+     * Путь одной транзакции: шаги в порядке timestamp
+     */
+    public static final class Journey {
+        private final String correlationId;
+        private final List<Step> steps = new ArrayList<>();
+
+        Journey(String correlationId) {
+            this.correlationId = correlationId;
+        }
+
+        void add(Step step) {
+            // Поток collect упорядочен по timestamp, и шаг встает в конец; при accept вразнобой - сдвигается на свое место
+            int index = steps.size();
+            while (index > 0 && steps.get(index - 1).timestamp() > step.timestamp()) {
+                index--;
+            }
+            steps.add(index, step);
+        }
+
+        public String getCorrelationId() {
+            return correlationId;
+        }
+
+        public List<Step> getSteps() {
+            return Collections.unmodifiableList(steps);
+        }
+
+        /**
+         * Первый шаг в топике
+         */
+        public Optional<Step> firstIn(String topic) {
+            return steps.stream().filter(step -> step.topic().equals(topic)).findFirst();
+        }
+
+        public boolean visited(String topic) {
+            return firstIn(topic).isPresent();
+        }
+
+        /**
+         * Транзакция есть во всех топиках
+         */
+        public boolean isComplete(Collection<String> topics) {
+            return topics.stream().allMatch(this::visited);
+        }
+
+        /**
+         * Задержка от первого шага в fromTopic до первого шага в toTopic не раньше него;
+         * пусто, если транзакция не дошла до одного из топиков
+         */
+        public Optional<Duration> latency(String fromTopic, String toTopic) {
+            Optional<Step> from = firstIn(fromTopic);
+            if (from.isEmpty()) {
+                return Optional.empty();
+            }
+            long fromTimestamp = from.get().timestamp();
+            return steps.stream()
+                    .filter(step -> step.topic().equals(toTopic) && step.timestamp() >= fromTimestamp)
+                    .findFirst()
+                    .map(step -> Duration.ofMillis(step.timestamp() - fromTimestamp));
+        }
+
+        /**
+         * От первого до последнего шага
+         */
+        public Duration getTotalLatency() {
+            return steps.isEmpty()
+                    ? Duration.ZERO
+                    : Duration.ofMillis(steps.get(steps.size() - 1).timestamp() - steps.get(0).timestamp());
+        }
+
+        @Override
+        public String toString() {
+            return "Journey{" + correlationId + ", steps=" + steps + "}";
+        }
+    }
+
+    /**
+     * Итог сбора путей
+     *
+     * @param uncorrelated сообщения без id корреляции
+     * @param complete     транзакции, дошедшие до всех топиков
+     * @param hopLatencies задержки переходов (мс) по ключу "from → to", в порядке топиков
+     * @param endToEnd     задержка от первого топика до последнего (мс)
+     */
+    public record JourneyReport(List<String> topics,
+                                long messages,
+                                long uncorrelated,
+                                long complete,
+                                Map<String, Journey> journeys,
+                                Map<String, LatencyHistogram> hopLatencies,
+                                LatencyHistogram endToEnd) {
+
+        public Optional<Journey> journey(String correlationId) {
+            return Optional.ofNullable(journeys.get(correlationId));
+        }
+
+        /**
+         * Транзакции, не дошедшие хотя бы до одного топика
+         */
+        public List<Journey> incomplete() {
+            return journeys.values().stream()
+                    .filter(journey -> !journey.isComplete(topics))
+                    .toList();
+        }
+
+        public LatencyHistogram hopLatency(String fromTopic, String toTopic) {
+            return hopLatencies.get(hopName(fromTopic, toTopic));
+        }
+
+        public void print() {
+            System.out.println("\n🧭 Transaction journeys across " + String.join(", ", topics));
+            System.out.println("   Messages: " + messages + ", uncorrelated: " + uncorrelated +
+                    ", journeys: " + journeys.size() + ", complete: " + complete);
+            hopLatencies.forEach((hop, histogram) ->
+                    System.out.println("   " + hop + ": " + histogram.summary("ms")));
+            if (topics.size() > 2) {
+                System.out.println("   End to end: " + endToEnd.summary("ms"));
+            }
+        }
+    }
+
+    // Builder pattern (ручная реализация)
+    public static class Builder {
+        private List<String> topics = List.of(
+                ConfigurationManager.getKafkaIncomingOrdersTopic(),
+                ConfigurationManager.getKafkaUserActivitiesTopic(),
+                ConfigurationManager.getKafkaSystemLogsTopic());
+        private Function<KafkaMessage, String> correlationExtractor = headerExtractor(DEFAULT_CORRELATION_HEADER);
+        private boolean retainMessages = false;
+
+        /**
+         * Топики в порядке прохождения транзакции (по умолчанию - incoming_orders, user_activities, system_logs)
+         */
+        public Builder topics(String... topics) {
+            this.topics = List.of(topics);
+            return this;
+        }
+
+        /**
+         * Id корреляции - из заголовка (по умолчанию X-Transaction-Req-Id)
+         */
+        public Builder correlationHeader(String headerName) {
+            this.correlationExtractor = headerExtractor(headerName);
+            return this;
+        }
+
+        /**
+         * Id корреляции - из JSON поля тела (путь через точку)
+         */
+        public Builder correlationField(String fieldName) {
+            this.correlationExtractor = message -> KafkaUtils.extractField(message, fieldName);
+            return this;
+        }
+
+        /**
+         * Сохранять сообщения в шагах (для проверок тела); по умолчанию хранятся только координаты записей
+         */
+        public Builder retainMessages(boolean retainMessages) {
+            this.retainMessages = retainMessages;
+            return this;
+        }
+
+        public JourneyCorrelator build() {
+            if (topics.isEmpty()) {
+                throw new IllegalStateException("At least one topic is required");
+            }
+            return new JourneyCorrelator(this);
+        }
+
+        private static Function<KafkaMessage, String> headerExtractor(String headerName) {
+            return message -> {
+                Header header = message.getHeader(headerName);
+                return header != null && header.value() != null
+                        ? new String(header.value(), StandardCharsets.UTF_8)
+                        : null;
+            };
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.utils.JsonUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON - формат по умолчанию. Кодирование - закешированным writer типа ({@link JsonUtils#toBytes}) сразу в UTF-8,
+ * без промежуточной строки. Поля и null пишутся как раньше у Gson (отличия на проводе - в {@link JsonUtils})
+ */
+final class JsonValueCodec implements ValueCodec {
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public byte[] encode(String topic, Object value) {
+        return JsonUtils.toBytes(value);
+    }
+
+    @Override
+    public String decode(String topic, byte[] data) {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean isJsonText() {
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.qa.framework.kafka;
 
+import com.qa.framework.utils.JsonUtils;
 import org.apache.kafka.common.header.Header;
 
 import java.util.List;
@@ -37,6 +38,14 @@ public class KafkaMessage {
         return body;
     }
 
+    /**
+     * Тело, прочитанное из JSON в класс или record (лишние поля тела игнорируются), null - если тела нет
+     */
+    public <T> T getBodyAs(Class<T> type) {
+        String body = getBody();
+        return body != null ? JsonUtils.fromJson(body, type) : null;
+    }
+
     public int getPartition() {
         return partition;
     }
@@ -88,6 +97,9 @@ public class KafkaMessage {
 
     @Override
     public String toString() {
+        // Через геттеры - подклассы могут декодировать поля лениво (см. LazyKafkaMessage)
+        List<Header> headers = getHeaders();
+        String body = getBody();
         return String.format("KafkaMessage{topic='%s', partition=%d, offset=%d, headers=%d, body='%s...'}",
                 topic, partition, offset,
                 headers != null ? headers.size() : 0,
@@ -96,6 +108,7 @@ public class KafkaMessage {
 
     // Вспомогательный метод для получения конкретного заголовка
     public Header getHeader(String key) {
+        List<Header> headers = getHeaders();
         if (headers == null) return null;
         return headers.stream()
                 .filter(h -> h.key().equals(key))
@@ -103,23 +116,23 @@ public class KafkaMessage {
                 .orElse(null);
     }
 
+    // Сравнение по содержимому через геттеры: ленивое и обычное сообщение с одинаковыми данными равны
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        KafkaMessage that = (KafkaMessage) o;
-        return partition == that.partition &&
-                offset == that.offset &&
-                timestamp == that.timestamp &&
-                Objects.equals(headers, that.headers) &&
-                Objects.equals(body, that.body) &&
-                Objects.equals(key, that.key) &&
-                Objects.equals(topic, that.topic);
+        if (!(o instanceof KafkaMessage that)) return false;
+        return getPartition() == that.getPartition() &&
+                getOffset() == that.getOffset() &&
+                getTimestamp() == that.getTimestamp() &&
+                Objects.equals(getHeaders(), that.getHeaders()) &&
+                Objects.equals(getBody(), that.getBody()) &&
+                Objects.equals(getKey(), that.getKey()) &&
+                Objects.equals(getTopic(), that.getTopic());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(headers, body, partition, offset, timestamp, key, topic);
+        return Objects.hash(getHeaders(), getBody(), getPartition(), getOffset(), getTimestamp(), getKey(), getTopic());
     }
 
     // Builder pattern (ручная реализация)
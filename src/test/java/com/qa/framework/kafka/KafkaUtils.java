@@ -1,18 +1,28 @@
 package com.qa.framework.kafka;
 
+import com.qa.framework.utils.JsonFieldMatcher;
+import com.qa.framework.utils.JsonUtils;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.UnsupportedVersionException;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class KafkaUtils {
 
-    private static final com.google.gson.Gson GSON = new com.google.gson.Gson();
+    private static final int TAIL_WINDOW_GROWTH = 8;
+    private static final int TAIL_MAX_WAIT_SECONDS = 10;
 
     /**
-     * Поиск сообщения по testRunId за последние N минут
+     * Поиск самого раннего сообщения с testRunId за последние N минут
      */
     public static Optional<KafkaMessage> findMessageByTestRunId(
             String bootstrapServers,
@@ -24,46 +34,56 @@ public class KafkaUtils {
         System.out.println("   За последние " + lastMinutes + " минут");
         System.out.println("   Топик: " + topicName);
 
-        // Создаем уникальный groupId для поиска
-        String groupId = "search-testrunid-" + System.currentTimeMillis();
+        // Если по топику запущен tailer и его индекс покрывает весь период - сначала смотрим в индекс
+        long sinceTimestampMs = System.currentTimeMillis() - (lastMinutes * 60 * 1000L);
+        Optional<KafkaMessage> found = TopicTailer.get(bootstrapServers, topicName)
+                .filter(tailer -> tailer.covers(sinceTimestampMs))
+                .flatMap(tailer -> tailer.findByField("testRunId", testRunId, sinceTimestampMs));
+        if (found.isPresent()) {
+            return found;
+        }
 
-        // Читаем сообщения за последние N минут
-        List<KafkaMessage> messages = ConsumerAdapter.readMessagesFromLastMinutes(
-                bootstrapServers,
-                topicName,
-                groupId,
-                lastMinutes,
-                10 // 10 секунд максимальное ожидание
-        );
+        // Повторные поиски читают из Kafka только новые offset'ы, старые совпадения берутся из индекса
+        found = SearchCheckpointCache.findFirstByField(
+                bootstrapServers, topicName, "testRunId", testRunId, lastMinutes);
 
-        if (messages.isEmpty()) {
-            System.out.println("❌ Сообщений не найдено за последние " + lastMinutes + " минут");
-            return Optional.empty();
+        if (found.isEmpty()) {
+            System.out.println("❌ Сообщение не найдено за последние " + lastMinutes + " минут");
         }
+        return found;
+    }
 
-        System.out.println("✅ Найдено " + messages.size() + " сообщений для анализа");
+    /**
+     * Значение скалярного поля JSON в виде строки (путь через точку),
+     * null - если поля нет или тело не JSON. Дерево документа не строится - см. {@link JsonFieldMatcher}
+     */
+    static String extractField(String body, String fieldName) {
+        return JsonFieldMatcher.forPath(fieldName).extract(body);
+    }
 
-        // Ищем сообщение с нужным testRunId
-        return messages.stream()
-                .filter(msg -> hasTestRunId(msg, testRunId))
-                .findFirst();
+    /**
+     * То же для сообщения; у {@link LazyKafkaMessage} JSON топика поле ищется прямо в байтах тела без декодирования
+     */
+    static String extractField(KafkaMessage message, String fieldName) {
+        if (message instanceof LazyKafkaMessage lazy && lazy.getRawBody() != null) {
+            return extractField(message.getTopic(), lazy.getRawBody(), fieldName);
+        }
+        return extractField(message.getBody(), fieldName);
     }
 
     /**
-     * Проверяет, содержит ли сообщение нужный testRunId
+     * То же для байтов тела записи: бинарное тело (avro, protobuf) сначала декодируется кодеком топика
      */
-    private static boolean hasTestRunId(KafkaMessage message, String expectedTestRunId) {
-        try {
-            Map<String, Object> bodyMap = GSON.fromJson(message.getBody(), Map.class);
-            Object actualTestRunId = bodyMap.get("testRunId");
-            return expectedTestRunId.equals(actualTestRunId);
-        } catch (Exception e) {
-            return false;
+    static String extractField(String topic, byte[] body, String fieldName) {
+        if (ValueCodecs.isJsonText(topic)) {
+            return JsonFieldMatcher.forPath(fieldName).extract(body);
         }
+        return extractField(ValueCodecs.decode(topic, body), fieldName);
     }
 
     /**
-     * Поиск всех сообщений с заданным testRunId
+     * Поиск всех сообщений с заданным testRunId.
+     * Если окно не успели дочитать за время поиска, список неполный - об этом пишется предупреждение в лог.
      */
     public static List<KafkaMessage> findAllMessagesByTestRunId(
             String bootstrapServers,
@@ -71,19 +91,7 @@ public class KafkaUtils {
             String testRunId,
             int lastMinutes) {
 
-        String groupId = "find-all-testrunid-" + System.currentTimeMillis();
-
-        List<KafkaMessage> messages = ConsumerAdapter.readMessagesFromLastMinutes(
-                bootstrapServers,
-                topicName,
-                groupId,
-                lastMinutes,
-                10
-        );
-
-        return messages.stream()
-                .filter(msg -> hasTestRunId(msg, testRunId))
-                .collect(Collectors.toList());
+        return SearchCheckpointCache.findAllByField(bootstrapServers, topicName, "testRunId", testRunId, lastMinutes);
     }
 
     /**
@@ -96,27 +104,42 @@ public class KafkaUtils {
             String fieldValue,
             int lastMinutes) {
 
-        String groupId = "search-field-" + System.currentTimeMillis();
+        return SearchCheckpointCache.findFirstByField(bootstrapServers, topicName, fieldName, fieldValue, lastMinutes);
+    }
 
-        List<KafkaMessage> messages = ConsumerAdapter.readMessagesFromLastMinutes(
+    /**
+     * Поиск самого раннего сообщения с заголовком X-Transaction-Req-Id за последние N минут
+     */
+    public static Optional<KafkaMessage> findMessageByTransactionId(
+            String bootstrapServers,
+            String topicName,
+            String transactionId,
+            int lastMinutes) {
+
+        long sinceTimestampMs = System.currentTimeMillis() - (lastMinutes * 60 * 1000L);
+        Optional<KafkaMessage> found = TopicTailer.get(bootstrapServers, topicName)
+                .filter(tailer -> tailer.covers(sinceTimestampMs))
+                .flatMap(tailer -> tailer.findByHeader(TopicTailer.TRANSACTION_ID_HEADER, transactionId, sinceTimestampMs));
+        if (found.isPresent()) {
+            return found;
+        }
+
+        // Порядок timestamp - первое совпадение то же, что вернул бы индекс tailer'а
+        try (Stream<KafkaMessage> messages = ConsumerAdapter.streamMessagesInTimeRangeByTimestamp(
                 bootstrapServers,
                 topicName,
-                groupId,
-                lastMinutes,
+                sinceTimestampMs,
+                System.currentTimeMillis(),
                 10
-        );
-
-        return messages.stream()
-                .filter(msg -> {
-                    try {
-                        Map<String, Object> bodyMap = GSON.fromJson(msg.getBody(), Map.class);
-                        Object value = bodyMap.get(fieldName);
-                        return fieldValue.equals(value != null ? value.toString() : null);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .findFirst();
+        )) {
+            return messages
+                    .filter(msg -> {
+                        var header = msg.getHeader(TopicTailer.TRANSACTION_ID_HEADER);
+                        return header != null && header.value() != null &&
+                                transactionId.equals(new String(header.value()));
+                    })
+                    .findFirst();
+        }
     }
 
     /**
@@ -128,19 +151,33 @@ public class KafkaUtils {
             Predicate<String> condition,
             int lastMinutes) {
 
-        String groupId = "search-condition-" + System.currentTimeMillis();
-
-        List<KafkaMessage> messages = ConsumerAdapter.readMessagesFromLastMinutes(
+        try (Stream<KafkaMessage> messages = ConsumerAdapter.streamMessagesFromLastMinutes(
                 bootstrapServers,
                 topicName,
-                groupId,
                 lastMinutes,
                 10
-        );
+        )) {
+            return messages
+                    .filter(msg -> condition.test(msg.getBody()))
+                    .findFirst();
+        }
+    }
 
-        return messages.stream()
-                .filter(msg -> condition.test(msg.getBody()))
-                .findFirst();
+    /**
+     * Поиск первых maxMatches сообщений по предикату (условию) с остановкой чтения после последнего совпадения
+     */
+    public static List<KafkaMessage> findMessagesByCondition(
+            String bootstrapServers,
+            String topicName,
+            Predicate<KafkaMessage> condition,
+            int maxMatches,
+            int lastMinutes) {
+
+        long endTimestampMs = System.currentTimeMillis();
+        long startTimestampMs = endTimestampMs - (lastMinutes * 60 * 1000L);
+
+        return ConsumerAdapter.findMessagesInTimeRange(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, condition, maxMatches, 10);
     }
 
     /**
@@ -167,8 +204,7 @@ public class KafkaUtils {
 
         try {
             // Пытаемся красиво отформатировать JSON
-            Object jsonObject = GSON.fromJson(message.getBody(), Object.class);
-            String prettyJson = GSON.toJson(jsonObject);
+            String prettyJson = JsonUtils.toPrettyJson(JsonUtils.readTree(message.getBody()));
             System.out.println("Тело сообщения:");
             System.out.println(prettyJson);
         } catch (Exception e) {
@@ -192,52 +228,110 @@ public class KafkaUtils {
     }
 
     /**
-     * Получение временного диапазона сообщений в топике
+     * Получение временного диапазона сообщений в топике за последние 24 часа.
+     * Считается по метаданным (listOffsets через AdminClient), а не чтением сообщений:
+     * начало окна - forTimestamp, конец - latest и maxTimestamp. Количество сообщений - разница offset'ов.
      */
     public static Map<String, Object> getTopicTimeRange(
             String bootstrapServers,
             String topicName) {
 
-        String groupId = "time-range-" + System.currentTimeMillis();
-
-        // Читаем все сообщения за последние 24 часа
-        List<KafkaMessage> messages = ConsumerAdapter.readMessagesFromLastMinutes(
-                bootstrapServers,
-                topicName,
-                groupId,
-                24 * 60, // 24 часа
-                5
-        );
-
         Map<String, Object> result = new HashMap<>();
+        long windowStartMs = System.currentTimeMillis() - Duration.ofHours(24).toMillis();
 
-        if (messages.isEmpty()) {
+        try {
+            List<TopicPartition> partitions = TopicMetadata.partitions(bootstrapServers, topicName);
+
+            Map<TopicPartition, ListOffsetsResultInfo> windowStart =
+                    TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.forTimestamp(windowStartMs));
+            Map<TopicPartition, ListOffsetsResultInfo> endOffsets =
+                    TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.latest());
+            Map<TopicPartition, ListOffsetsResultInfo> maxTimestamps;
+            try {
+                maxTimestamps = TopicMetadata.listOffsets(bootstrapServers, partitions, OffsetSpec.maxTimestamp());
+            } catch (UnsupportedVersionException e) {
+                // maxTimestamp появился в брокере 3.0 - на старом читаем хвост partition
+                System.out.println("⚠️ Broker does not support maxTimestamp, reading partition tails instead");
+                maxTimestamps = Map.of();
+            }
+
+            long messageCount = 0;
+            long earliest = Long.MAX_VALUE;
+            long latest = Long.MIN_VALUE;
+
+            for (TopicPartition partition : partitions) {
+                ListOffsetsResultInfo start = windowStart.get(partition);
+                if (start == null || start.offset() < 0) {
+                    continue; // В partition нет сообщений за последние 24 часа
+                }
+                long endOffset = endOffsets.get(partition).offset();
+                messageCount += endOffset - start.offset();
+
+                long first = boundaryTimestamp(bootstrapServers, partition, start.offset(), start.timestamp());
+                if (first >= 0) {
+                    earliest = Math.min(earliest, first);
+                }
+
+                ListOffsetsResultInfo max = maxTimestamps.get(partition);
+                latest = Math.max(latest, max != null && max.offset() >= 0
+                        ? boundaryTimestamp(bootstrapServers, partition, max.offset(), max.timestamp())
+                        : tailTimestamp(bootstrapServers, partition, start.offset(), endOffset));
+            }
+
+            if (messageCount <= 0 || earliest == Long.MAX_VALUE || latest < 0) {
+                result.put("hasMessages", false);
+                return result;
+            }
+
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+                    .withZone(TimeZone.getDefault().toZoneId());
+
+            result.put("hasMessages", true);
+            result.put("messageCount", messageCount);
+            result.put("earliestTimestamp", earliest);
+            result.put("latestTimestamp", latest);
+            result.put("earliestTime", formatter.format(Instant.ofEpochMilli(earliest)));
+            result.put("latestTime", formatter.format(Instant.ofEpochMilli(latest)));
+            result.put("timeRangeMinutes", (latest - earliest) / (60 * 1000));
+
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error getting topic time range: " + e.getMessage());
             result.put("hasMessages", false);
-            return result;
+            result.put("error", e.getMessage());
         }
+        return result;
+    }
 
-        long earliest = messages.stream()
-                .mapToLong(KafkaMessage::getTimestamp)
-                .min()
-                .orElse(0);
-
-        long latest = messages.stream()
-                .mapToLong(KafkaMessage::getTimestamp)
-                .max()
-                .orElse(0);
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
-                .withZone(TimeZone.getDefault().toZoneId());
-
-        result.put("hasMessages", true);
-        result.put("messageCount", messages.size());
-        result.put("earliestTimestamp", earliest);
-        result.put("latestTimestamp", latest);
-        result.put("earliestTime", formatter.format(Instant.ofEpochMilli(earliest)));
-        result.put("latestTime", formatter.format(Instant.ofEpochMilli(latest)));
-        result.put("timeRangeMinutes", (latest - earliest) / (60 * 1000));
+    /**
+     * Timestamp сообщения на границе: из ответа listOffsets, а если брокер его не вернул - чтением одной записи
+     */
+    private static long boundaryTimestamp(String bootstrapServers, TopicPartition partition, long offset, long timestamp) {
+        if (timestamp >= 0) {
+            return timestamp;
+        }
+        return ConsumerAdapter.readMessageAt(bootstrapServers, partition.topic(), partition.partition(), offset)
+                .map(KafkaMessage::getTimestamp)
+                .orElse(-1L);
+    }
 
-        return result;
+    /**
+     * Наибольший timestamp в хвосте partition. Последние offset'ы могут быть маркерами транзакций
+     * без записей, поэтому окно хвоста расширяется назад (1, 8, 64... offset'ов), пока в нем не найдется запись
+     */
+    private static long tailTimestamp(String bootstrapServers, TopicPartition partition, long startOffset, long endOffset) {
+        for (long window = 1; ; window *= TAIL_WINDOW_GROWTH) {
+            long from = Math.max(startOffset, endOffset - window);
+            PartitionScanEngine.OffsetRange tail = new PartitionScanEngine.OffsetRange(partition, from, endOffset);
+            long timestamp = PartitionScanEngine.shared().runRanges(bootstrapServers, partition.topic(), List.of(tail),
+                            0, 0, message -> true, Integer.MAX_VALUE, TAIL_MAX_WAIT_SECONDS, new AtomicBoolean())
+                    .stream()
+                    .mapToLong(KafkaMessage::getTimestamp)
+                    .max()
+                    .orElse(-1);
+            if (timestamp >= 0 || from == startOffset) {
+                return timestamp;
+            }
+        }
     }
 
     private void waitForMessages(int seconds) {
@@ -0,0 +1,92 @@
+package com.qa.framework.kafka;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасная гистограмма задержек с логарифмическими корзинами.
+ * <p>
+ * Значения до 128 хранятся точно, дальше каждая степень двойки делится на 128 корзин,
+ * поэтому относительная погрешность перцентилей не больше ~0.8% при фиксированной памяти (64 КБ).
+ * Единица измерения - на усмотрение вызывающего (обычно микросекунды).
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Добавляет значение; отрицательные значения считаются нулем
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        totalCount.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long count() {
+        return totalCount.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) sum.get() / count;
+    }
+
+    /**
+     * Значение перцентиля (0..100): нижняя граница корзины, в которую попадает перцентиль
+     */
+    public long percentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(valueAt(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Строка вида "count=..., p50=..., p95=..., p99=..., max=..."
+     */
+    public String summary(String unit) {
+        return String.format("count=%d, p50=%d%s, p95=%d%s, p99=%d%s, max=%d%s",
+                count(), percentile(50), unit, percentile(95), unit, percentile(99), unit, max(), unit);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long valueAt(int index) {
+        int bucket = index >>> SUB_BUCKET_BITS;
+        long subBucket = index & (SUB_BUCKETS - 1);
+        if (bucket == 0) {
+            return subBucket;
+        }
+        return (SUB_BUCKETS + subBucket) << (bucket - 1);
+    }
+}
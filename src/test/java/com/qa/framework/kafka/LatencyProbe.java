@@ -0,0 +1,273 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Замер задержки "отправка -> появление в выходном топике" через корреляционный заголовок.
+ * <p>
+ * {@link #send} ставит в сообщение X-Transaction-Req-Id и время отправки в микросекундах
+ * ({@link #SEND_TIMESTAMP_HEADER}) и запоминает его. Фоновый консюмер выходного топика (из {@link ConsumerPool})
+ * ищет в каждой записи X-Transaction-Req-Id: если такой id ожидается, разница между временем чтения и временем
+ * отправки попадает в гистограмму. Тестируемая система должна переносить X-Transaction-Req-Id в выходное сообщение.
+ * <p>
+ * Время отправки берется из заголовка {@link #SEND_TIMESTAMP_HEADER} выходной записи, если система его переносит,
+ * иначе - запомненное при отправке. Через заголовок можно мерить и сообщения, отправленные другим процессом
+ * ({@link #expect(String)}); тогда на результат влияет расхождение часов хостов отправителя и пробы.
+ * <p>
+ * Неотправленные сообщения (ошибка producer'а) считаются отдельно: {@link #awaitAll} для них возвращает false.
+ *
+ * <pre>
+ * try (LatencyProbe probe = LatencyProbe.start(bootstrapServers, "processed_orders")) {
+ *     for (int i = 0; i < 100; i++) {
+ *         probe.send("incoming_orders", KafkaUtils.createTestMessage(...));
+ *     }
+ *     probe.awaitAll(Duration.ofSeconds(30));
+ *     assertTrue(probe.histogram().percentile(99) < 500_000);
+ * }
+ * </pre>
+ */
+public final class LatencyProbe implements AutoCloseable {
+
+    public static final String SEND_TIMESTAMP_HEADER = "X-Send-Timestamp-Us";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+    // Время отправки неизвестно - берется из заголовка выходной записи
+    private static final long FROM_HEADER = -1;
+
+    private final String bootstrapServers;
+    private final String outputTopic;
+    private final ConsumerPool.Lease<byte[], byte[]> lease;
+    private final Thread thread;
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong withoutTimestamp = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    private LatencyProbe(String bootstrapServers, String outputTopic) {
+        this.bootstrapServers = bootstrapServers;
+        this.outputTopic = outputTopic;
+        this.lease = ConsumerPool.borrowRaw(bootstrapServers, outputTopic);
+        try {
+            // Конкретные offset'ы вместо ленивого seekToEnd: записи, отправленные сразу после start(), не теряются
+            lease.consumer().endOffsets(lease.assignment()).forEach(lease.consumer()::seek);
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            lease.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "kafka-latency-probe-" + outputTopic);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Запускает консюмер выходного топика; читаются только записи, появившиеся после старта
+     */
+    public static LatencyProbe start(String bootstrapServers, String outputTopic) {
+        LatencyProbe probe = new LatencyProbe(bootstrapServers, outputTopic);
+        probe.thread.start();
+        System.out.println("⏱️ Latency probe started on output topic " + outputTopic);
+        return probe;
+    }
+
+    /**
+     * Отправляет сообщение с X-Transaction-Req-Id и временем отправки
+     *
+     * @return X-Transaction-Req-Id отправленного сообщения
+     */
+    public String send(String inputTopic, Object message) {
+        String transactionId = UUID.randomUUID().toString();
+        long sendTimestampMicros = currentTimeMicros();
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(TopicTailer.TRANSACTION_ID_HEADER, transactionId);
+        headers.put("X-Initiator-Service", "test-service");
+        headers.put(SEND_TIMESTAMP_HEADER, Long.toString(sendTimestampMicros));
+
+        // Регистрируем до отправки, чтобы быстрый ответ не прошел мимо
+        expect(transactionId, sendTimestampMicros);
+        CompletableFuture<RecordMetadata> future = ProducerAdapter.sendAsync(
+                bootstrapServers, inputTopic, null, message, headers);
+        future.whenComplete((metadata, error) -> {
+            if (error != null) {
+                failed.incrementAndGet();
+                resolve(transactionId);
+                System.err.println("❌ Probe message " + transactionId + " was not sent: " + error.getMessage());
+            }
+        });
+        return transactionId;
+    }
+
+    /**
+     * Ожидание сообщения, отправленного в обход {@link #send} (время отправки - в микросекундах от эпохи)
+     */
+    public void expect(String transactionId, long sendTimestampMicros) {
+        pending.put(transactionId, sendTimestampMicros);
+        sent.incrementAndGet();
+    }
+
+    /**
+     * Ожидание сообщения, отправленного другим процессом: время отправки берется
+     * из заголовка {@link #SEND_TIMESTAMP_HEADER} выходной записи
+     */
+    public void expect(String transactionId) {
+        expect(transactionId, FROM_HEADER);
+    }
+
+    /**
+     * Ждет, пока все отправленные сообщения появятся в выходном топике
+     *
+     * @return true - все дошли, false - истек timeout (остаток см. {@link #pendingCount()})
+     * или часть сообщений не удалось отправить (см. {@link #failedCount()})
+     */
+    public boolean awaitAll(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (pending) {
+            while (!pending.isEmpty() && running) {
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMs <= 0) {
+                    break;
+                }
+                try {
+                    pending.wait(remainingMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return pending.isEmpty() && failed.get() == 0;
+        }
+    }
+
+    /**
+     * Задержки в микросекундах
+     */
+    public LatencyHistogram histogram() {
+        return histogram;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Сообщения, которые producer не смог отправить
+     */
+    public long failedCount() {
+        return failed.get();
+    }
+
+    public void printReport() {
+        System.out.println("📊 Latency probe for " + outputTopic);
+        System.out.println("   Sent: " + sent.get() + ", received: " + histogram.count() + ", pending: " + pending.size() +
+                ", failed to send: " + failed.get());
+        if (withoutTimestamp.get() > 0) {
+            System.out.println("   ⚠️ Received without send timestamp: " + withoutTimestamp.get());
+        }
+        System.out.println("   Latency: " + histogram.summary("µs"));
+        if (failed.get() > 0) {
+            System.err.println("❌ " + failed.get() + " probe messages were not sent");
+        }
+    }
+
+    /**
+     * Снимает ожидание и будит awaitAll(), когда ожидать больше нечего
+     */
+    private Long resolve(String transactionId) {
+        Long sendTimestampMicros = pending.remove(transactionId);
+        if (sendTimestampMicros != null && pending.isEmpty()) {
+            synchronized (pending) {
+                pending.notifyAll();
+            }
+        }
+        return sendTimestampMicros;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                for (ConsumerRecord<byte[], byte[]> record : lease.consumer().poll(POLL_TIMEOUT)) {
+                    long receivedMicros = currentTimeMicros();
+                    Header header = record.headers().lastHeader(TopicTailer.TRANSACTION_ID_HEADER);
+                    if (header == null || header.value() == null) {
+                        continue;
+                    }
+                    Long expectedTimestampMicros = resolve(new String(header.value(), StandardCharsets.UTF_8));
+                    if (expectedTimestampMicros == null) {
+                        continue;
+                    }
+                    long sendTimestampMicros = sendTimestampMicros(record, expectedTimestampMicros);
+                    if (sendTimestampMicros == FROM_HEADER) {
+                        withoutTimestamp.incrementAndGet();
+                    } else {
+                        histogram.record(receivedMicros - sendTimestampMicros);
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // Остановка через close()
+        } catch (Exception e) {
+            System.err.println("❌ Latency probe on topic " + outputTopic + " failed: " + e.getMessage());
+        } finally {
+            running = false;
+            synchronized (pending) {
+                pending.notifyAll();
+            }
+            // После wakeup() консюмер нельзя отдавать в пул - следующий poll() выбросит исключение
+            lease.invalidate();
+            lease.close();
+        }
+    }
+
+    /**
+     * Останавливает консюмер и печатает итог
+     */
+    @Override
+    public void close() {
+        running = false;
+        lease.consumer().wakeup();
+        try {
+            thread.join(Duration.ofSeconds(5).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        printReport();
+    }
+
+    /**
+     * Время отправки из заголовка записи, если он есть, иначе - запомненное при отправке
+     */
+    private static long sendTimestampMicros(ConsumerRecord<byte[], byte[]> record, long expectedTimestampMicros) {
+        Header header = record.headers().lastHeader(SEND_TIMESTAMP_HEADER);
+        if (header != null && header.value() != null) {
+            try {
+                return Long.parseLong(new String(header.value(), StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                System.err.println("⚠️ Invalid " + SEND_TIMESTAMP_HEADER + " header in " + record.topic() +
+                        "[" + record.partition() + "]@" + record.offset());
+            }
+        }
+        return expectedTimestampMicros;
+    }
+
+    private static long currentTimeMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+}
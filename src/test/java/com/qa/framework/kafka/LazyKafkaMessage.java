@@ -0,0 +1,177 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.utils.JsonUtils;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * KafkaMessage поверх "сырой" записи (ByteArrayDeserializer).
+ * <p>
+ * Тело (кодеком топика, см. {@link ValueCodecs}) и ключ (UTF-8) декодируются только при первом обращении, список заголовков
+ * строится тоже только при первом обращении. {@link #getHeader(String)} ищет заголовок
+ * прямо в заголовках записи, поэтому фильтр по заголовку (например, X-Transaction-Req-Id)
+ * не декодирует тело вообще. {@link #getBodyAs(Class)} для JSON топика читает объект прямо из байтов.
+ * <p>
+ * Снаружи сообщение ничем не отличается от обычного KafkaMessage. Ленивое декодирование и замена
+ * полей выполняются под монитором объекта, поэтому одно сообщение можно читать из нескольких потоков
+ * (например, буфер недавних сообщений и условия ожидания в {@link MessageAwaiter}).
+ */
+public class LazyKafkaMessage extends KafkaMessage {
+
+    private byte[] rawBody;
+    private byte[] rawKey;
+    private Headers rawHeaders;
+
+    private boolean bodyDecoded;
+    private boolean keyDecoded;
+    private boolean headersDecoded;
+
+    public LazyKafkaMessage(ConsumerRecord<byte[], byte[]> record) {
+        setPartition(record.partition());
+        setOffset(record.offset());
+        setTimestamp(record.timestamp());
+        setTopic(record.topic());
+        this.rawBody = record.value();
+        this.rawKey = record.key();
+        this.rawHeaders = record.headers();
+    }
+
+    /**
+     * Сообщение из сохраненных байтов записи (архив трафика)
+     */
+    LazyKafkaMessage(String topic, int partition, long offset, long timestamp, byte[] key, byte[] value, Headers headers) {
+        setPartition(partition);
+        setOffset(offset);
+        setTimestamp(timestamp);
+        setTopic(topic);
+        this.rawBody = value;
+        this.rawKey = key;
+        this.rawHeaders = headers;
+    }
+
+    /**
+     * Тело в исходных байтах без декодирования, null - если тело уже заменено через setBody
+     */
+    public synchronized byte[] getRawBody() {
+        return bodyDecoded ? null : rawBody;
+    }
+
+    /**
+     * Ключ в исходных байтах без декодирования, null - если ключа нет или он уже заменен через setKey
+     */
+    public synchronized byte[] getRawKey() {
+        return keyDecoded ? null : rawKey;
+    }
+
+    /**
+     * Ключ сообщения в байтах: исходные байты для LazyKafkaMessage, иначе ключ в UTF-8
+     */
+    static byte[] keyBytes(KafkaMessage message) {
+        if (message instanceof LazyKafkaMessage lazy) {
+            byte[] raw = lazy.getRawKey();
+            if (raw != null) {
+                return raw;
+            }
+        }
+        String key = message.getKey();
+        return key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Тело сообщения в байтах: исходные байты для LazyKafkaMessage, иначе тело в UTF-8
+     */
+    static byte[] bodyBytes(KafkaMessage message) {
+        if (message instanceof LazyKafkaMessage lazy) {
+            byte[] raw = lazy.getRawBody();
+            if (raw != null) {
+                return raw;
+            }
+        }
+        String body = message.getBody();
+        return body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public synchronized String getBody() {
+        if (!bodyDecoded) {
+            // Флаг выставляется после тела, а байты освобождаются последними
+            super.setBody(ValueCodecs.decode(getTopic(), rawBody));
+            bodyDecoded = true;
+            rawBody = null;
+        }
+        return super.getBody();
+    }
+
+    @Override
+    public <T> T getBodyAs(Class<T> type) {
+        // JSON тело читается прямо из байтов записи, строка тела не создается.
+        // Массив байтов не меняется, поэтому разбор идет уже без монитора
+        byte[] json = getRawBody();
+        if (json != null && ValueCodecs.isJsonText(getTopic())) {
+            return JsonUtils.fromJson(json, type);
+        }
+        return super.getBodyAs(type);
+    }
+
+    @Override
+    public synchronized void setBody(String body) {
+        super.setBody(body);
+        bodyDecoded = true;
+        rawBody = null;
+    }
+
+    @Override
+    public synchronized String getKey() {
+        if (!keyDecoded) {
+            super.setKey(decode(rawKey));
+            keyDecoded = true;
+            rawKey = null;
+        }
+        return super.getKey();
+    }
+
+    @Override
+    public synchronized void setKey(String key) {
+        super.setKey(key);
+        keyDecoded = true;
+        rawKey = null;
+    }
+
+    @Override
+    public synchronized List<Header> getHeaders() {
+        if (!headersDecoded) {
+            List<Header> headers = new ArrayList<>();
+            rawHeaders.forEach(headers::add);
+            super.setHeaders(headers);
+            headersDecoded = true;
+            rawHeaders = null;
+        }
+        return super.getHeaders();
+    }
+
+    @Override
+    public synchronized void setHeaders(List<Header> headers) {
+        super.setHeaders(headers);
+        headersDecoded = true;
+        rawHeaders = null;
+    }
+
+    @Override
+    public synchronized Header getHeader(String key) {
+        if (headersDecoded) {
+            return super.getHeader(key);
+        }
+        Iterator<Header> headers = rawHeaders.headers(key).iterator();
+        return headers.hasNext() ? headers.next() : null;
+    }
+
+    private static String decode(byte[] bytes) {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,158 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.utils.JsonUtils;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ленивое декодирование LazyKafkaMessage, в том числе при обращении из нескольких потоков
+ */
+class LazyKafkaMessageTest {
+
+    private static final String TOPIC = "lazy-orders";
+    // Длинное поле растягивает декодирование - окно гонки между потоками становится шире
+    private static final String BODY = "{\"orderId\":\"ORD-1\",\"testRunId\":\"TEST-1\",\"amount\":10.5,\"note\":\"" +
+            "x".repeat(64 * 1024) + "\"}";
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 500;
+
+    record Order(String orderId, String testRunId, double amount) {
+    }
+
+    @Test
+    @DisplayName("📨 Тело, ключ и заголовки декодируются при первом обращении")
+    void testLazyDecoding() {
+        LazyKafkaMessage message = newMessage();
+
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), message.getRawBody());
+        assertEquals("TX-1", new String(message.getHeader(TopicTailer.TRANSACTION_ID_HEADER).value(),
+                StandardCharsets.UTF_8));
+        // Поиск заголовка не декодирует тело
+        assertNotNull(message.getRawBody());
+
+        assertEquals(new Order("ORD-1", "TEST-1", 10.5), message.getBodyAs(Order.class));
+        assertNotNull(message.getRawBody());
+
+        assertEquals(BODY, message.getBody());
+        assertNull(message.getRawBody());
+        assertEquals("KEY-1", message.getKey());
+        assertNull(message.getRawKey());
+        assertEquals(1, message.getHeaders().size());
+        assertEquals(new Order("ORD-1", "TEST-1", 10.5), message.getBodyAs(Order.class));
+    }
+
+    @Test
+    @DisplayName("📨 setBody/setKey заменяют исходные байты")
+    void testSettersReplaceRawBytes() {
+        LazyKafkaMessage message = newMessage();
+        message.setBody("{\"orderId\":\"ORD-2\"}");
+        message.setKey("KEY-2");
+
+        assertNull(message.getRawBody());
+        assertNull(message.getRawKey());
+        assertEquals("{\"orderId\":\"ORD-2\"}", message.getBody());
+        assertArrayEquals("KEY-2".getBytes(StandardCharsets.UTF_8), LazyKafkaMessage.keyBytes(message));
+        assertArrayEquals("{\"orderId\":\"ORD-2\"}".getBytes(StandardCharsets.UTF_8),
+                LazyKafkaMessage.bodyBytes(message));
+    }
+
+    @Test
+    @DisplayName("📨 getBodyAs возвращает объект, записанный через JsonUtils, из строки и из байтов")
+    void testGetBodyAsRoundTrip() {
+        Order order = new Order("ORD-3", "TEST-3", 99.9);
+        byte[] json = JsonUtils.toBytes(order);
+
+        KafkaMessage plain = new KafkaMessage(new ArrayList<>(), new String(json, StandardCharsets.UTF_8),
+                0, 1, 1_000, "KEY-3", TOPIC);
+        assertEquals(order, plain.getBodyAs(Order.class));
+
+        LazyKafkaMessage lazy = new LazyKafkaMessage(TOPIC, 0, 1, 1_000, null, json, new RecordHeaders());
+        assertEquals(order, lazy.getBodyAs(Order.class));
+        // Прочитано из байтов - тело в строку не декодировалось
+        assertNotNull(lazy.getRawBody());
+
+        assertNull(new LazyKafkaMessage(TOPIC, 0, 2, 1_000, null, null, new RecordHeaders()).getBodyAs(Order.class));
+    }
+
+    @Test
+    @DisplayName("📨 Одно сообщение читается из нескольких потоков одновременно")
+    void testConcurrentAccess() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LazyKafkaMessage message = newMessage();
+                CyclicBarrier start = new CyclicBarrier(THREADS);
+                List<Future<Map<String, Object>>> results = new ArrayList<>();
+
+                for (int thread = 0; thread < THREADS; thread++) {
+                    int reader = thread;
+                    results.add(executor.submit(() -> {
+                        start.await(5, TimeUnit.SECONDS);
+                        // Потоки заходят в разные методы, чтобы декодирование шло наперегонки с чтением байтов
+                        Order order = message.getBodyAs(Order.class);
+                        byte[] bodyBytes = LazyKafkaMessage.bodyBytes(message);
+                        Header header = reader % 2 == 0
+                                ? message.getHeader(TopicTailer.TRANSACTION_ID_HEADER)
+                                : message.getHeaders().get(0);
+                        return Map.of(
+                                "body", message.getBody(),
+                                "key", message.getKey(),
+                                "order", order,
+                                "bodyBytes", new String(bodyBytes, StandardCharsets.UTF_8),
+                                "header", new String(header.value(), StandardCharsets.UTF_8));
+                    }));
+                }
+
+                for (Future<Map<String, Object>> result : results) {
+                    Map<String, Object> values = result.get(10, TimeUnit.SECONDS);
+                    assertEquals(BODY, values.get("body"));
+                    assertEquals("KEY-1", values.get("key"));
+                    assertEquals(new Order("ORD-1", "TEST-1", 10.5), values.get("order"));
+                    assertEquals(BODY, values.get("bodyBytes"));
+                    assertEquals("TX-1", values.get("header"));
+                }
+                assertNull(message.getRawBody());
+                assertEquals(1, message.getHeaders().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("📨 Ленивое и обычное сообщение с одинаковым содержимым равны в обе стороны")
+    void testEqualsPlainMessage() {
+        List<Header> headers = new ArrayList<>();
+        headers.add(new RecordHeader(TopicTailer.TRANSACTION_ID_HEADER, "TX-1".getBytes(StandardCharsets.UTF_8)));
+        KafkaMessage plain = new KafkaMessage(headers, BODY, 0, 42, 1_000, "KEY-1", TOPIC);
+
+        // Сравнение до обращения к полям - сам equals декодирует ленивое сообщение
+        LazyKafkaMessage lazy = newMessage();
+        assertEquals(plain, lazy);
+        assertEquals(newMessage(), plain);
+        assertEquals(plain.hashCode(), newMessage().hashCode());
+        assertEquals(newMessage(), newMessage());
+
+        KafkaMessage otherOffset = new KafkaMessage(headers, BODY, 0, 43, 1_000, "KEY-1", TOPIC);
+        assertNotEquals(otherOffset, lazy);
+        assertNotEquals(lazy, otherOffset);
+    }
+
+    private static LazyKafkaMessage newMessage() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(new RecordHeader(TopicTailer.TRANSACTION_ID_HEADER, "TX-1".getBytes(StandardCharsets.UTF_8)));
+        return new LazyKafkaMessage(TOPIC, 0, 42, 1_000,
+                "KEY-1".getBytes(StandardCharsets.UTF_8), BODY.getBytes(StandardCharsets.UTF_8), headers);
+    }
+}
@@ -0,0 +1,218 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Генератор нагрузки на топик с заданной интенсивностью.
+ * <p>
+ * Открытая модель: моменты отправки планируются заранее (равномерно или по Пуассону) и не зависят
+ * от того, как быстро брокер подтверждает записи. Задержка подтверждения считается от запланированного
+ * момента отправки, поэтому отставание генератора тоже попадает в перцентили.
+ * Отправка - через общий продюсер {@link ProducerAdapter#sendAsync}. Число неподтвержденных записей
+ * ограничено kafka.load.max.in.flight.
+ *
+ * <pre>
+ * LoadReport report = LoadGenerator.builder()
+ *         .bootstrapServers(bootstrapServers)
+ *         .topic("incoming_orders")
+ *         .ratePerSecond(500)
+ *         .duration(Duration.ofSeconds(30))
+ *         .build()
+ *         .run();
+ * </pre>
+ */
+public class LoadGenerator {
+
+    /**
+     * Распределение моментов отправки
+     */
+    public enum ArrivalModel {
+        /** Фиксированный интервал 1 / rate */
+        CONSTANT,
+        /** Пуассоновский поток: экспоненциальные интервалы со средним 1 / rate */
+        POISSON
+    }
+
+    private final String bootstrapServers;
+    private final String topic;
+    private final double ratePerSecond;
+    private final Duration duration;
+    private final ArrivalModel arrivalModel;
+    private final LongFunction<Object> payload;
+    private final LongFunction<String> key;
+    private final Map<String, String> headers;
+    private final int maxInFlight;
+
+    private LoadGenerator(Builder builder) {
+        this.bootstrapServers = builder.bootstrapServers;
+        this.topic = builder.topic;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.duration = builder.duration;
+        this.arrivalModel = builder.arrivalModel;
+        this.payload = builder.payload;
+        this.key = builder.key;
+        this.headers = builder.headers;
+        this.maxInFlight = builder.maxInFlight;
+    }
+
+    /**
+     * Генерирует нагрузку в текущем потоке и ждет подтверждения всех отправленных записей
+     */
+    public LoadReport run() {
+        System.out.println("\n🚀 Load: " + ratePerSecond + " msg/s (" + arrivalModel + ") to " + topic +
+                " for " + duration.toSeconds() + "s");
+
+        LatencyHistogram ackLatencyMicros = new LatencyHistogram();
+        InFlightSender sender = new InFlightSender(maxInFlight);
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + duration.toNanos();
+        long scheduledNanos = startNanos;
+
+        try {
+            while (scheduledNanos < endNanos) {
+                InFlightSender.parkUntil(scheduledNanos);
+
+                long sequence = sender.sent();
+                long intendedNanos = scheduledNanos;
+                sender.send(() -> ProducerAdapter.sendAsync(bootstrapServers, topic,
+                                key != null ? key.apply(sequence) : null, payload.apply(sequence), headers),
+                        () -> ackLatencyMicros.record((System.nanoTime() - intendedNanos) / 1000));
+
+                scheduledNanos += nextIntervalNanos(intervalNanos);
+            }
+
+            // Ждем подтверждения всех отправленных записей
+            if (!sender.awaitAcks()) {
+                System.err.println("❌ Not all records were acknowledged in " + InFlightSender.ACK_WAIT_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Load generation was interrupted after " + sender.sent() + " records");
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+        LoadReport report = new LoadReport(topic, ratePerSecond, sender.sent(), sender.acked(), sender.failed(),
+                elapsed, ackLatencyMicros);
+        report.print();
+        return report;
+    }
+
+    private long nextIntervalNanos(long intervalNanos) {
+        if (arrivalModel == ArrivalModel.CONSTANT) {
+            return intervalNanos;
+        }
+        return (long) (-Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) * intervalNanos);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Итог прогона: throughput считается по подтвержденным записям за все время, включая ожидание ack
+     */
+    public record LoadReport(String topic,
+                             double targetRatePerSecond,
+                             long sent,
+                             long acked,
+                             long failed,
+                             Duration elapsed,
+                             LatencyHistogram ackLatencyMicros) {
+
+        public double achievedRatePerSecond() {
+            double seconds = elapsed.toNanos() / 1e9;
+            return seconds > 0 ? acked / seconds : 0;
+        }
+
+        public void print() {
+            System.out.println("📊 Load report for " + topic);
+            System.out.println("   Sent: " + sent + ", acked: " + acked + ", failed: " + failed);
+            System.out.printf("   Target: %.1f msg/s, achieved: %.1f msg/s, elapsed: %d ms%n",
+                    targetRatePerSecond, achievedRatePerSecond(), elapsed.toMillis());
+            System.out.println("   Ack latency: " + ackLatencyMicros.summary("µs"));
+        }
+    }
+
+    // Builder pattern (ручная реализация)
+    public static class Builder {
+        private String bootstrapServers = ConfigurationManager.getKafkaBootstrapServers();
+        private String topic;
+        private double ratePerSecond = 100;
+        private Duration duration = Duration.ofSeconds(10);
+        private ArrivalModel arrivalModel = ArrivalModel.CONSTANT;
+        private LongFunction<Object> payload = sequence -> KafkaUtils.createTestMessage(
+                "LOAD-" + sequence, "CUST-" + (sequence % 100), 10.0 + sequence % 1000, "CREATED");
+        private LongFunction<String> key;
+        private Map<String, String> headers;
+        private int maxInFlight = ConfigurationManager.getKafkaLoadMaxInFlight();
+
+        public Builder bootstrapServers(String bootstrapServers) {
+            this.bootstrapServers = bootstrapServers;
+            return this;
+        }
+
+        public Builder topic(String topic) {
+            this.topic = topic;
+            return this;
+        }
+
+        public Builder ratePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder arrivalModel(ArrivalModel arrivalModel) {
+            this.arrivalModel = arrivalModel;
+            return this;
+        }
+
+        /**
+         * Шаблон сообщения по порядковому номеру (по умолчанию - KafkaUtils.createTestMessage)
+         */
+        public Builder payload(LongFunction<Object> payload) {
+            this.payload = payload;
+            return this;
+        }
+
+        /**
+         * Ключ записи по порядковому номеру (по умолчанию ключа нет)
+         */
+        public Builder key(LongFunction<String> key) {
+            this.key = key;
+            return this;
+        }
+
+        public Builder headers(Map<String, String> headers) {
+            this.headers = headers;
+            return this;
+        }
+
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public LoadGenerator build() {
+            if (topic == null || topic.isBlank()) {
+                throw new IllegalArgumentException("topic is required");
+            }
+            if (ratePerSecond <= 0 || duration.isNegative() || duration.isZero() || maxInFlight < 1) {
+                throw new IllegalArgumentException("ratePerSecond, duration and maxInFlight must be positive");
+            }
+            return new LoadGenerator(this);
+        }
+    }
+}
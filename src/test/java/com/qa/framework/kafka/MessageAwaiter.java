@@ -0,0 +1,202 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Асинхронное ожидание сообщений в топике.
+ * <p>
+ * На каждый топик запускается один общий консюмер (из {@link ConsumerPool}) в фоновом потоке.
+ * Тесты регистрируют ожидания - предикат + CompletableFuture, - и консюмер завершает future,
+ * как только прочитано подходящее сообщение. Поток теста при этом не опрашивает Kafka и не спит.
+ * <p>
+ * Чтобы не терять сообщения, отправленные до регистрации ожидания, консюмер хранит последние
+ * kafka.await.recent.buffer.size сообщений, а при старте читает топик с отступом
+ * kafka.await.lookback.seconds назад. Новое ожидание сначала проверяется по этому буферу.
+ */
+public final class MessageAwaiter {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+    private static final Map<DispatcherKey, TopicDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(MessageAwaiter::stopAll, "kafka-awaiter-shutdown"));
+    }
+
+    private MessageAwaiter() {
+    }
+
+    /**
+     * Ожидание первого сообщения топика, удовлетворяющего условию.
+     * Future завершается сообщением или TimeoutException по истечении timeout.
+     */
+    public static CompletableFuture<KafkaMessage> awaitMessage(String bootstrapServers,
+                                                               String topicName,
+                                                               Predicate<KafkaMessage> condition,
+                                                               Duration timeout) {
+        TopicDispatcher dispatcher = DISPATCHERS.computeIfAbsent(
+                new DispatcherKey(bootstrapServers, topicName), TopicDispatcher::start);
+        return dispatcher.register(condition, timeout);
+    }
+
+    /**
+     * Останавливает все общие консюмеры, незавершенные ожидания завершаются с ошибкой
+     */
+    public static void stopAll() {
+        new ArrayList<>(DISPATCHERS.values()).forEach(TopicDispatcher::stop);
+    }
+
+    private static final class TopicDispatcher {
+        private final DispatcherKey key;
+        private final ConsumerPool.Lease<byte[], byte[]> lease;
+        private final Thread thread;
+        private final int recentBufferSize;
+
+        private final Deque<KafkaMessage> recent = new ArrayDeque<>();
+        private final List<Expectation> expectations = new ArrayList<>();
+
+        private volatile boolean running = true;
+
+        private TopicDispatcher(DispatcherKey key) {
+            this.key = key;
+            this.recentBufferSize = ConfigurationManager.getKafkaAwaitRecentBufferSize();
+            this.lease = ConsumerPool.borrowRaw(key.bootstrapServers(), key.topicName());
+            try {
+                long lookbackFromMs = System.currentTimeMillis() -
+                        ConfigurationManager.getKafkaAwaitLookbackSeconds() * 1000L;
+                ConsumerAdapter.seekToTimestamp(lease.consumer(), lease.assignment(), lookbackFromMs);
+            } catch (RuntimeException e) {
+                lease.invalidate();
+                lease.close();
+                throw e;
+            }
+            this.thread = new Thread(this::run, "kafka-awaiter-" + key.topicName());
+            this.thread.setDaemon(true);
+        }
+
+        static TopicDispatcher start(DispatcherKey key) {
+            TopicDispatcher dispatcher = new TopicDispatcher(key);
+            dispatcher.thread.start();
+            System.out.println("👂 Shared awaiting consumer started for topic " + key.topicName());
+            return dispatcher;
+        }
+
+        synchronized CompletableFuture<KafkaMessage> register(Predicate<KafkaMessage> condition, Duration timeout) {
+            CompletableFuture<KafkaMessage> future = new CompletableFuture<>();
+            if (!running) {
+                future.completeExceptionally(new IllegalStateException(
+                        "Awaiting consumer for topic " + key.topicName() + " is stopped"));
+                return future;
+            }
+
+            for (KafkaMessage message : recent) {
+                if (condition.test(message)) {
+                    future.complete(message);
+                    return future;
+                }
+            }
+
+            Expectation expectation = new Expectation(condition, future);
+            expectations.add(expectation);
+            future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((message, error) -> remove(expectation));
+            return future;
+        }
+
+        private synchronized void remove(Expectation expectation) {
+            expectations.remove(expectation);
+        }
+
+        /**
+         * Future завершаются вне блокировки, чтобы колбэки тестов не задерживали чтение топика
+         */
+        private void dispatch(KafkaMessage message) {
+            Map<Expectation, RuntimeException> completed = new LinkedHashMap<>();
+            synchronized (this) {
+                recent.addLast(message);
+                if (recent.size() > recentBufferSize) {
+                    recent.pollFirst();
+                }
+
+                Iterator<Expectation> iterator = expectations.iterator();
+                while (iterator.hasNext()) {
+                    Expectation expectation = iterator.next();
+                    try {
+                        if (expectation.condition().test(message)) {
+                            iterator.remove();
+                            completed.put(expectation, null);
+                        }
+                    } catch (RuntimeException e) {
+                        iterator.remove();
+                        completed.put(expectation, e);
+                    }
+                }
+            }
+
+            completed.forEach((expectation, error) -> {
+                if (error == null) {
+                    expectation.future().complete(message);
+                } else {
+                    expectation.future().completeExceptionally(error);
+                }
+            });
+        }
+
+        private void run() {
+            Exception failure = null;
+            try {
+                while (running) {
+                    for (ConsumerRecord<byte[], byte[]> record : lease.consumer().poll(POLL_TIMEOUT)) {
+                        dispatch(new LazyKafkaMessage(record));
+                    }
+                }
+            } catch (WakeupException e) {
+                // Остановка через stop()
+            } catch (Exception e) {
+                System.err.println("❌ Awaiting consumer for topic " + key.topicName() + " failed: " + e.getMessage());
+                failure = e;
+            } finally {
+                DISPATCHERS.remove(key, this);
+                failPending(failure != null ? failure : new IllegalStateException(
+                        "Awaiting consumer for topic " + key.topicName() + " is stopped"));
+                // После wakeup() консюмер нельзя отдавать в пул - следующий poll() выбросит исключение
+                lease.invalidate();
+                lease.close();
+            }
+        }
+
+        private void failPending(Exception cause) {
+            List<Expectation> pending;
+            synchronized (this) {
+                running = false;
+                pending = new ArrayList<>(expectations);
+                expectations.clear();
+            }
+            pending.forEach(expectation -> expectation.future().completeExceptionally(cause));
+        }
+
+        void stop() {
+            running = false;
+            lease.consumer().wakeup();
+            try {
+                thread.join(Duration.ofSeconds(5).toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Expectation(Predicate<KafkaMessage> condition, CompletableFuture<KafkaMessage> future) {
+    }
+
+    private record DispatcherKey(String bootstrapServers, String topicName) {
+    }
+}
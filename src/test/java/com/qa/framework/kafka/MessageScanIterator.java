@@ -0,0 +1,131 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Ленивый итератор по сообщениям топика за временной диапазон.
+ * <p>
+ * poll() вызывается только когда потребитель итератора запросил следующее сообщение,
+ * поэтому поиск с findFirst()/limit() прекращает чтение сразу после нужного количества совпадений,
+ * а в памяти одновременно находится не больше одной пачки poll().
+ * Консюмер берется из {@link ConsumerPool} и возвращается туда в {@link #close()}.
+ * Записи читаются байтами и отдаются как {@link LazyKafkaMessage} - отброшенные фильтром
+ * сообщения не декодируются.
+ */
+final class MessageScanIterator implements Iterator<KafkaMessage>, AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerPool.Lease<byte[], byte[]> lease;
+    private final KafkaConsumer<byte[], byte[]> consumer;
+    private final long startTimestampMs;
+    private final long endTimestampMs;
+    private final boolean waitForNewData;
+    private final long deadlineMs;
+    private final Map<TopicPartition, Long> bounds;
+    private final Deque<ConsumerRecord<byte[], byte[]>> buffer = new ArrayDeque<>();
+
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private long scannedRecords = 0;
+
+    /**
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    MessageScanIterator(ConsumerPool.Lease<byte[], byte[]> lease,
+                        long startTimestampMs,
+                        long endTimestampMs,
+                        int maxWaitSeconds) {
+        this.lease = lease;
+        this.consumer = lease.consumer();
+        this.startTimestampMs = startTimestampMs;
+        this.endTimestampMs = endTimestampMs;
+        this.waitForNewData = endTimestampMs > System.currentTimeMillis();
+        this.deadlineMs = System.currentTimeMillis() + maxWaitSeconds * 1000L;
+
+        Set<TopicPartition> partitions = lease.assignment();
+        if (partitions.isEmpty()) {
+            System.err.println("❌ No partitions assigned, nothing to scan");
+            this.bounds = Collections.emptyMap();
+            this.exhausted = true;
+            return;
+        }
+
+        try {
+            ConsumerAdapter.seekToTimestamp(consumer, partitions, startTimestampMs);
+            this.bounds = waitForNewData
+                    ? Collections.emptyMap()
+                    : ConsumerAdapter.snapshotEndOffsets(consumer, partitions, endTimestampMs);
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (buffer.isEmpty() && !exhausted) {
+            fetchNextBatch();
+        }
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public KafkaMessage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return new LazyKafkaMessage(buffer.pollFirst());
+    }
+
+    private void fetchNextBatch() {
+        try {
+            if (!waitForNewData && ConsumerAdapter.pauseCompletedPartitions(consumer, bounds)) {
+                exhausted = true;
+                return;
+            }
+            if (System.currentTimeMillis() >= deadlineMs) {
+                System.out.println("   ⏱️ Scan time limit reached after " + scannedRecords + " records");
+                exhausted = true;
+                return;
+            }
+
+            ConsumerRecords<byte[], byte[]> records = consumer.poll(POLL_TIMEOUT);
+            for (ConsumerRecord<byte[], byte[]> record : records) {
+                scannedRecords++;
+                if (isWithinTimeRange(record) && (waitForNewData || ConsumerAdapter.isBeforeBound(record, bounds))) {
+                    buffer.addLast(record);
+                }
+            }
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            exhausted = true;
+            throw e;
+        }
+    }
+
+    private boolean isWithinTimeRange(ConsumerRecord<?, ?> record) {
+        if (record.timestamp() < startTimestampMs) {
+            return false;
+        }
+        return endTimestampMs <= 0 || record.timestamp() <= endTimestampMs;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.clear();
+        System.out.println("📊 Scan finished, records scanned: " + scannedRecords);
+        lease.close();
+    }
+}
@@ -0,0 +1,337 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Параллельное чтение исторического временного диапазона топика.
+ * <p>
+ * Диапазон разбивается на куски по partitions, а большие partitions - еще и на поддиапазоны offset'ов
+ * (не больше splitSize записей в куске). Куски читаются параллельно консюмерами из {@link ConsumerPool},
+ * одновременно работает не больше parallelism консюмеров. По умолчанию задачи выполняются
+ * на виртуальных потоках, но можно передать свой ExecutorService.
+ * <p>
+ * Результат склеивается в порядке partition -> offset.
+ * Записи читаются байтами ({@link ConsumerPool#borrowRaw}) и передаются в фильтр как {@link LazyKafkaMessage}.
+ * Если время чтения (maxWaitSeconds) истекло раньше, чем дочитаны все куски, результат неполный -
+ * это пишется в лог, а {@link #runRanges} дополнительно выставляет флаг incomplete.
+ * <p>
+ * Движок без состояния между вызовами: используйте общий {@link #shared()}, а не новый объект на каждый поиск.
+ */
+public class PartitionScanEngine {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    // Виртуальные потоки не нужно ограничивать пулом - один executor на все движки без своего executor
+    private static final ExecutorService VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static volatile PartitionScanEngine shared;
+
+    private final int parallelism;
+    private final long splitSize;
+    private final ExecutorService executor;
+
+    /**
+     * Движок с настройками kafka.scan.parallelism / kafka.scan.split.size и виртуальными потоками
+     */
+    public PartitionScanEngine() {
+        this(ConfigurationManager.getKafkaScanParallelism(), ConfigurationManager.getKafkaScanSplitSize(), null);
+    }
+
+    /**
+     * @param executor пул потоков для задач; null - новый виртуальный поток на каждую задачу
+     */
+    public PartitionScanEngine(int parallelism, long splitSize, ExecutorService executor) {
+        if (parallelism < 1 || splitSize < 1) {
+            throw new IllegalArgumentException("parallelism and splitSize must be positive");
+        }
+        this.parallelism = parallelism;
+        this.splitSize = splitSize;
+        this.executor = executor != null ? executor : VIRTUAL_THREADS;
+    }
+
+    /**
+     * Общий движок с настройками по умолчанию (создается при первом обращении)
+     */
+    public static PartitionScanEngine shared() {
+        PartitionScanEngine engine = shared;
+        if (engine == null) {
+            synchronized (PartitionScanEngine.class) {
+                engine = shared;
+                if (engine == null) {
+                    engine = new PartitionScanEngine();
+                    shared = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Читает все сообщения за диапазон [startTimestampMs, endTimestampMs].
+     */
+    public List<KafkaMessage> scan(String bootstrapServers,
+                                   String topicName,
+                                   long startTimestampMs,
+                                   long endTimestampMs,
+                                   int maxWaitSeconds) {
+        return scan(bootstrapServers, topicName, startTimestampMs, endTimestampMs,
+                message -> true, Integer.MAX_VALUE, maxWaitSeconds);
+    }
+
+    /**
+     * Ищет сообщения за диапазон, условие проверяется внутри задач чтения.
+     * После maxMatches совпадений все задачи останавливаются (какие именно совпадения попадут
+     * в результат при параллельном чтении не гарантируется).
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public List<KafkaMessage> scan(String bootstrapServers,
+                                   String topicName,
+                                   long startTimestampMs,
+                                   long endTimestampMs,
+                                   Predicate<KafkaMessage> filter,
+                                   int maxMatches,
+                                   int maxWaitSeconds) {
+
+        List<OffsetRange> ranges = new ArrayList<>();
+        windowOffsets(bootstrapServers, topicName, startTimestampMs, endTimestampMs)
+                .values()
+                .forEach(window -> ranges.addAll(split(window)));
+
+        return runRanges(bootstrapServers, topicName, ranges, startTimestampMs, endTimestampMs,
+                filter, maxMatches, maxWaitSeconds, new AtomicBoolean());
+    }
+
+    /**
+     * То же, что {@link #scan}, но читается только одна partition (например, partition ключа).
+     * Offset'ы остальных partitions не запрашиваются, их записи не читаются.
+     */
+    public List<KafkaMessage> scanPartition(String bootstrapServers,
+                                            String topicName,
+                                            int partition,
+                                            long startTimestampMs,
+                                            long endTimestampMs,
+                                            Predicate<KafkaMessage> filter,
+                                            int maxMatches,
+                                            int maxWaitSeconds) {
+
+        TopicPartition target = new TopicPartition(topicName, partition);
+        OffsetRange window = windowOffsets(bootstrapServers, topicName, Set.of(target), startTimestampMs, endTimestampMs)
+                .get(target);
+        if (window == null) {
+            return Collections.emptyList();
+        }
+
+        return runRanges(bootstrapServers, topicName, split(window), startTimestampMs, endTimestampMs,
+                filter, maxMatches, maxWaitSeconds, new AtomicBoolean());
+    }
+
+    /**
+     * Читает заданные диапазоны offset'ов параллельно.
+     *
+     * @param filter     вызывается для каждой записи диапазона (из нескольких потоков);
+     *                   true - сообщение попадает в результат
+     * @param incomplete выставляется в true, если какой-то диапазон не дочитан из-за maxWaitSeconds
+     */
+    List<KafkaMessage> runRanges(String bootstrapServers,
+                                 String topicName,
+                                 List<OffsetRange> ranges,
+                                 long startTimestampMs,
+                                 long endTimestampMs,
+                                 Predicate<KafkaMessage> filter,
+                                 int maxMatches,
+                                 int maxWaitSeconds,
+                                 AtomicBoolean incomplete) {
+
+        long deadlineMs = System.currentTimeMillis() + maxWaitSeconds * 1000L;
+        List<OffsetRange> ordered = new ArrayList<>(ranges);
+        ordered.sort(Comparator.comparingInt((OffsetRange range) -> range.partition().partition())
+                .thenComparingLong(OffsetRange::from));
+
+        long totalRecords = ordered.stream().mapToLong(OffsetRange::size).sum();
+        System.out.println("\n⚡ Parallel scan of " + topicName + ": " + ordered.size() + " ranges, " +
+                totalRecords + " records, parallelism " + parallelism);
+
+        if (ordered.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Semaphore consumers = new Semaphore(parallelism);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicInteger matches = new AtomicInteger();
+
+        try {
+            List<Future<List<KafkaMessage>>> futures = new ArrayList<>();
+            for (OffsetRange range : ordered) {
+                futures.add(executor.submit(() -> {
+                    consumers.acquire();
+                    try {
+                        return scanRange(bootstrapServers, range, startTimestampMs, endTimestampMs,
+                                filter, maxMatches, matches, stop, deadlineMs, incomplete);
+                    } finally {
+                        consumers.release();
+                    }
+                }));
+            }
+
+            List<KafkaMessage> result = new ArrayList<>();
+            for (Future<List<KafkaMessage>> future : futures) {
+                result.addAll(future.get());
+            }
+
+            if (incomplete.get() && !stop.get()) {
+                System.out.println("⚠️ Parallel scan of " + topicName + " hit the " + maxWaitSeconds +
+                        "s time limit, result is truncated: matched " + result.size() + " messages so far");
+            } else {
+                System.out.println("✅ Parallel scan finished, matched " + result.size() + " messages");
+            }
+            return result.size() > maxMatches ? new ArrayList<>(result.subList(0, maxMatches)) : result;
+
+        } catch (InterruptedException e) {
+            stop.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel scan of " + topicName + " was interrupted", e);
+        } catch (ExecutionException e) {
+            stop.set(true);
+            throw new IllegalStateException("Parallel scan of " + topicName + " failed: " +
+                    e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Определяет offset'ы начала и конца временного диапазона в каждой partition.
+     *
+     * @return partition -> [первый offset с timestamp >= start, граница из snapshotEndOffsets)
+     */
+    Map<TopicPartition, OffsetRange> windowOffsets(String bootstrapServers,
+                                                   String topicName,
+                                                   long startTimestampMs,
+                                                   long endTimestampMs) {
+        return windowOffsets(bootstrapServers, topicName, null, startTimestampMs, endTimestampMs);
+    }
+
+    /**
+     * @param only partitions, для которых нужны offset'ы; null - все partitions топика
+     */
+    Map<TopicPartition, OffsetRange> windowOffsets(String bootstrapServers,
+                                                   String topicName,
+                                                   Set<TopicPartition> only,
+                                                   long startTimestampMs,
+                                                   long endTimestampMs) {
+
+        try (ConsumerPool.Lease<byte[], byte[]> lease = ConsumerPool.borrowRaw(bootstrapServers, topicName)) {
+            KafkaConsumer<byte[], byte[]> consumer = lease.consumer();
+            Set<TopicPartition> partitions = new HashSet<>(lease.assignment());
+            if (only != null) {
+                partitions.retainAll(only);
+            }
+            if (partitions.isEmpty()) {
+                return Collections.emptyMap();
+            }
+
+            Map<TopicPartition, Long> bounds = ConsumerAdapter.snapshotEndOffsets(consumer, partitions, endTimestampMs);
+
+            Map<TopicPartition, Long> timestampsToSearch = new HashMap<>();
+            partitions.forEach(partition -> timestampsToSearch.put(partition, startTimestampMs));
+            Map<TopicPartition, OffsetAndTimestamp> startOffsets = consumer.offsetsForTimes(timestampsToSearch);
+
+            Map<TopicPartition, OffsetRange> windows = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                long to = bounds.get(partition);
+                OffsetAndTimestamp start = startOffsets.get(partition);
+                long from = start != null ? Math.min(start.offset(), to) : to;
+                windows.put(partition, new OffsetRange(partition, from, to));
+            }
+            return windows;
+        }
+    }
+
+    /**
+     * Режет диапазон на куски не больше splitSize записей.
+     */
+    List<OffsetRange> split(OffsetRange range) {
+        List<OffsetRange> chunks = new ArrayList<>();
+        for (long chunkStart = range.from(); chunkStart < range.to(); chunkStart += splitSize) {
+            chunks.add(new OffsetRange(range.partition(), chunkStart, Math.min(chunkStart + splitSize, range.to())));
+        }
+        return chunks;
+    }
+
+    private List<KafkaMessage> scanRange(String bootstrapServers,
+                                         OffsetRange range,
+                                         long startTimestampMs,
+                                         long endTimestampMs,
+                                         Predicate<KafkaMessage> filter,
+                                         int maxMatches,
+                                         AtomicInteger matches,
+                                         AtomicBoolean stop,
+                                         long deadlineMs,
+                                         AtomicBoolean incomplete) {
+
+        List<KafkaMessage> found = new ArrayList<>();
+        TopicPartition partition = range.partition();
+
+        try (ConsumerPool.Lease<byte[], byte[]> lease = ConsumerPool.borrowRaw(bootstrapServers, partition.topic())) {
+            KafkaConsumer<byte[], byte[]> consumer = lease.consumer();
+            try {
+                // Читаем только свою partition, остальные на паузе
+                Set<TopicPartition> others = new HashSet<>(lease.assignment());
+                others.remove(partition);
+                consumer.pause(others);
+                consumer.seek(partition, range.from());
+
+                while (!stop.get() && consumer.position(partition) < range.to()) {
+                    if (System.currentTimeMillis() >= deadlineMs) {
+                        System.out.println("   ⏱️ Scan time limit reached in " + range);
+                        incomplete.set(true);
+                        break;
+                    }
+
+                    for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT).records(partition)) {
+                        if (record.offset() >= range.to()) {
+                            break;
+                        }
+                        if (record.timestamp() < startTimestampMs ||
+                                (endTimestampMs > 0 && record.timestamp() > endTimestampMs)) {
+                            continue;
+                        }
+
+                        KafkaMessage message = new LazyKafkaMessage(record);
+                        if (filter.test(message)) {
+                            found.add(message);
+                            if (matches.incrementAndGet() >= maxMatches) {
+                                stop.set(true);
+                                break;
+                            }
+                        }
+                    }
+                }
+                return found;
+
+            } catch (RuntimeException e) {
+                lease.invalidate();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Кусок partition: offset'ы [from, to)
+     */
+    record OffsetRange(TopicPartition partition, long from, long to) {
+        long size() {
+            return to - from;
+        }
+    }
+}
@@ -1,40 +1,176 @@
 package com.qa.framework.kafka;
 
-import com.google.gson.Gson;
 import com.qa.framework.config.KafkaConfig;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
-import org.apache.kafka.common.header.Header;
 
-import java.util.Map;
-import java.util.Properties;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+/**
+ * Отправка сообщений в Kafka.
+ * <p>
+ * KafkaProducer потокобезопасен, поэтому на каждый bootstrap servers создается один общий продюсер,
+ * который живет до остановки JVM. Асинхронные методы (sendAsync, sendAll) не ждут подтверждения
+ * каждой записи - продюсер собирает их в пачки (linger.ms, batch.size, compression.type).
+ * Блокирующие методы - обертки над sendAsync. Тело кодируется кодеком топика ({@link ValueCodecs}),
+ * по умолчанию - JSON через {@link com.qa.framework.utils.JsonUtils}.
+ */
 public class ProducerAdapter {
 
     private static final KafkaConfig KAFKA_CONFIG = new KafkaConfig();
+    private static final int SEND_TIMEOUT_SECONDS = 10;
+    private static final Map<String, KafkaProducer<String, Object>> PRODUCERS = new ConcurrentHashMap<>();
+    private static final Map<String, KafkaProducer<byte[], byte[]>> RAW_PRODUCERS = new ConcurrentHashMap<>();
 
-    private static KafkaProducer<String, String> createProducer() {
-        // Использование централизованного метода из KafkaConfig
-        final Properties props = KAFKA_CONFIG.getKafkaProducerProperties();
-        return new KafkaProducer<>(props);
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ProducerAdapter::closeAll, "kafka-producer-shutdown"));
+    }
+
+    /**
+     * Общий продюсер для bootstrap servers (пустое значение - из настроек)
+     */
+    private static KafkaProducer<String, Object> producer(String bootstrapServers) {
+        return PRODUCERS.computeIfAbsent(servers(bootstrapServers), key -> {
+            // Использование централизованного метода из KafkaConfig
+            final Properties props = KAFKA_CONFIG.getKafkaProducerProperties();
+            props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, key);
+            System.out.println("🔌 Creating shared producer for " + key);
+            return new KafkaProducer<>(props);
+        });
+    }
+
+    /**
+     * Общий продюсер без кодеков: ключ и тело уходят в исходных байтах
+     */
+    private static KafkaProducer<byte[], byte[]> rawProducer(String bootstrapServers) {
+        return RAW_PRODUCERS.computeIfAbsent(servers(bootstrapServers), key -> {
+            final Properties props = KAFKA_CONFIG.getKafkaRawProducerProperties();
+            props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, key);
+            System.out.println("🔌 Creating shared raw producer for " + key);
+            return new KafkaProducer<>(props);
+        });
+    }
+
+    private static String servers(String bootstrapServers) {
+        return bootstrapServers != null && !bootstrapServers.isBlank()
+                ? bootstrapServers
+                : KAFKA_CONFIG.getBootstrapServers();
+    }
+
+    /**
+     * Отправляет все накопленные записи и закрывает общие продюсеры
+     */
+    public static void closeAll() {
+        List<KafkaProducer<?, ?>> producers = new ArrayList<>(PRODUCERS.values());
+        producers.addAll(RAW_PRODUCERS.values());
+        producers.forEach(producer -> {
+            try {
+                producer.close(Duration.ofSeconds(10));
+            } catch (Exception e) {
+                System.err.println("⚠️ Error closing producer: " + e.getMessage());
+            }
+        });
+        PRODUCERS.clear();
+        RAW_PRODUCERS.clear();
+    }
+
+    /**
+     * Асинхронная отправка: future завершается метаданными записи после подтверждения брокером
+     *
+     * @param key     ключ записи (null - partition выбирает продюсер)
+     * @param headers заголовки (может быть null)
+     */
+    public static CompletableFuture<RecordMetadata> sendAsync(String bootstrapServers,
+                                                              String topicName,
+                                                              String key,
+                                                              Object message,
+                                                              Map<String, String> headers) {
+        ProducerRecord<String, Object> record;
+        try {
+            record = new ProducerRecord<>(topicName, key, message);
+            if (headers != null) {
+                headers.forEach((name, value) -> record.headers().add(name, value.getBytes()));
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return sendAsync(bootstrapServers, record);
+    }
+
+    /**
+     * Асинхронная отправка готовой записи (partition, timestamp и заголовки - как заданы в записи).
+     * Тело кодируется кодеком топика, byte[] отправляется без изменений.
+     */
+    public static CompletableFuture<RecordMetadata> sendAsync(String bootstrapServers,
+                                                              ProducerRecord<String, Object> record) {
+        return send(() -> producer(bootstrapServers), record);
+    }
+
+    /**
+     * Асинхронная отправка записи в исходных байтах: ключ и тело не перекодируются
+     * (например, при воспроизведении архива трафика или для бинарных ключей)
+     */
+    public static CompletableFuture<RecordMetadata> sendRawAsync(String bootstrapServers,
+                                                                 ProducerRecord<byte[], byte[]> record) {
+        return send(() -> rawProducer(bootstrapServers), record);
+    }
+
+    private static <K, V> CompletableFuture<RecordMetadata> send(Supplier<KafkaProducer<K, V>> producer,
+                                                                 ProducerRecord<K, V> record) {
+        CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        try {
+            producer.get().send(record, (metadata, exception) -> {
+                if (exception != null) {
+                    future.completeExceptionally(exception);
+                } else {
+                    future.complete(metadata);
+                }
+            });
+        } catch (Exception e) {
+            // send() бросает сразу, например, если истек max.block.ms при получении метаданных
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public static CompletableFuture<RecordMetadata> sendAsync(String bootstrapServers,
+                                                              String topicName,
+                                                              Object message) {
+        return sendAsync(bootstrapServers, topicName, null, message, null);
+    }
+
+    /**
+     * Отправка пачки сообщений без ожидания каждого.
+     * Future завершается списком метаданных в порядке сообщений или первой ошибкой.
+     */
+    public static CompletableFuture<List<RecordMetadata>> sendAll(String bootstrapServers,
+                                                                  String topicName,
+                                                                  List<?> messages) {
+        List<CompletableFuture<RecordMetadata>> futures = new ArrayList<>(messages.size());
+        for (Object message : messages) {
+            futures.add(sendAsync(bootstrapServers, topicName, message));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
     }
 
     public static boolean sendMessage(String bootstrapServers,
                                       String topicName,
                                       Object message) {
 
-        final KafkaProducer<String, String> producer = createProducer();
-
         try {
-            String jsonMessage = new Gson().toJson(message);
-            ProducerRecord<String, String> record = new ProducerRecord<>(topicName, jsonMessage);
-
-            RecordMetadata metadata = producer.send(record).get(10, TimeUnit.SECONDS);
+            RecordMetadata metadata = sendAsync(bootstrapServers, topicName, message)
+                    .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 
             if (!metadata.hasOffset()) {
                 System.err.println("❌ Record has not posted to topic " + topicName);
@@ -61,8 +197,6 @@ public class ProducerAdapter {
             System.err.println("❌ Failed to send message to Kafka topic " + topicName +
                     ": " + e.getMessage());
             return false;
-        } finally {
-            producer.close();
         }
     }
 
@@ -71,20 +205,9 @@ public class ProducerAdapter {
                                                  Object message,
                                                  Map<String, String> headers) {
 
-        final KafkaProducer<String, String> producer = createProducer();
-
         try {
-            String jsonMessage = new Gson().toJson(message);
-            ProducerRecord<String, String> record = new ProducerRecord<>(topicName, jsonMessage);
-
-            // Добавляем заголовки
-            if (headers != null) {
-                for (Map.Entry<String, String> header : headers.entrySet()) {
-                    record.headers().add(header.getKey(), header.getValue().getBytes());
-                }
-            }
-
-            RecordMetadata metadata = producer.send(record).get(10, TimeUnit.SECONDS);
+            RecordMetadata metadata = sendAsync(bootstrapServers, topicName, null, message, headers)
+                    .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 
             if (!metadata.hasOffset()) {
                 System.err.println("❌ Record has not posted to topic " + topicName);
@@ -98,12 +221,14 @@ public class ProducerAdapter {
                 return true;
             }
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Interrupted while sending message with headers to Kafka topic " + topicName);
+            return false;
         } catch (Exception e) {
             System.err.println("❌ Failed to send message with headers to Kafka topic " +
-                    topicName + ": " + e.getMessage());
+                    topicName + ": " + (e instanceof ExecutionException ? e.getCause().getMessage() : e.getMessage()));
             return false;
-        } finally {
-            producer.close();
         }
     }
 
@@ -111,18 +236,16 @@ public class ProducerAdapter {
                                                       String topicName,
                                                       Object message) {
 
-        final KafkaProducer<String, String> producer = createProducer();
         String transactionId = UUID.randomUUID().toString();
 
-        try {
-            String jsonMessage = new Gson().toJson(message);
-            ProducerRecord<String, String> record = new ProducerRecord<>(topicName, jsonMessage);
-
-            // Добавляем заголовки
-            record.headers().add("X-Transaction-Req-Id", transactionId.getBytes());
-            record.headers().add("X-Initiator-Service", "test-service".getBytes());
+        // Добавляем заголовки
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("X-Transaction-Req-Id", transactionId);
+        headers.put("X-Initiator-Service", "test-service");
 
-            RecordMetadata metadata = producer.send(record).get(10, TimeUnit.SECONDS);
+        try {
+            RecordMetadata metadata = sendAsync(bootstrapServers, topicName, null, message, headers)
+                    .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
 
             if (!metadata.hasOffset()) {
                 System.err.println("❌ Record has not posted to topic " + topicName);
@@ -133,12 +256,14 @@ public class ProducerAdapter {
                 return transactionId;
             }
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Interrupted while sending message with X-Transaction-Req-Id to Kafka topic " + topicName);
+            return null;
         } catch (Exception e) {
             System.err.println("❌ Failed to send message with X-Transaction-Req-Id to Kafka topic " +
-                    topicName + ": " + e.getMessage());
+                    topicName + ": " + (e instanceof ExecutionException ? e.getCause().getMessage() : e.getMessage()));
             return null;
-        } finally {
-            producer.close();
         }
     }
-}
\ No newline at end of file
+}
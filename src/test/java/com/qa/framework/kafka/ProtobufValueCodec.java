@@ -0,0 +1,154 @@
+package com.qa.framework.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qa.framework.utils.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format Protobuf для плоского сообщения ({@link RecordSchema#toProtoSchema()}): тег (номер поля и тип),
+ * int32/int64/bool - varint, double - fixed64, string - длина и UTF-8. Отсутствующее необязательное поле
+ * не пишется. Обязательное поле (proto3 без optional) со значением по умолчанию (0, "", false, 0.0) тоже
+ * не пишется, как у protobuf-java, поэтому байты совпадают с эталонным сериализатором. При чтении незнакомые
+ * поля пропускаются, а отсутствующие обязательные получают значение по умолчанию.
+ * После id схемы пишется индекс сообщения 0, как у сериализатора Confluent.
+ */
+final class ProtobufValueCodec extends SchemaValueCodec {
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    @Override
+    public String name() {
+        return "protobuf";
+    }
+
+    @Override
+    void writeHeader(ByteArrayOutputStream out) {
+        // Индекс сообщения в .proto: [0] кодируется одним нулевым байтом
+        out.write(0);
+    }
+
+    @Override
+    void readHeader(ByteBuffer buffer) {
+        long count = readVarint(buffer);
+        // Confluent пишет zigzag длину массива индексов; 0 означает [0]
+        for (long i = 0; i < ((count >>> 1) ^ -(count & 1)); i++) {
+            readVarint(buffer);
+        }
+    }
+
+    @Override
+    void writeRecord(RecordSchema schema, JsonNode record, ByteArrayOutputStream out) {
+        for (RecordSchema.Field field : schema.fields()) {
+            JsonNode value = fieldValue(record, field);
+            if (value == null || !field.optional() && isDefault(field.type(), value)) {
+                continue;
+            }
+            switch (field.type()) {
+                case STRING -> {
+                    byte[] bytes = value.asText().getBytes(StandardCharsets.UTF_8);
+                    writeTag(out, field.number(), WIRE_LENGTH_DELIMITED);
+                    writeVarint(out, bytes.length);
+                    out.write(bytes, 0, bytes.length);
+                }
+                case INT -> {
+                    writeTag(out, field.number(), WIRE_VARINT);
+                    writeVarint(out, value.asInt());
+                }
+                case LONG -> {
+                    writeTag(out, field.number(), WIRE_VARINT);
+                    writeVarint(out, value.asLong());
+                }
+                case DOUBLE -> {
+                    writeTag(out, field.number(), WIRE_FIXED64);
+                    writeDoubleLittleEndian(out, value.asDouble());
+                }
+                case BOOLEAN -> {
+                    writeTag(out, field.number(), WIRE_VARINT);
+                    writeVarint(out, value.asBoolean() ? 1 : 0);
+                }
+            }
+        }
+    }
+
+    @Override
+    ObjectNode readRecord(RecordSchema schema, ByteBuffer buffer) {
+        RecordSchema.Field[] byNumber = new RecordSchema.Field[schema.fields().size() + 1];
+        for (RecordSchema.Field field : schema.fields()) {
+            byNumber[field.number()] = field;
+        }
+
+        ObjectNode values = JsonUtils.createObjectNode();
+        while (buffer.hasRemaining()) {
+            long tag = readVarint(buffer);
+            int number = (int) (tag >>> 3);
+            int wireType = (int) (tag & 7);
+            RecordSchema.Field field = number < byNumber.length ? byNumber[number] : null;
+            if (field == null) {
+                skip(buffer, wireType);
+                continue;
+            }
+
+            switch (field.type()) {
+                case STRING -> {
+                    byte[] bytes = new byte[(int) readVarint(buffer)];
+                    buffer.get(bytes);
+                    values.put(field.name(), new String(bytes, StandardCharsets.UTF_8));
+                }
+                case INT -> values.put(field.name(), (int) readVarint(buffer));
+                case LONG -> values.put(field.name(), readVarint(buffer));
+                case DOUBLE -> values.put(field.name(), readDoubleLittleEndian(buffer));
+                case BOOLEAN -> values.put(field.name(), readVarint(buffer) != 0);
+            }
+        }
+
+        // Порядок полей - как в схеме, отсутствующие обязательные - значения по умолчанию
+        ObjectNode record = JsonUtils.createObjectNode();
+        for (RecordSchema.Field field : schema.fields()) {
+            if (values.has(field.name())) {
+                record.set(field.name(), values.get(field.name()));
+            } else if (!field.optional()) {
+                switch (field.type()) {
+                    case STRING -> record.put(field.name(), "");
+                    case INT, LONG -> record.put(field.name(), 0);
+                    case DOUBLE -> record.put(field.name(), 0.0);
+                    case BOOLEAN -> record.put(field.name(), false);
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Значение по умолчанию proto3. Для double - только +0.0: -0.0 protobuf-java пишет (сравнение по битам)
+     */
+    private static boolean isDefault(RecordSchema.FieldType type, JsonNode value) {
+        return switch (type) {
+            case STRING -> value.asText().isEmpty();
+            case INT -> value.asInt() == 0;
+            case LONG -> value.asLong() == 0;
+            case DOUBLE -> Double.doubleToRawLongBits(value.asDouble()) == 0;
+            case BOOLEAN -> !value.asBoolean();
+        };
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int number, int wireType) {
+        writeVarint(out, ((long) number << 3) | wireType);
+    }
+
+    private static void skip(ByteBuffer buffer, int wireType) {
+        switch (wireType) {
+            case WIRE_VARINT -> readVarint(buffer);
+            case WIRE_FIXED64 -> buffer.position(buffer.position() + 8);
+            case WIRE_LENGTH_DELIMITED -> buffer.position(buffer.position() + (int) readVarint(buffer));
+            case WIRE_FIXED32 -> buffer.position(buffer.position() + 4);
+            default -> throw new IllegalArgumentException("Unsupported wire type " + wireType);
+        }
+    }
+}
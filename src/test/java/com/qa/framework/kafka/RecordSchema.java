@@ -0,0 +1,103 @@
+package com.qa.framework.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Схема плоской записи для бинарных кодеков (avro, protobuf): упорядоченные поля простых типов.
+ * Номер поля в protobuf - позиция поля, начиная с 1. Схему можно выгрузить как Avro JSON
+ * ({@link #toAvroSchema()}) или .proto ({@link #toProtoSchema()}) для сверки с продовой.
+ *
+ * <pre>
+ * RecordSchema schema = RecordSchema.builder("Order")
+ *         .field("orderId", RecordSchema.FieldType.STRING)
+ *         .field("amount", RecordSchema.FieldType.DOUBLE)
+ *         .optionalField("status", RecordSchema.FieldType.STRING)
+ *         .build();
+ * SchemaRegistry.register("incoming_orders-value", schema);
+ * </pre>
+ */
+public record RecordSchema(String name, List<Field> fields) {
+
+    public enum FieldType {
+        STRING("string", "string"),
+        INT("int", "int32"),
+        LONG("long", "int64"),
+        DOUBLE("double", "double"),
+        BOOLEAN("boolean", "bool");
+
+        private final String avroType;
+        private final String protoType;
+
+        FieldType(String avroType, String protoType) {
+            this.avroType = avroType;
+            this.protoType = protoType;
+        }
+    }
+
+    /**
+     * @param optional поле может отсутствовать (Avro union с null, proto3 optional)
+     * @param number   номер поля в protobuf
+     */
+    public record Field(String name, FieldType type, boolean optional, int number) {
+    }
+
+    public RecordSchema {
+        fields = List.copyOf(fields);
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public String toAvroSchema() {
+        StringBuilder schema = new StringBuilder("{\"type\":\"record\",\"name\":\"" + name + "\",\"fields\":[");
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            schema.append(i > 0 ? "," : "")
+                    .append("{\"name\":\"").append(field.name()).append("\",\"type\":")
+                    .append(field.optional()
+                            ? "[\"null\",\"" + field.type().avroType + "\"],\"default\":null"
+                            : "\"" + field.type().avroType + "\"")
+                    .append("}");
+        }
+        return schema.append("]}").toString();
+    }
+
+    public String toProtoSchema() {
+        StringBuilder schema = new StringBuilder("syntax = \"proto3\";\n\nmessage " + name + " {\n");
+        for (Field field : fields) {
+            schema.append("  ").append(field.optional() ? "optional " : "")
+                    .append(field.type().protoType).append(' ').append(field.name())
+                    .append(" = ").append(field.number()).append(";\n");
+        }
+        return schema.append("}\n").toString();
+    }
+
+    // Builder pattern (ручная реализация)
+    public static class Builder {
+        private final String name;
+        private final List<Field> fields = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder field(String fieldName, FieldType type) {
+            fields.add(new Field(fieldName, type, false, fields.size() + 1));
+            return this;
+        }
+
+        public Builder optionalField(String fieldName, FieldType type) {
+            fields.add(new Field(fieldName, type, true, fields.size() + 1));
+            return this;
+        }
+
+        public RecordSchema build() {
+            if (fields.isEmpty()) {
+                throw new IllegalStateException("Schema " + name + " has no fields");
+            }
+            return new RecordSchema(name, fields);
+        }
+    }
+}
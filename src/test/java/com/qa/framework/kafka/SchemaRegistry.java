@@ -0,0 +1,70 @@
+package com.qa.framework.kafka;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Реестр схем внутри JVM - замена Schema Registry для тестов.
+ * <p>
+ * Как в Confluent Schema Registry: схемы регистрируются по subject (для тела топика - "&lt;topic&gt;-value"),
+ * каждая версия получает глобальный id, id пишется в начало каждой записи, а при чтении схема ищется по id.
+ * Повторная регистрация той же схемы возвращает прежний id.
+ */
+public final class SchemaRegistry {
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+    private static final Map<Integer, RecordSchema> BY_ID = new ConcurrentHashMap<>();
+    private static final Map<String, List<Integer>> VERSIONS = new ConcurrentHashMap<>();
+
+    private SchemaRegistry() {
+    }
+
+    /**
+     * Subject тела топика (TopicNameStrategy)
+     */
+    public static String valueSubject(String topic) {
+        return topic + "-value";
+    }
+
+    /**
+     * Регистрирует схему как последнюю версию subject
+     *
+     * @return id схемы
+     */
+    public static synchronized int register(String subject, RecordSchema schema) {
+        List<Integer> versions = VERSIONS.computeIfAbsent(subject, key -> new CopyOnWriteArrayList<>());
+        for (int id : versions) {
+            if (BY_ID.get(id).equals(schema)) {
+                return id;
+            }
+        }
+
+        int id = NEXT_ID.getAndIncrement();
+        BY_ID.put(id, schema);
+        versions.add(id);
+        System.out.println("📐 Schema " + schema.name() + " registered for " + subject + " with id " + id);
+        return id;
+    }
+
+    public static RecordSchema getById(int id) {
+        RecordSchema schema = BY_ID.get(id);
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown schema id " + id);
+        }
+        return schema;
+    }
+
+    /**
+     * id последней версии схемы subject
+     */
+    public static int getLatestId(String subject) {
+        List<Integer> versions = VERSIONS.get(subject);
+        if (versions == null || versions.isEmpty()) {
+            throw new IllegalStateException("No schema registered for subject " + subject);
+        }
+        return versions.get(versions.size() - 1);
+    }
+}
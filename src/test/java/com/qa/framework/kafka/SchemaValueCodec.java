@@ -0,0 +1,133 @@
+package com.qa.framework.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.qa.framework.utils.JsonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Общая часть бинарных кодеков со схемой из {@link SchemaRegistry}.
+ * <p>
+ * Кадр записи - как у сериализаторов Confluent: магический байт 0, id схемы (4 байта, big-endian),
+ * затем тело в формате кодека. Значение для записи приводится к JSON объекту (Map и POJO - через {@link JsonUtils},
+ * JsonNode - как есть), поля берутся по схеме; поля вне схемы не пишутся. Строка - это JSON строка, а не объект
+ * (см. {@link ValueCodec}), поэтому отклоняется. Тип значения поля должен совпадать с типом в схеме:
+ * без приведения "12" к числу или 1.5 к int - иначе IllegalArgumentException.
+ */
+abstract class SchemaValueCodec implements ValueCodec {
+
+    private static final byte MAGIC_BYTE = 0;
+
+    @Override
+    public byte[] encode(String topic, Object value) {
+        int schemaId = SchemaRegistry.getLatestId(SchemaRegistry.valueSubject(topic));
+        RecordSchema schema = SchemaRegistry.getById(schemaId);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(MAGIC_BYTE);
+        out.write(schemaId >>> 24);
+        out.write(schemaId >>> 16);
+        out.write(schemaId >>> 8);
+        out.write(schemaId);
+        writeHeader(out);
+        writeRecord(schema, toJsonObject(value), out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public String decode(String topic, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (buffer.remaining() < 5 || buffer.get() != MAGIC_BYTE) {
+            throw new IllegalArgumentException("Not a schema-framed record");
+        }
+        RecordSchema schema = SchemaRegistry.getById(buffer.getInt());
+        readHeader(buffer);
+        return JsonUtils.toJson(readRecord(schema, buffer));
+    }
+
+    /**
+     * Служебные байты кодека после id схемы (по умолчанию нет)
+     */
+    void writeHeader(ByteArrayOutputStream out) {
+    }
+
+    void readHeader(ByteBuffer buffer) {
+    }
+
+    abstract void writeRecord(RecordSchema schema, JsonNode record, ByteArrayOutputStream out);
+
+    abstract ObjectNode readRecord(RecordSchema schema, ByteBuffer buffer);
+
+    /**
+     * Значение поля записи нужного схеме типа; null - поля нет (для обязательного поля - ошибка)
+     */
+    static JsonNode fieldValue(JsonNode record, RecordSchema.Field field) {
+        JsonNode element = record.get(field.name());
+        if (element == null || element.isNull()) {
+            if (!field.optional()) {
+                throw new IllegalArgumentException("Field " + field.name() + " is required by schema");
+            }
+            return null;
+        }
+        boolean matches = switch (field.type()) {
+            case STRING -> element.isTextual();
+            case INT -> element.isIntegralNumber() && element.canConvertToInt();
+            case LONG -> element.isIntegralNumber() && element.canConvertToLong();
+            case DOUBLE -> element.isNumber();
+            case BOOLEAN -> element.isBoolean();
+        };
+        if (!matches) {
+            throw new IllegalArgumentException("Field " + field.name() + " must be " + field.type() + ", got " + element);
+        }
+        return element;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static void writeDoubleLittleEndian(ByteArrayOutputStream out, double value) {
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (bits >>> (i * 8)));
+        }
+    }
+
+    static double readDoubleLittleEndian(ByteBuffer buffer) {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (buffer.get() & 0xFFL) << (i * 8);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static JsonNode toJsonObject(Object value) {
+        if (value instanceof String) {
+            throw new IllegalArgumentException("String value is a JSON string, not a record; " +
+                    "pass a Map, POJO or JsonNode (JsonUtils.readTree(json))");
+        }
+        JsonNode element = value instanceof JsonNode tree ? tree : JsonUtils.valueToTree(value);
+        if (!element.isObject()) {
+            throw new IllegalArgumentException("Value must be a JSON object, got " + element);
+        }
+        return element;
+    }
+}
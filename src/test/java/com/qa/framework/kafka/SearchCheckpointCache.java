@@ -0,0 +1,400 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Инкрементальный поиск по полю JSON с запоминанием уже просмотренных offset'ов.
+ * <p>
+ * Для каждой пары топик + поле хранится чекпоинт: по каждой partition - непрерывный диапазон
+ * уже прочитанных offset'ов и компактный индекс "значение поля -> (partition, offset, timestamp)".
+ * Повторный поиск читает из Kafka только offset'ы, которых еще нет в диапазоне (обычно - только
+ * новые сообщения после предыдущего поиска), а более старые совпадения берет из индекса
+ * и дочитывает точечно по offset'у.
+ * <p>
+ * Первый поиск одного сообщения, пока чекпоинта нет, читает окно лениво в порядке timestamp
+ * и останавливается на первом совпадении; индекс строится со следующего поиска.
+ * <p>
+ * Индекс ограничен настройкой kafka.search.index.max.entries: при переполнении вытесняются
+ * самые старые по timestamp записи, а начало прочитанного диапазона их partition сдвигается
+ * за вытесненный offset. Вытесненная часть окна в индекс больше не добавляется (иначе каждый поиск
+ * вытеснял бы ее заново) - она каждый раз читается напрямую с фильтром по значению, поэтому результат
+ * полный, даже если окно больше индекса.
+ */
+public final class SearchCheckpointCache {
+
+    private static final int MAX_WAIT_SECONDS = 10;
+    private static final PartitionScanEngine SCAN_ENGINE = PartitionScanEngine.shared();
+
+    private static final Map<CheckpointKey, Checkpoint> CHECKPOINTS = new ConcurrentHashMap<>();
+
+    private SearchCheckpointCache() {
+    }
+
+    /**
+     * Самое раннее сообщение за последние N минут, у которого поле fieldName равно fieldValue
+     */
+    public static Optional<KafkaMessage> findFirstByField(String bootstrapServers,
+                                                          String topicName,
+                                                          String fieldName,
+                                                          String fieldValue,
+                                                          int lastMinutes) {
+
+        CheckpointKey key = new CheckpointKey(bootstrapServers, topicName, fieldName);
+        if (CHECKPOINTS.putIfAbsent(key, new Checkpoint(ConfigurationManager.getKafkaSearchIndexMaxEntries())) == null) {
+            return findFirstWithoutCheckpoint(bootstrapServers, topicName, fieldName, fieldValue, lastMinutes);
+        }
+
+        for (MessageRef ref : lookup(bootstrapServers, topicName, fieldName, fieldValue, lastMinutes)) {
+            Optional<KafkaMessage> message = ConsumerAdapter.readMessageAt(
+                    bootstrapServers, topicName, ref.partition(), ref.offset());
+            if (message.isPresent()) {
+                return message;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Все сообщения за последние N минут, у которых поле fieldName равно fieldValue, по возрастанию времени
+     */
+    public static List<KafkaMessage> findAllByField(String bootstrapServers,
+                                                    String topicName,
+                                                    String fieldName,
+                                                    String fieldValue,
+                                                    int lastMinutes) {
+
+        List<KafkaMessage> messages = new ArrayList<>();
+        for (MessageRef ref : lookup(bootstrapServers, topicName, fieldName, fieldValue, lastMinutes)) {
+            ConsumerAdapter.readMessageAt(bootstrapServers, topicName, ref.partition(), ref.offset())
+                    .ifPresent(messages::add);
+        }
+        return messages;
+    }
+
+    /**
+     * Сбрасывает все чекпоинты (например, после пересоздания топика)
+     */
+    public static void clear() {
+        CHECKPOINTS.clear();
+    }
+
+    /**
+     * Чекпоинта еще нет: индексировать все окно ради одного сообщения дорого,
+     * поэтому читаем лениво до первого совпадения
+     */
+    private static Optional<KafkaMessage> findFirstWithoutCheckpoint(String bootstrapServers,
+                                                                     String topicName,
+                                                                     String fieldName,
+                                                                     String fieldValue,
+                                                                     int lastMinutes) {
+
+        long endTimestampMs = System.currentTimeMillis();
+        long startTimestampMs = endTimestampMs - (lastMinutes * 60 * 1000L);
+
+        System.out.println("\n🗂️ Search " + fieldName + " = " + fieldValue + " in " + topicName +
+                " without checkpoint, reading until the first match");
+
+        try (Stream<KafkaMessage> messages = ConsumerAdapter.streamMessagesInTimeRangeByTimestamp(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, MAX_WAIT_SECONDS)) {
+            return messages
+                    .filter(message -> fieldValue.equals(KafkaUtils.extractField(message, fieldName)))
+                    .findFirst();
+        }
+    }
+
+    private static List<MessageRef> lookup(String bootstrapServers,
+                                           String topicName,
+                                           String fieldName,
+                                           String fieldValue,
+                                           int lastMinutes) {
+
+        long endTimestampMs = System.currentTimeMillis();
+        long startTimestampMs = endTimestampMs - (lastMinutes * 60 * 1000L);
+
+        CheckpointKey key = new CheckpointKey(bootstrapServers, topicName, fieldName);
+        Checkpoint checkpoint = CHECKPOINTS.computeIfAbsent(key,
+                k -> new Checkpoint(ConfigurationManager.getKafkaSearchIndexMaxEntries()));
+
+        synchronized (checkpoint) {
+            Map<TopicPartition, PartitionScanEngine.OffsetRange> windows =
+                    SCAN_ENGINE.windowOffsets(bootstrapServers, topicName, startTimestampMs, endTimestampMs);
+
+            List<PartitionScanEngine.OffsetRange> missing = new ArrayList<>();
+            windows.values().forEach(window -> checkpoint.missingRanges(window)
+                    .forEach(range -> missing.addAll(SCAN_ENGINE.split(range))));
+
+            System.out.println("\n🗂️ Checkpoint search " + fieldName + " = " + fieldValue + " in " + topicName +
+                    ": " + missing.size() + " new ranges to read, " + checkpoint.size() + " indexed messages");
+
+            if (!missing.isEmpty()) {
+                // Временные границы не передаем - индексируем диапазоны целиком, окно проверяется при ответе
+                AtomicBoolean incomplete = new AtomicBoolean(false);
+                long evictedBefore = checkpoint.evicted();
+                SCAN_ENGINE.runRanges(bootstrapServers, topicName, missing, 0, 0,
+                        message -> {
+                            checkpoint.index(message, fieldName);
+                            return false;
+                        },
+                        Integer.MAX_VALUE, MAX_WAIT_SECONDS, incomplete);
+
+                if (incomplete.get()) {
+                    System.out.println("⚠️ Scan was not finished, matches may be incomplete; checkpoint is not moved");
+                } else {
+                    windows.values().forEach(checkpoint::markScanned);
+                }
+
+                long evicted = checkpoint.evicted() - evictedBefore;
+                if (evicted > 0) {
+                    System.out.println("⚠️ Search index of " + topicName + " is full (" + checkpoint.maxEntries +
+                            " messages), " + evicted + " oldest entries evicted");
+                }
+            }
+
+            return checkpoint.matches(fieldValue, windows, startTimestampMs, endTimestampMs, evictedRanges -> {
+                List<PartitionScanEngine.OffsetRange> ranges = new ArrayList<>();
+                evictedRanges.forEach(range -> ranges.addAll(SCAN_ENGINE.split(range)));
+                System.out.println("⚠️ Search index of " + topicName + " does not cover the whole window (" +
+                        checkpoint.maxEntries + " messages max), reading " + ranges.size() + " evicted ranges directly");
+                AtomicBoolean incomplete = new AtomicBoolean(false);
+                List<KafkaMessage> found = SCAN_ENGINE.runRanges(bootstrapServers, topicName, ranges,
+                        startTimestampMs, endTimestampMs,
+                        message -> fieldValue.equals(KafkaUtils.extractField(message, fieldName)),
+                        Integer.MAX_VALUE, MAX_WAIT_SECONDS, incomplete);
+                if (incomplete.get()) {
+                    System.out.println("⚠️ Direct scan of evicted ranges was not finished, matches may be incomplete");
+                }
+                return found;
+            });
+        }
+    }
+
+    /**
+     * Ссылка на проиндексированное сообщение
+     */
+    record MessageRef(String value, int partition, long offset, long timestamp) {
+    }
+
+    private record CheckpointKey(String bootstrapServers, String topicName, String fieldName) {
+    }
+
+    /**
+     * Чекпоинт одной пары топик + поле.
+     * Диапазоны меняются под монитором чекпоинта, индекс - под своим монитором
+     * (его пополняют потоки PartitionScanEngine, пока поиск держит монитор чекпоинта).
+     */
+    static final class Checkpoint {
+        private final int maxEntries;
+
+        // partition -> [from, to) уже прочитанных offset'ов
+        private final Map<TopicPartition, long[]> scanned = new HashMap<>();
+
+        private final Object indexLock = new Object();
+        private final Map<String, List<MessageRef>> index = new HashMap<>();
+        // Все записи индекса, самая старая по timestamp - в голове
+        private final PriorityQueue<MessageRef> byAge = new PriorityQueue<>(
+                Comparator.comparingLong(MessageRef::timestamp).thenComparingLong(MessageRef::offset));
+        // partition -> первый offset после вытесненных записей
+        private final Map<Integer, Long> evictedBelow = new HashMap<>();
+        private long evicted = 0;
+
+        Checkpoint(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+        }
+
+        /**
+         * Части окна, которых еще нет в прочитанном диапазоне partition. Вытесненная часть окна
+         * (см. {@link #evictedRanges}) сюда не входит - ее индексация снова вытеснила бы записи.
+         */
+        List<PartitionScanEngine.OffsetRange> missingRanges(PartitionScanEngine.OffsetRange window) {
+            long indexedFrom = Math.max(window.from(), evictedBelow(window.partition().partition()));
+            if (indexedFrom >= window.to()) {
+                return List.of();
+            }
+            window = new PartitionScanEngine.OffsetRange(window.partition(), indexedFrom, window.to());
+            long[] done = scanned(window.partition());
+            if (done == null || window.from() > done[1] || window.to() < done[0]) {
+                return List.of(window);
+            }
+
+            List<PartitionScanEngine.OffsetRange> missing = new ArrayList<>();
+            if (window.from() < done[0]) {
+                missing.add(new PartitionScanEngine.OffsetRange(window.partition(), window.from(), done[0]));
+            }
+            if (window.to() > done[1]) {
+                missing.add(new PartitionScanEngine.OffsetRange(window.partition(), done[1], window.to()));
+            }
+            return missing;
+        }
+
+        /**
+         * Расширяет прочитанный диапазон на окно. Если окно не пересекается с диапазоном
+         * (чекпоинт слишком старый), диапазон заменяется окном.
+         */
+        void markScanned(PartitionScanEngine.OffsetRange window) {
+            long[] done = scanned(window.partition());
+            if (done == null || window.from() > done[1] || window.to() < done[0]) {
+                done = new long[]{window.from(), window.to()};
+            } else {
+                done[0] = Math.min(done[0], window.from());
+                done[1] = Math.max(done[1], window.to());
+            }
+            // Вытесненные при этом чтении записи уже не в индексе - их offset'ы снова считаются непрочитанными
+            done[0] = Math.max(done[0], evictedBelow(window.partition().partition()));
+            if (done[0] < done[1]) {
+                scanned.put(window.partition(), done);
+            } else {
+                scanned.remove(window.partition());
+            }
+        }
+
+        /**
+         * Часть окна ниже вытесненных offset'ов: индекс ее уже не покрывает
+         */
+        List<PartitionScanEngine.OffsetRange> evictedRanges(PartitionScanEngine.OffsetRange window) {
+            long evictedTo = Math.min(window.to(), evictedBelow(window.partition().partition()));
+            return evictedTo > window.from()
+                    ? List.of(new PartitionScanEngine.OffsetRange(window.partition(), window.from(), evictedTo))
+                    : List.of();
+        }
+
+        /**
+         * Прочитанный диапазон без вытесненных из индекса offset'ов
+         */
+        private long[] scanned(TopicPartition partition) {
+            long[] done = scanned.get(partition);
+            if (done == null) {
+                return null;
+            }
+            done[0] = Math.max(done[0], evictedBelow(partition.partition()));
+            if (done[0] >= done[1]) {
+                scanned.remove(partition);
+                return null;
+            }
+            return done;
+        }
+
+        /**
+         * Вызывается из потоков PartitionScanEngine
+         */
+        void index(KafkaMessage message, String fieldName) {
+            String value = KafkaUtils.extractField(message, fieldName);
+            if (value == null) {
+                return;
+            }
+            MessageRef ref = new MessageRef(value, message.getPartition(), message.getOffset(), message.getTimestamp());
+
+            synchronized (indexLock) {
+                List<MessageRef> refs = index.computeIfAbsent(value, v -> new ArrayList<>(1));
+                for (MessageRef existing : refs) {
+                    if (existing.partition() == ref.partition() && existing.offset() == ref.offset()) {
+                        return;
+                    }
+                }
+                refs.add(ref);
+                byAge.add(ref);
+
+                while (byAge.size() > maxEntries) {
+                    evict(byAge.poll());
+                }
+            }
+        }
+
+        private void evict(MessageRef oldest) {
+            List<MessageRef> refs = index.get(oldest.value());
+            refs.remove(oldest);
+            if (refs.isEmpty()) {
+                index.remove(oldest.value());
+            }
+            evictedBelow.merge(oldest.partition(), oldest.offset() + 1, Math::max);
+            evicted++;
+        }
+
+        private long evictedBelow(int partition) {
+            synchronized (indexLock) {
+                return evictedBelow.getOrDefault(partition, Long.MIN_VALUE);
+            }
+        }
+
+        int size() {
+            synchronized (indexLock) {
+                return byAge.size();
+            }
+        }
+
+        long evicted() {
+            synchronized (indexLock) {
+                return evicted;
+            }
+        }
+
+        /**
+         * Совпадения в окне: из индекса и из вытесненной части окна, прочитанной через scanEvicted
+         * (получает диапазоны, возвращает совпавшие сообщения). Без порядка по времени, без повторов.
+         */
+        List<MessageRef> matches(String fieldValue,
+                                 Map<TopicPartition, PartitionScanEngine.OffsetRange> windows,
+                                 long startTimestampMs,
+                                 long endTimestampMs,
+                                 Function<List<PartitionScanEngine.OffsetRange>, List<KafkaMessage>> scanEvicted) {
+
+            List<MessageRef> matches = matches(fieldValue, windows, startTimestampMs, endTimestampMs);
+            List<PartitionScanEngine.OffsetRange> evictedRanges = new ArrayList<>();
+            windows.values().forEach(window -> evictedRanges.addAll(evictedRanges(window)));
+            if (evictedRanges.isEmpty()) {
+                return matches;
+            }
+
+            Set<String> seen = new HashSet<>();
+            matches.forEach(ref -> seen.add(ref.partition() + ":" + ref.offset()));
+            for (KafkaMessage message : scanEvicted.apply(evictedRanges)) {
+                if (seen.add(message.getPartition() + ":" + message.getOffset())) {
+                    matches.add(new MessageRef(fieldValue, message.getPartition(), message.getOffset(),
+                            message.getTimestamp()));
+                }
+            }
+            sortByTime(matches);
+            return matches;
+        }
+
+        /**
+         * Совпадения только из индекса
+         */
+        List<MessageRef> matches(String fieldValue,
+                                 Map<TopicPartition, PartitionScanEngine.OffsetRange> windows,
+                                 long startTimestampMs,
+                                 long endTimestampMs) {
+
+            List<MessageRef> matches = new ArrayList<>();
+            synchronized (indexLock) {
+                for (MessageRef ref : index.getOrDefault(fieldValue, Collections.emptyList())) {
+                    PartitionScanEngine.OffsetRange window = windows.values().stream()
+                            .filter(range -> range.partition().partition() == ref.partition())
+                            .findFirst()
+                            .orElse(null);
+                    if (window != null && ref.offset() >= window.from() && ref.offset() < window.to() &&
+                            ref.timestamp() >= startTimestampMs && ref.timestamp() <= endTimestampMs) {
+                        matches.add(ref);
+                    }
+                }
+            }
+            sortByTime(matches);
+            return matches;
+        }
+
+        private static void sortByTime(List<MessageRef> matches) {
+            matches.sort(Comparator.comparingLong(MessageRef::timestamp)
+                    .thenComparingInt(MessageRef::partition)
+                    .thenComparingLong(MessageRef::offset));
+        }
+    }
+}
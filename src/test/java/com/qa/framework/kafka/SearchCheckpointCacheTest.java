@@ -0,0 +1,152 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Чекпоинт поиска без брокера: продолжение с прочитанного диапазона и вытеснение старых записей индекса
+ */
+class SearchCheckpointCacheTest {
+
+    private static final String FIELD = "testRunId";
+    private static final TopicPartition PARTITION = new TopicPartition("orders", 0);
+
+    @Test
+    @DisplayName("🗂️ Повторный поиск читает только новые offset'ы после чекпоинта")
+    void testResumeFromCheckpoint() {
+        SearchCheckpointCache.Checkpoint checkpoint = new SearchCheckpointCache.Checkpoint(100);
+        PartitionScanEngine.OffsetRange first = range(0, 10);
+
+        assertEquals(List.of(first), checkpoint.missingRanges(first));
+        indexOffsets(checkpoint, 0, 10);
+        checkpoint.markScanned(first);
+
+        // Окно сдвинулось: начало уже прочитано, дочитать нужно только хвост
+        assertEquals(List.of(range(10, 15)), checkpoint.missingRanges(range(5, 15)));
+        indexOffsets(checkpoint, 10, 15);
+        checkpoint.markScanned(range(5, 15));
+
+        assertTrue(checkpoint.missingRanges(range(0, 15)).isEmpty());
+        assertEquals(15, checkpoint.size());
+
+        List<SearchCheckpointCache.MessageRef> matches = checkpoint.matches("RUN-12", Map.of(PARTITION, range(5, 15)),
+                0, Long.MAX_VALUE);
+        assertEquals(1, matches.size());
+        assertEquals(12, matches.get(0).offset());
+    }
+
+    @Test
+    @DisplayName("🗂️ Окно вне старого чекпоинта читается целиком")
+    void testWindowOutsideCheckpoint() {
+        SearchCheckpointCache.Checkpoint checkpoint = new SearchCheckpointCache.Checkpoint(100);
+        indexOffsets(checkpoint, 0, 10);
+        checkpoint.markScanned(range(0, 10));
+
+        assertEquals(List.of(range(20, 30)), checkpoint.missingRanges(range(20, 30)));
+        assertEquals(List.of(range(10, 12)), checkpoint.missingRanges(range(0, 12)));
+    }
+
+    @Test
+    @DisplayName("🗂️ Переполнение вытесняет самые старые записи, а не весь чекпоинт")
+    void testOverflowEvictsOldest() {
+        SearchCheckpointCache.Checkpoint checkpoint = new SearchCheckpointCache.Checkpoint(10);
+        indexOffsets(checkpoint, 0, 15);
+        checkpoint.markScanned(range(0, 15));
+
+        assertEquals(10, checkpoint.size());
+        assertEquals(5, checkpoint.evicted());
+
+        // Вытесненные offset'ы 0..4 не индексируются заново, а отдаются на прямое чтение
+        assertTrue(checkpoint.missingRanges(range(0, 15)).isEmpty());
+        assertEquals(List.of(range(0, 5)), checkpoint.evictedRanges(range(0, 15)));
+        assertTrue(checkpoint.evictedRanges(range(5, 15)).isEmpty());
+
+        Map<TopicPartition, PartitionScanEngine.OffsetRange> window = Map.of(PARTITION, range(0, 15));
+        assertTrue(checkpoint.matches("RUN-2", window, 0, Long.MAX_VALUE).isEmpty());
+        assertEquals(1, checkpoint.matches("RUN-14", window, 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("🗂️ Окно больше индекса: вытесненная часть читается напрямую, результат полный")
+    void testWindowLargerThanIndex() {
+        SearchCheckpointCache.Checkpoint checkpoint = new SearchCheckpointCache.Checkpoint(10);
+        PartitionScanEngine.OffsetRange full = range(0, 25);
+        // Все сообщения окна с одним значением - половина вытесняется в том же поиске
+        for (long offset = 0; offset < 25; offset++) {
+            checkpoint.index(message(offset, "RUN-SHARED"), FIELD);
+        }
+        checkpoint.markScanned(full);
+        assertEquals(10, checkpoint.size());
+
+        List<List<PartitionScanEngine.OffsetRange>> directScans = new ArrayList<>();
+        Function<List<PartitionScanEngine.OffsetRange>, List<KafkaMessage>> scan = ranges -> {
+            directScans.add(ranges);
+            List<KafkaMessage> found = new ArrayList<>();
+            for (PartitionScanEngine.OffsetRange range : ranges) {
+                for (long offset = range.from(); offset < range.to(); offset++) {
+                    found.add(message(offset, "RUN-SHARED"));
+                }
+            }
+            // Граничный offset, который есть и в индексе, не должен задвоиться
+            found.add(message(15, "RUN-SHARED"));
+            return found;
+        };
+
+        Map<TopicPartition, PartitionScanEngine.OffsetRange> window = Map.of(PARTITION, full);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            List<SearchCheckpointCache.MessageRef> matches =
+                    checkpoint.matches("RUN-SHARED", window, 0, Long.MAX_VALUE, scan);
+            assertEquals(25, matches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                assertEquals(i, matches.get(i).offset(), "Порядок по времени");
+            }
+
+            // Повторный поиск не индексирует вытесненное заново и не вытесняет остальное
+            assertTrue(checkpoint.missingRanges(full).isEmpty());
+            assertEquals(10, checkpoint.size());
+            assertEquals(15, checkpoint.evicted());
+        }
+        assertEquals(List.of(List.of(range(0, 15)), List.of(range(0, 15))), directScans);
+
+        // Окно внутри индекса прямого чтения не требует
+        assertEquals(1, checkpoint.matches("RUN-SHARED", Map.of(PARTITION, range(20, 21)), 0, Long.MAX_VALUE,
+                ranges -> fail("Лишнее прямое чтение " + ranges)).size());
+    }
+
+    @Test
+    @DisplayName("🗂️ Повторная индексация того же offset'а не дублирует запись")
+    void testReindexDoesNotDuplicate() {
+        SearchCheckpointCache.Checkpoint checkpoint = new SearchCheckpointCache.Checkpoint(10);
+        indexOffsets(checkpoint, 0, 5);
+        indexOffsets(checkpoint, 0, 5);
+
+        assertEquals(5, checkpoint.size());
+        assertEquals(0, checkpoint.evicted());
+    }
+
+    private static PartitionScanEngine.OffsetRange range(long from, long to) {
+        return new PartitionScanEngine.OffsetRange(PARTITION, from, to);
+    }
+
+    /**
+     * Сообщения с offset'ами [from, to), testRunId = RUN-offset, timestamp растет вместе с offset'ом
+     */
+    private static void indexOffsets(SearchCheckpointCache.Checkpoint checkpoint, long from, long to) {
+        for (long offset = from; offset < to; offset++) {
+            checkpoint.index(message(offset, "RUN-" + offset), FIELD);
+        }
+    }
+
+    private static KafkaMessage message(long offset, String runId) {
+        return new KafkaMessage(new ArrayList<>(), "{\"" + FIELD + "\":\"" + runId + "\"}",
+                PARTITION.partition(), offset, 1_000L + offset, null, PARTITION.topic());
+    }
+}
@@ -0,0 +1,115 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/**
+ * k-way слияние нескольких последовательностей (обычно по одной на partition) в одну, упорядоченную по timestamp.
+ * <p>
+ * Записи partition уже упорядочены по offset'у, поэтому достаточно держать в куче только "голову" каждой
+ * последовательности: в памяти k элементов, а следующий элемент источника запрашивается только после того,
+ * как отдан предыдущий - ленивые источники читаются по мере потребления.
+ * Записи с одинаковым timestamp не теряются: при равенстве первой идет запись из источника с меньшим индексом,
+ * а внутри одного источника сохраняется его порядок.
+ */
+public final class TimestampMerge {
+
+    private TimestampMerge() {
+    }
+
+    /**
+     * Ленивое слияние источников по timestamp
+     */
+    public static <T> Iterator<T> merge(List<? extends Iterator<? extends T>> sources,
+                                        ToLongFunction<? super T> timestamp) {
+        return new MergeIterator<>(sources, timestamp);
+    }
+
+    /**
+     * Записи пачки poll() в порядке timestamp (все partitions пачки)
+     */
+    public static <K, V> List<ConsumerRecord<K, V>> sortedByTimestamp(ConsumerRecords<K, V> records) {
+        List<Iterator<ConsumerRecord<K, V>>> sources = new ArrayList<>();
+        partitionsInOrder(records.partitions())
+                .forEach(partition -> sources.add(records.records(partition).iterator()));
+
+        List<ConsumerRecord<K, V>> result = new ArrayList<>(records.count());
+        merge(sources, ConsumerRecord::timestamp).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * Последние count элементов слияния: в памяти держится не больше count элементов
+     */
+    public static <T> List<T> tail(Iterator<T> merged, int count) {
+        ArrayDeque<T> last = new ArrayDeque<>(Math.max(count, 1));
+        while (merged.hasNext()) {
+            T item = merged.next();
+            if (count <= 0) {
+                continue;
+            }
+            if (last.size() == count) {
+                last.pollFirst();
+            }
+            last.addLast(item);
+        }
+        return new ArrayList<>(last);
+    }
+
+    static List<TopicPartition> partitionsInOrder(Collection<TopicPartition> partitions) {
+        List<TopicPartition> ordered = new ArrayList<>(partitions);
+        ordered.sort(Comparator.comparing(TopicPartition::topic).thenComparingInt(TopicPartition::partition));
+        return ordered;
+    }
+
+    private static final class MergeIterator<T> implements Iterator<T> {
+        private final List<? extends Iterator<? extends T>> sources;
+        private final ToLongFunction<? super T> timestamp;
+        private final PriorityQueue<Head<T>> heads;
+        private boolean initialized = false;
+
+        MergeIterator(List<? extends Iterator<? extends T>> sources, ToLongFunction<? super T> timestamp) {
+            this.sources = sources;
+            this.timestamp = timestamp;
+            this.heads = new PriorityQueue<>(Math.max(sources.size(), 1),
+                    Comparator.comparingLong((Head<T> head) -> head.timestamp()).thenComparingInt(Head::source));
+        }
+
+        @Override
+        public boolean hasNext() {
+            // Источники не трогаем до первого запроса - ленивый источник не начинает чтение заранее
+            if (!initialized) {
+                initialized = true;
+                for (int i = 0; i < sources.size(); i++) {
+                    advance(i);
+                }
+            }
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Head<T> head = heads.poll();
+            advance(head.source());
+            return head.item();
+        }
+
+        private void advance(int source) {
+            Iterator<? extends T> iterator = sources.get(source);
+            if (iterator.hasNext()) {
+                T item = iterator.next();
+                heads.add(new Head<>(item, timestamp.applyAsLong(item), source));
+            }
+        }
+    }
+
+    private record Head<T>(T item, long timestamp, int source) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Ленивый итератор по сообщениям топика за временной диапазон в порядке timestamp по всем partitions.
+ * <p>
+ * Один консюмер из {@link ConsumerPool} раскладывает записи по буферам partitions, а {@link TimestampMerge}
+ * сливает буферы по timestamp. poll() вызывается только когда опустел буфер partition, чья запись нужна
+ * следующей; partitions с переполненным буфером ставятся на паузу, поэтому в памяти держится не больше
+ * ~{@link #MAX_BUFFERED_PER_PARTITION} записей на partition, а не весь диапазон.
+ * <p>
+ * Граница чтения - конец топика на момент старта (новые записи не ожидаются).
+ */
+final class TimestampOrderedScanIterator implements Iterator<KafkaMessage>, AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final int MAX_BUFFERED_PER_PARTITION = 2000;
+
+    private final ConsumerPool.Lease<byte[], byte[]> lease;
+    private final KafkaConsumer<byte[], byte[]> consumer;
+    private final long startTimestampMs;
+    private final long endTimestampMs;
+    private final long deadlineMs;
+    private final Map<TopicPartition, Long> bounds;
+    private final Map<TopicPartition, Deque<ConsumerRecord<byte[], byte[]>>> buffers = new HashMap<>();
+    private final Set<TopicPartition> completed = new HashSet<>();
+    private final Iterator<ConsumerRecord<byte[], byte[]>> merged;
+
+    private boolean timedOut = false;
+    private boolean closed = false;
+    private long scannedRecords = 0;
+
+    /**
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    TimestampOrderedScanIterator(ConsumerPool.Lease<byte[], byte[]> lease,
+                                 long startTimestampMs,
+                                 long endTimestampMs,
+                                 int maxWaitSeconds) {
+        this.lease = lease;
+        this.consumer = lease.consumer();
+        this.startTimestampMs = startTimestampMs;
+        this.endTimestampMs = endTimestampMs;
+        this.deadlineMs = System.currentTimeMillis() + maxWaitSeconds * 1000L;
+
+        List<TopicPartition> partitions = TimestampMerge.partitionsInOrder(lease.assignment());
+        try {
+            if (!partitions.isEmpty()) {
+                ConsumerAdapter.seekToTimestamp(consumer, lease.assignment(), startTimestampMs);
+            }
+            long boundTimestampMs = endTimestampMs > System.currentTimeMillis() ? 0 : endTimestampMs;
+            this.bounds = partitions.isEmpty()
+                    ? Collections.emptyMap()
+                    : ConsumerAdapter.snapshotEndOffsets(consumer, lease.assignment(), boundTimestampMs);
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            close();
+            throw e;
+        }
+
+        List<Iterator<ConsumerRecord<byte[], byte[]>>> cursors = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            buffers.put(partition, new ArrayDeque<>());
+            cursors.add(new PartitionCursor(partition));
+        }
+        this.merged = TimestampMerge.merge(cursors, ConsumerRecord::timestamp);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && merged.hasNext();
+    }
+
+    @Override
+    public KafkaMessage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return new LazyKafkaMessage(merged.next());
+    }
+
+    /**
+     * Записи одной partition из общего консюмера
+     */
+    private final class PartitionCursor implements Iterator<ConsumerRecord<byte[], byte[]>> {
+        private final TopicPartition partition;
+
+        PartitionCursor(TopicPartition partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public boolean hasNext() {
+            Deque<ConsumerRecord<byte[], byte[]>> buffer = buffers.get(partition);
+            while (buffer.isEmpty() && !isCompleted(partition) && !timedOut) {
+                fetchFor(partition);
+            }
+            return !buffer.isEmpty();
+        }
+
+        @Override
+        public ConsumerRecord<byte[], byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffers.get(partition).pollFirst();
+        }
+    }
+
+    private boolean isCompleted(TopicPartition partition) {
+        if (completed.contains(partition)) {
+            return true;
+        }
+        if (consumer.position(partition) >= bounds.getOrDefault(partition, 0L)) {
+            completed.add(partition);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Один poll() для partition с пустым буфером: она снимается с паузы, переполненные и дочитанные - ставятся
+     */
+    private void fetchFor(TopicPartition needed) {
+        try {
+            if (System.currentTimeMillis() >= deadlineMs) {
+                System.out.println("   ⏱️ Scan time limit reached after " + scannedRecords + " records");
+                timedOut = true;
+                return;
+            }
+
+            List<TopicPartition> toPause = new ArrayList<>();
+            for (Map.Entry<TopicPartition, Deque<ConsumerRecord<byte[], byte[]>>> entry : buffers.entrySet()) {
+                TopicPartition partition = entry.getKey();
+                if (!partition.equals(needed) &&
+                        (entry.getValue().size() >= MAX_BUFFERED_PER_PARTITION || isCompleted(partition))) {
+                    toPause.add(partition);
+                }
+            }
+            Set<TopicPartition> toResume = new HashSet<>(consumer.paused());
+            toResume.removeAll(toPause);
+            toResume.removeIf(this::isCompleted);
+            toResume.add(needed);
+
+            consumer.pause(toPause);
+            consumer.resume(toResume);
+
+            for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                scannedRecords++;
+                if (!ConsumerAdapter.isBeforeBound(record, bounds)) {
+                    continue;
+                }
+                if (record.timestamp() < startTimestampMs ||
+                        (endTimestampMs > 0 && record.timestamp() > endTimestampMs)) {
+                    continue;
+                }
+                buffers.get(new TopicPartition(record.topic(), record.partition())).addLast(record);
+            }
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            timedOut = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffers.values().forEach(Deque::clear);
+        System.out.println("📊 Ordered scan finished, records scanned: " + scannedRecords);
+        lease.close();
+    }
+}
@@ -0,0 +1,121 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.KafkaConfig;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Метаданные топиков через общий AdminClient.
+ * <p>
+ * AdminClient создается лениво, один на bootstrap servers, и живет до остановки JVM.
+ * Запросы (describeTopics, listOffsets) стоят одинаково независимо от объема топика -
+ * сообщения не читаются, консюмеры и consumer group не создаются.
+ */
+public final class TopicMetadata {
+
+    private static final long REQUEST_TIMEOUT_SECONDS = 10;
+    private static final KafkaConfig KAFKA_CONFIG = new KafkaConfig();
+    private static final Map<String, Admin> ADMINS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(TopicMetadata::closeAll, "kafka-admin-shutdown"));
+    }
+
+    private TopicMetadata() {
+    }
+
+    /**
+     * Partitions топика; пустой список - если топика нет
+     */
+    public static List<TopicPartition> partitions(String bootstrapServers, String topicName) {
+        try {
+            TopicDescription description = await(admin(bootstrapServers)
+                    .describeTopics(List.of(topicName))
+                    .allTopicNames())
+                    .get(topicName);
+
+            List<TopicPartition> partitions = new ArrayList<>();
+            description.partitions().forEach(info -> partitions.add(new TopicPartition(topicName, info.partition())));
+            partitions.sort(Comparator.comparingInt(TopicPartition::partition));
+            return partitions;
+
+        } catch (UnknownTopicOrPartitionException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Offset'ы (и timestamp'ы, если брокер их возвращает) для всех partitions по одной спецификации:
+     * earliest / latest / maxTimestamp / forTimestamp. Для forTimestamp offset -1 означает,
+     * что в partition нет сообщений не старше заданного времени.
+     */
+    public static Map<TopicPartition, ListOffsetsResultInfo> listOffsets(String bootstrapServers,
+                                                                         Collection<TopicPartition> partitions,
+                                                                         OffsetSpec spec) {
+        if (partitions.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        partitions.forEach(partition -> request.put(partition, spec));
+        return await(admin(bootstrapServers).listOffsets(request).all());
+    }
+
+    /**
+     * Закрывает все AdminClient
+     */
+    public static void closeAll() {
+        ADMINS.values().forEach(admin -> {
+            try {
+                admin.close(Duration.ofSeconds(5));
+            } catch (Exception e) {
+                System.err.println("⚠️ Error closing AdminClient: " + e.getMessage());
+            }
+        });
+        ADMINS.clear();
+    }
+
+    private static Admin admin(String bootstrapServers) {
+        String servers = bootstrapServers != null && !bootstrapServers.isBlank()
+                ? bootstrapServers
+                : KAFKA_CONFIG.getBootstrapServers();
+
+        return ADMINS.computeIfAbsent(servers, key -> {
+            Properties props = KAFKA_CONFIG.getKafkaAdminProperties();
+            props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, key);
+            System.out.println("🔌 Creating AdminClient for " + key);
+            return Admin.create(props);
+        });
+    }
+
+    /**
+     * Ожидает результат запроса AdminClient; ошибки брокера пробрасываются как есть (RuntimeException)
+     */
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for AdminClient", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("AdminClient request timed out after " + REQUEST_TIMEOUT_SECONDS + "s", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("AdminClient request failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
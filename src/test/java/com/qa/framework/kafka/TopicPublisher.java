@@ -0,0 +1,256 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Топик как {@link Flow.Publisher}: сообщения отдаются подписчику по мере его запросов (request(n)).
+ * <p>
+ * Каждая подписка получает свой консюмер из {@link ConsumerPool} и свой поток доставки.
+ * Записи читаются впрок, но не больше kafka.publisher.buffer.size: когда буфер заполнен (подписчик отстает),
+ * partitions ставятся на паузу, а когда подписчик разобрал половину буфера - снимаются с нее.
+ * Поэтому память не растет на загруженном топике, сколько бы подписчик ни отставал.
+ * <p>
+ * С конечным timestamp подписка завершается onComplete, когда все partitions дочитаны до границы;
+ * без него - читает новые сообщения, пока подписчик не вызовет cancel().
+ * Сообщения - {@link LazyKafkaMessage}.
+ * <p>
+ * Исключение из onSubscribe/onNext подписчика считается отменой подписки (Reactive Streams §2.13):
+ * оно пишется в лог, onError после него не вызывается.
+ */
+public final class TopicPublisher implements Flow.Publisher<KafkaMessage> {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+    private static final long IDLE_WAIT_MS = 100;
+
+    private final String bootstrapServers;
+    private final String topicName;
+    private final long startTimestampMs;
+    private final long endTimestampMs;
+    private final int bufferSize;
+
+    private TopicPublisher(String bootstrapServers, String topicName, long startTimestampMs, long endTimestampMs) {
+        this.bootstrapServers = bootstrapServers;
+        this.topicName = topicName;
+        this.startTimestampMs = startTimestampMs;
+        this.endTimestampMs = endTimestampMs;
+        this.bufferSize = Math.max(2, ConfigurationManager.getKafkaPublisherBufferSize());
+    }
+
+    /**
+     * Новые сообщения топика, начиная с момента подписки. Момент фиксируется в subscribe(), а не после
+     * получения консюмера, поэтому сообщения, отправленные сразу после subscribe(), не теряются.
+     */
+    public static TopicPublisher fromNow(String bootstrapServers, String topicName) {
+        return new TopicPublisher(bootstrapServers, topicName, -1, 0);
+    }
+
+    /**
+     * Сообщения, начиная с timestamp, и далее все новые
+     */
+    public static TopicPublisher fromTimestamp(String bootstrapServers, String topicName, long startTimestampMs) {
+        return new TopicPublisher(bootstrapServers, topicName, startTimestampMs, 0);
+    }
+
+    /**
+     * Сообщения за диапазон [startTimestampMs, endTimestampMs] с onComplete в конце
+     */
+    public static TopicPublisher inTimeRange(String bootstrapServers,
+                                             String topicName,
+                                             long startTimestampMs,
+                                             long endTimestampMs) {
+        if (endTimestampMs <= 0) {
+            throw new IllegalArgumentException("endTimestampMs must be positive");
+        }
+        return new TopicPublisher(bootstrapServers, topicName, startTimestampMs, endTimestampMs);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super KafkaMessage> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        long fromMs = startTimestampMs >= 0 ? startTimestampMs : System.currentTimeMillis();
+        new TopicSubscription(subscriber, fromMs).start();
+    }
+
+    private final class TopicSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super KafkaMessage> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final Deque<ConsumerRecord<byte[], byte[]>> buffer = new ArrayDeque<>();
+        private final Object signal = new Object();
+        private final long fromMs;
+        private final Thread thread;
+
+        private volatile boolean cancelled = false;
+        private volatile IllegalArgumentException invalidRequest;
+
+        TopicSubscription(Flow.Subscriber<? super KafkaMessage> subscriber, long fromMs) {
+            this.subscriber = subscriber;
+            this.fromMs = fromMs;
+            this.thread = new Thread(this::run, "kafka-publisher-" + topicName);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // Reactive Streams §3.9
+                invalidRequest = new IllegalArgumentException("request(n) requires n > 0, got " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            wakeUp();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+
+        private void run() {
+            ConsumerPool.Lease<byte[], byte[]> lease;
+            try {
+                lease = ConsumerPool.borrowRaw(bootstrapServers, topicName);
+            } catch (RuntimeException e) {
+                if (signalSubscribe()) {
+                    subscriber.onError(e);
+                }
+                return;
+            }
+
+            try (lease) {
+                try {
+                    if (signalSubscribe()) {
+                        deliver(lease);
+                    }
+                } catch (Throwable e) {
+                    lease.invalidate();
+                    if (!cancelled) {
+                        cancelled = true;
+                        System.err.println("❌ Publisher for topic " + topicName + " failed: " + e.getMessage());
+                        subscriber.onError(e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * onSubscribe; исключение подписчика - отмена (§2.13)
+         */
+        private boolean signalSubscribe() {
+            try {
+                subscriber.onSubscribe(this);
+                return true;
+            } catch (Throwable e) {
+                subscriberFailed("onSubscribe", e);
+                return false;
+            }
+        }
+
+        /**
+         * onNext; исключение подписчика - отмена (§2.13)
+         */
+        private void signalNext(ConsumerRecord<byte[], byte[]> record) {
+            try {
+                subscriber.onNext(new LazyKafkaMessage(record));
+            } catch (Throwable e) {
+                subscriberFailed("onNext", e);
+            }
+        }
+
+        private void subscriberFailed(String method, Throwable e) {
+            cancelled = true;
+            System.err.println("❌ Subscriber of topic " + topicName + " threw from " + method +
+                    ", subscription cancelled: " + e);
+        }
+
+        private void deliver(ConsumerPool.Lease<byte[], byte[]> lease) throws InterruptedException {
+            KafkaConsumer<byte[], byte[]> consumer = lease.consumer();
+            Set<TopicPartition> partitions = lease.assignment();
+
+            ConsumerAdapter.seekToTimestamp(consumer, partitions, fromMs);
+            Map<TopicPartition, Long> bounds = endTimestampMs > 0
+                    ? ConsumerAdapter.snapshotEndOffsets(consumer, partitions, endTimestampMs)
+                    : null;
+            boolean throttled = false;
+            long published = 0;
+
+            while (!cancelled) {
+                if (invalidRequest != null) {
+                    cancelled = true;
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+
+                while (demand.get() > 0 && !buffer.isEmpty() && !cancelled) {
+                    demand.decrementAndGet();
+                    published++;
+                    signalNext(buffer.pollFirst());
+                }
+
+                boolean allCompleted = bounds != null && ConsumerAdapter.pauseCompletedPartitions(consumer, bounds);
+                if (allCompleted && buffer.isEmpty()) {
+                    if (!cancelled) {
+                        cancelled = true;
+                        System.out.println("✅ Publisher for topic " + topicName + " completed, published " + published);
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+
+                // Подписчик отстает - читать дальше некуда: пауза partitions до разбора половины буфера
+                if (!throttled && buffer.size() >= bufferSize) {
+                    consumer.pause(partitions);
+                    throttled = true;
+                } else if (throttled && buffer.size() <= bufferSize / 2) {
+                    Set<TopicPartition> active = new HashSet<>(partitions);
+                    if (bounds != null) {
+                        active.removeIf(partition -> consumer.position(partition) >= bounds.get(partition));
+                    }
+                    consumer.resume(active);
+                    throttled = false;
+                }
+
+                if ((throttled || allCompleted) && demand.get() == 0) {
+                    synchronized (signal) {
+                        if (demand.get() == 0 && !cancelled && invalidRequest == null) {
+                            signal.wait(IDLE_WAIT_MS);
+                        }
+                    }
+                    continue;
+                }
+                if (throttled || allCompleted) {
+                    continue;
+                }
+
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (startTimestampMs >= 0 && record.timestamp() < startTimestampMs) {
+                        continue;
+                    }
+                    if (bounds != null && (!ConsumerAdapter.isBeforeBound(record, bounds) ||
+                            record.timestamp() > endTimestampMs)) {
+                        continue;
+                    }
+                    buffer.addLast(record);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Фоновое чтение топика с индексом корреляционных ключей.
+ * <p>
+ * Tailer держит один консюмер из {@link ConsumerPool} и читает топик в отдельном потоке,
+ * запоминая для каждого значения корреляционного ключа позиции сообщений (partition, offset).
+ * Ключи - поля JSON тела (по умолчанию testRunId) и заголовки (по умолчанию X-Transaction-Req-Id),
+ * список настраивается через kafka.tailer.fields / kafka.tailer.headers.
+ * Поиск по ключу - обращение к HashMap и одно чтение по offset'у вместо сканирования топика.
+ * <p>
+ * Индекс ограничен по размеру (kafka.tailer.index.max.entries позиций) и по времени
+ * (kafka.tailer.retention.minutes): вытесняются отдельные позиции в порядке чтения, самые старые первыми,
+ * так что часто встречающийся ключ не держит в индексе свои старые позиции.
+ * Поиск возвращает самое раннее совпадение - как и поиск по топику; {@link #covers(long)} говорит,
+ * проиндексированы ли все прочитанные сообщения начиная с заданного времени.
+ * <p>
+ * Tailer'ы не запускаются сами - их нужно явно стартовать через {@link #start(String, String)}.
+ */
+public final class TopicTailer implements AutoCloseable {
+
+    public static final String TRANSACTION_ID_HEADER = "X-Transaction-Req-Id";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final Map<TailerKey, TopicTailer> TAILERS = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(TopicTailer::stopAll, "kafka-tailer-shutdown"));
+    }
+
+    private final TailerKey key;
+    private final Set<String> bodyFields;
+    private final Set<String> headerNames;
+    private final long retentionMs;
+    private final CorrelationIndex index;
+    private final ConsumerPool.Lease<byte[], byte[]> lease;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    private TopicTailer(TailerKey key,
+                        Collection<String> bodyFields,
+                        Collection<String> headerNames,
+                        long backfillFromMs) {
+        this.key = key;
+        this.bodyFields = Set.copyOf(bodyFields);
+        this.headerNames = Set.copyOf(headerNames);
+        this.retentionMs = ConfigurationManager.getKafkaTailerRetentionMinutes() * 60 * 1000L;
+        this.index = new CorrelationIndex(ConfigurationManager.getKafkaTailerIndexMaxEntries(), backfillFromMs);
+
+        this.lease = ConsumerPool.borrowRaw(key.bootstrapServers(), key.topicName());
+        try {
+            ConsumerAdapter.seekToTimestamp(lease.consumer(), lease.assignment(), backfillFromMs);
+        } catch (RuntimeException e) {
+            lease.invalidate();
+            lease.close();
+            throw e;
+        }
+
+        this.thread = new Thread(this::run, "kafka-tailer-" + key.topicName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Запускает tailer топика с ключами из настроек (или возвращает уже запущенный)
+     */
+    public static TopicTailer start(String bootstrapServers, String topicName) {
+        return start(bootstrapServers, topicName,
+                ConfigurationManager.getKafkaTailerFields(), ConfigurationManager.getKafkaTailerHeaders());
+    }
+
+    /**
+     * Запускает tailer топика (или возвращает уже запущенный).
+     * Индекс заполняется начиная с сообщений за последние kafka.tailer.backfill.minutes минут.
+     * Уже запущенный tailer возвращается, только если он индексирует все запрошенные поля и заголовки -
+     * иначе IllegalStateException: прочитанные им сообщения по новым ключам не проиндексированы,
+     * и поиск по ним молча ничего бы не находил. Чтобы сменить ключи, закройте tailer и запустите заново.
+     *
+     * @param bodyFields  поля верхнего уровня JSON тела, по которым строится индекс
+     * @param headerNames заголовки, по которым строится индекс
+     */
+    public static TopicTailer start(String bootstrapServers,
+                                    String topicName,
+                                    Collection<String> bodyFields,
+                                    Collection<String> headerNames) {
+        TailerKey key = new TailerKey(bootstrapServers, topicName);
+        TopicTailer existing = TAILERS.get(key);
+        if (existing != null) {
+            return existing.requireIndexes(bodyFields, headerNames);
+        }
+
+        // Консюмер и seek - вне computeIfAbsent: долгие операции не держат блокировку ConcurrentHashMap
+        long backfillFromMs = System.currentTimeMillis() -
+                ConfigurationManager.getKafkaTailerBackfillMinutes() * 60 * 1000L;
+        TopicTailer tailer = new TopicTailer(key, bodyFields, headerNames, backfillFromMs);
+        TopicTailer raced = TAILERS.putIfAbsent(key, tailer);
+        if (raced != null) {
+            // Другой поток успел запустить tailer - наш консюмер возвращается в пул неиспользованным
+            tailer.lease.close();
+            return raced.requireIndexes(bodyFields, headerNames);
+        }
+
+        tailer.thread.start();
+        System.out.println("🛰️ Tailer started for topic " + topicName +
+                ", fields " + bodyFields + ", headers " + headerNames);
+        return tailer;
+    }
+
+    private TopicTailer requireIndexes(Collection<String> requestedFields, Collection<String> requestedHeaders) {
+        if (!bodyFields.containsAll(requestedFields) || !headerNames.containsAll(requestedHeaders)) {
+            throw new IllegalStateException("Tailer for topic " + key.topicName() + " already runs with fields " +
+                    bodyFields + " and headers " + headerNames + ", requested fields " + requestedFields +
+                    " and headers " + requestedHeaders + "; close it before starting with other keys");
+        }
+        return this;
+    }
+
+    /**
+     * Запущенный tailer топика, если есть
+     */
+    public static Optional<TopicTailer> get(String bootstrapServers, String topicName) {
+        return Optional.ofNullable(TAILERS.get(new TailerKey(bootstrapServers, topicName)));
+    }
+
+    /**
+     * Останавливает все tailer'ы
+     */
+    public static void stopAll() {
+        new ArrayList<>(TAILERS.values()).forEach(TopicTailer::close);
+    }
+
+    /**
+     * Самое раннее проиндексированное сообщение с полем тела fieldName = value и timestamp >= sinceTimestampMs
+     */
+    public Optional<KafkaMessage> findByField(String fieldName, String value, long sinceTimestampMs) {
+        return fetchFirst(positionsByField(fieldName, value), sinceTimestampMs);
+    }
+
+    /**
+     * Самое раннее проиндексированное сообщение с заголовком headerName = value и timestamp >= sinceTimestampMs
+     */
+    public Optional<KafkaMessage> findByHeader(String headerName, String value, long sinceTimestampMs) {
+        return fetchFirst(positionsByHeader(headerName, value), sinceTimestampMs);
+    }
+
+    /**
+     * Все прочитанные сообщения с timestamp >= sinceTimestampMs есть в индексе (не раньше начала backfill
+     * и не вытеснены) - значит, найденное в индексе совпадение действительно первое за этот период
+     */
+    public boolean covers(long sinceTimestampMs) {
+        return sinceTimestampMs >= index.coveredFromMs();
+    }
+
+    /**
+     * Позиции сообщений с полем тела fieldName = value в порядке чтения
+     */
+    public List<MessagePosition> positionsByField(String fieldName, String value) {
+        return positions(new IndexKey(false, fieldName, value));
+    }
+
+    /**
+     * Позиции сообщений с заголовком headerName = value в порядке чтения
+     */
+    public List<MessagePosition> positionsByHeader(String headerName, String value) {
+        return positions(new IndexKey(true, headerName, value));
+    }
+
+    public boolean isRunning() {
+        return running && thread.isAlive();
+    }
+
+    @Override
+    public void close() {
+        if (!TAILERS.remove(key, this)) {
+            return;
+        }
+        running = false;
+        lease.consumer().wakeup();
+        try {
+            thread.join(Duration.ofSeconds(5).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("🛑 Tailer stopped for topic " + key.topicName());
+    }
+
+    private Optional<KafkaMessage> fetchFirst(List<MessagePosition> positions, long sinceTimestampMs) {
+        for (MessagePosition position : earliestFirst(positions, sinceTimestampMs)) {
+            Optional<KafkaMessage> message = ConsumerAdapter.readMessageAt(
+                    key.bootstrapServers(), key.topicName(), position.partition(), position.offset());
+            if (message.isPresent()) {
+                return message;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Позиции с timestamp >= sinceTimestampMs по возрастанию timestamp (порядок чтения разных partitions - не по времени)
+     */
+    static List<MessagePosition> earliestFirst(List<MessagePosition> positions, long sinceTimestampMs) {
+        return positions.stream()
+                .filter(position -> position.timestamp() >= sinceTimestampMs)
+                .sorted(Comparator.comparingLong(MessagePosition::timestamp)
+                        .thenComparingInt(MessagePosition::partition)
+                        .thenComparingLong(MessagePosition::offset))
+                .toList();
+    }
+
+    private List<MessagePosition> positions(IndexKey indexKey) {
+        return index.positions(indexKey);
+    }
+
+    private void run() {
+        KafkaConsumer<byte[], byte[]> consumer = lease.consumer();
+        try {
+            while (running) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    index(record);
+                }
+                index.evictOlderThan(System.currentTimeMillis() - retentionMs);
+            }
+        } catch (WakeupException e) {
+            // Остановка через close()
+        } catch (Exception e) {
+            System.err.println("❌ Tailer for topic " + key.topicName() + " failed: " + e.getMessage());
+        } finally {
+            running = false;
+            TAILERS.remove(key, this);
+            // После wakeup() консюмер нельзя отдавать в пул - следующий poll() выбросит исключение
+            lease.invalidate();
+            lease.close();
+        }
+    }
+
+    private void index(ConsumerRecord<byte[], byte[]> record) {
+        MessagePosition position = new MessagePosition(record.partition(), record.offset(), record.timestamp());
+
+        for (String fieldName : bodyFields) {
+            String value = KafkaUtils.extractField(record.topic(), record.value(), fieldName);
+            if (value != null) {
+                index.add(new IndexKey(false, fieldName, value), position);
+            }
+        }
+
+        for (Header header : record.headers()) {
+            if (headerNames.contains(header.key()) && header.value() != null) {
+                index.add(new IndexKey(true, header.key(), new String(header.value(), StandardCharsets.UTF_8)), position);
+            }
+        }
+    }
+
+    /**
+     * Позиция сообщения в топике
+     */
+    public record MessagePosition(int partition, long offset, long timestamp) {
+    }
+
+    record IndexKey(boolean header, String name, String value) {
+    }
+
+    /**
+     * Индекс "ключ -> позиции" с вытеснением отдельных позиций.
+     * Все позиции лежат в одной очереди в порядке чтения, позиции ключа - в его очереди в том же порядке,
+     * поэтому самая старая позиция всегда в голове обеих очередей и вытесняется за O(1).
+     */
+    static final class CorrelationIndex {
+        private final int maxEntries;
+        private final Map<IndexKey, ArrayDeque<MessagePosition>> positions = new HashMap<>();
+        private final ArrayDeque<Entry> readOrder = new ArrayDeque<>();
+        private long coveredFromMs;
+
+        /**
+         * @param coveredFromMs с какого timestamp индекс заполняется (начало backfill)
+         */
+        CorrelationIndex(int maxEntries, long coveredFromMs) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            this.coveredFromMs = coveredFromMs;
+        }
+
+        synchronized void add(IndexKey indexKey, MessagePosition position) {
+            positions.computeIfAbsent(indexKey, k -> new ArrayDeque<>()).addLast(position);
+            readOrder.addLast(new Entry(indexKey, position));
+
+            while (readOrder.size() > maxEntries) {
+                evictOldest();
+            }
+        }
+
+        /**
+         * Вытесняет позиции старше expiredBeforeMs. Очередь в порядке чтения, поэтому останавливаемся
+         * на первой свежей позиции - отстающие partitions вытесняются на следующих вызовах.
+         */
+        synchronized void evictOlderThan(long expiredBeforeMs) {
+            while (!readOrder.isEmpty() && readOrder.peekFirst().position().timestamp() < expiredBeforeMs) {
+                evictOldest();
+            }
+        }
+
+        synchronized List<MessagePosition> positions(IndexKey indexKey) {
+            ArrayDeque<MessagePosition> keyPositions = positions.get(indexKey);
+            return keyPositions != null ? new ArrayList<>(keyPositions) : Collections.emptyList();
+        }
+
+        synchronized int size() {
+            return readOrder.size();
+        }
+
+        synchronized int keys() {
+            return positions.size();
+        }
+
+        /**
+         * Все прочитанные позиции с timestamp не меньше этого значения есть в индексе
+         */
+        synchronized long coveredFromMs() {
+            return coveredFromMs;
+        }
+
+        private void evictOldest() {
+            Entry oldest = readOrder.pollFirst();
+            ArrayDeque<MessagePosition> keyPositions = positions.get(oldest.key());
+            keyPositions.pollFirst();
+            if (keyPositions.isEmpty()) {
+                positions.remove(oldest.key());
+            }
+            coveredFromMs = Math.max(coveredFromMs, oldest.position().timestamp() + 1);
+        }
+
+        private record Entry(IndexKey key, MessagePosition position) {
+        }
+    }
+
+    private record TailerKey(String bootstrapServers, String topicName) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.kafka.TopicTailer.CorrelationIndex;
+import com.qa.framework.kafka.TopicTailer.IndexKey;
+import com.qa.framework.kafka.TopicTailer.MessagePosition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Индекс TopicTailer без брокера: порядок поиска, вытеснение по времени и по размеру
+ */
+class TopicTailerTest {
+
+    private static final IndexKey HOT = new IndexKey(false, "testRunId", "RUN-HOT");
+    private static final IndexKey COLD = new IndexKey(false, "testRunId", "RUN-COLD");
+
+    @Test
+    @DisplayName("🛰️ Поиск возвращает самое раннее совпадение, а не последнее прочитанное")
+    void testFindReturnsEarliest() {
+        // Порядок чтения разных partitions не совпадает с порядком timestamp
+        List<MessagePosition> positions = List.of(
+                new MessagePosition(1, 10, 3_000),
+                new MessagePosition(0, 5, 1_000),
+                new MessagePosition(2, 7, 2_000));
+
+        List<MessagePosition> ordered = TopicTailer.earliestFirst(positions, 0);
+        assertEquals(List.of(positions.get(1), positions.get(2), positions.get(0)), ordered);
+
+        assertEquals(List.of(positions.get(2), positions.get(0)), TopicTailer.earliestFirst(positions, 1_500));
+        assertTrue(TopicTailer.earliestFirst(positions, 5_000).isEmpty());
+    }
+
+    @Test
+    @DisplayName("🛰️ Часто встречающийся ключ не блокирует вытеснение по времени")
+    void testHotKeyDoesNotBlockExpiry() {
+        CorrelationIndex index = new CorrelationIndex(1_000, 0);
+        index.add(HOT, new MessagePosition(0, 0, 1_000));
+        index.add(COLD, new MessagePosition(0, 1, 1_100));
+        // Ключ встречается снова и снова - его свежие позиции не должны удерживать старые
+        for (int i = 0; i < 100; i++) {
+            index.add(HOT, new MessagePosition(0, 2 + i, 2_000 + i));
+        }
+
+        index.evictOlderThan(2_050);
+
+        assertTrue(index.positions(COLD).isEmpty());
+        List<MessagePosition> hot = index.positions(HOT);
+        assertEquals(50, hot.size());
+        assertEquals(2_050, hot.get(0).timestamp());
+        assertEquals(50, index.size());
+        assertEquals(1, index.keys());
+        assertTrue(index.coveredFromMs() > 2_049);
+    }
+
+    @Test
+    @DisplayName("🛰️ Размер индекса ограничен числом позиций")
+    void testSizeCap() {
+        CorrelationIndex index = new CorrelationIndex(10, 0);
+        for (int i = 0; i < 25; i++) {
+            index.add(i % 2 == 0 ? HOT : COLD, new MessagePosition(0, i, 1_000 + i));
+        }
+
+        assertEquals(10, index.size());
+        assertEquals(5, index.positions(HOT).size());
+        assertEquals(5, index.positions(COLD).size());
+        // Остались позиции 15..24, более ранние вытеснены
+        assertEquals(15, index.positions(COLD).get(0).offset());
+        assertEquals(16, index.positions(HOT).get(0).offset());
+        assertEquals(1_015, index.coveredFromMs());
+    }
+
+    @Test
+    @DisplayName("🛰️ Покрытие индекса начинается с backfill и сдвигается при вытеснении")
+    void testCoverage() {
+        CorrelationIndex index = new CorrelationIndex(2, 500);
+        assertEquals(500, index.coveredFromMs());
+
+        index.add(HOT, new MessagePosition(0, 0, 1_000));
+        index.add(HOT, new MessagePosition(0, 1, 2_000));
+        assertEquals(500, index.coveredFromMs());
+
+        index.add(HOT, new MessagePosition(0, 2, 3_000));
+        assertEquals(1_001, index.coveredFromMs());
+        assertEquals(2, index.positions(HOT).size());
+    }
+}
@@ -0,0 +1,488 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Архив трафика топика на диске: сжатые сегменты и разреженный индекс.
+ * <p>
+ * Сообщения (partition, offset, timestamp, ключ, тело, заголовки в исходных байтах) пишутся блоками
+ * по kafka.archive.block.records записей; каждый блок сжимается отдельно (Deflate) и дописывается
+ * в файл сегмента segment-NNNNN.dat, сегмент сменяется после kafka.archive.segment.size.mb.
+ * На каждый блок в segment-NNNNN.idx пишется одна запись индекса: позиция блока, min/max timestamp
+ * и диапазон offset по каждой partition. Поэтому чтение диапазона времени или поиск по offset
+ * распаковывают только подходящие блоки, а в памяти держится один блок.
+ * <p>
+ * Пишется через {@link #writer(Path, String)} (или {@link ConsumerAdapter#recordMessagesInTimeRange}),
+ * читается через {@link #open(Path)}, воспроизводится в топик через {@link TrafficReplayer}.
+ *
+ * <pre>
+ * TrafficArchive archive = ConsumerAdapter.recordMessagesInTimeRange(
+ *         bootstrapServers, "incoming_orders", from, to, 600, Path.of("captures/orders-burst"));
+ * </pre>
+ */
+public final class TrafficArchive {
+
+    private static final String MANIFEST = "archive.properties";
+    private static final int NULL_LENGTH = -1;
+
+    private final Path directory;
+    private final String topicName;
+    private final List<Block> blocks;
+    private final long messageCount;
+
+    private TrafficArchive(Path directory, String topicName, List<Block> blocks) {
+        this.directory = directory;
+        this.topicName = topicName;
+        this.blocks = blocks;
+        this.messageCount = blocks.stream().mapToLong(Block::recordCount).sum();
+    }
+
+    /**
+     * Запись нового архива в пустой (или несуществующий) каталог
+     */
+    public static Writer writer(Path directory, String topicName) {
+        return new Writer(directory, topicName,
+                ConfigurationManager.getKafkaArchiveBlockRecords(),
+                ConfigurationManager.getKafkaArchiveSegmentSizeMb() * 1024L * 1024L);
+    }
+
+    /**
+     * Открывает архив: читаются только манифест и индексы сегментов
+     */
+    public static TrafficArchive open(Path directory) {
+        Properties manifest = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(MANIFEST))) {
+            manifest.load(reader);
+
+            List<Block> blocks = new ArrayList<>();
+            int segments = Integer.parseInt(manifest.getProperty("segments", "0"));
+            for (int segment = 0; segment < segments; segment++) {
+                Path dataFile = directory.resolve(segmentName(segment, "dat"));
+                try (DataInputStream index = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(directory.resolve(segmentName(segment, "idx")))))) {
+                    while (index.available() > 0) {
+                        blocks.add(Block.read(dataFile, index));
+                    }
+                }
+            }
+
+            TrafficArchive archive = new TrafficArchive(directory, manifest.getProperty("topic"), blocks);
+            System.out.println("📼 Archive " + directory + ": " + archive.size() + " messages of " +
+                    archive.getTopic() + " in " + blocks.size() + " blocks");
+            return archive;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open traffic archive " + directory, e);
+        }
+    }
+
+    public String getTopic() {
+        return topicName;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long size() {
+        return messageCount;
+    }
+
+    /**
+     * Минимальный timestamp в архиве (0 - архив пуст)
+     */
+    public long getFirstTimestamp() {
+        return blocks.stream().mapToLong(Block::minTimestampMs).min().orElse(0);
+    }
+
+    /**
+     * Максимальный timestamp в архиве (0 - архив пуст)
+     */
+    public long getLastTimestamp() {
+        return blocks.stream().mapToLong(Block::maxTimestampMs).max().orElse(0);
+    }
+
+    /**
+     * Все сообщения в порядке записи
+     */
+    public Stream<KafkaMessage> read() {
+        return read(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Сообщения с timestamp в [startTimestampMs, endTimestampMs) в порядке записи.
+     * Блоки вне диапазона по индексу не читаются.
+     */
+    public Stream<KafkaMessage> read(long startTimestampMs, long endTimestampMs) {
+        return blocks.stream()
+                .filter(block -> block.maxTimestampMs() >= startTimestampMs && block.minTimestampMs() < endTimestampMs)
+                .flatMap(block -> decode(block).stream())
+                .filter(message -> message.getTimestamp() >= startTimestampMs && message.getTimestamp() < endTimestampMs);
+    }
+
+    /**
+     * Сообщение по partition и offset исходного топика
+     */
+    public Optional<KafkaMessage> find(int partition, long offset) {
+        return blocks.stream()
+                .filter(block -> block.containsOffset(partition, offset))
+                .flatMap(block -> decode(block).stream())
+                .filter(message -> message.getPartition() == partition && message.getOffset() == offset)
+                .findFirst();
+    }
+
+    /**
+     * Распаковка блока ровно в rawLength байт: обрезанные или лишние сжатые данные - IOException, а не вечный цикл
+     */
+    static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Compressed data ended after " + length + " of " + rawLength + " bytes");
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Block inflated to " + length + " bytes, expected " + rawLength);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private List<KafkaMessage> decode(Block block) {
+        byte[] compressed = new byte[block.compressedLength()];
+        try (FileChannel channel = FileChannel.open(block.dataFile(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.wrap(compressed);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, block.position() + buffer.position()) < 0) {
+                    throw new EOFException("Truncated block at " + block.position() + " in " + block.dataFile());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read traffic archive block", e);
+        }
+
+        byte[] raw;
+        try {
+            raw = inflate(compressed, block.rawLength());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupted block at " + block.position() + " in " + block.dataFile(), e);
+        }
+
+        List<KafkaMessage> messages = new ArrayList<>(block.recordCount());
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            for (int i = 0; i < block.recordCount(); i++) {
+                int partition = in.readInt();
+                long offset = in.readLong();
+                long timestamp = in.readLong();
+                byte[] key = readBytes(in);
+                byte[] value = readBytes(in);
+
+                int headerCount = in.readInt();
+                RecordHeaders headers = new RecordHeaders();
+                for (int h = 0; h < headerCount; h++) {
+                    String name = decodeString(readBytes(in));
+                    headers.add(new RecordHeader(name, readBytes(in)));
+                }
+                // Тело остается в исходных байтах: декодируется кодеком топика при обращении, при воспроизведении уходит как есть
+                messages.add(new LazyKafkaMessage(topicName, partition, offset, timestamp, key, value, headers));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode traffic archive block", e);
+        }
+        return messages;
+    }
+
+    private static String segmentName(int segment, String extension) {
+        return String.format("segment-%05d.%s", segment, extension);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(NULL_LENGTH);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String decodeString(byte[] bytes) {
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Запись индекса: блок в файле сегмента и что в нем лежит
+     *
+     * @param offsetRanges partition -> {min offset, max offset}
+     */
+    private record Block(Path dataFile,
+                         long position,
+                         int compressedLength,
+                         int rawLength,
+                         int recordCount,
+                         long minTimestampMs,
+                         long maxTimestampMs,
+                         Map<Integer, long[]> offsetRanges) {
+
+        boolean containsOffset(int partition, long offset) {
+            long[] range = offsetRanges.get(partition);
+            return range != null && range[0] <= offset && offset <= range[1];
+        }
+
+        void write(DataOutputStream index) throws IOException {
+            index.writeLong(position);
+            index.writeInt(compressedLength);
+            index.writeInt(rawLength);
+            index.writeInt(recordCount);
+            index.writeLong(minTimestampMs);
+            index.writeLong(maxTimestampMs);
+            index.writeInt(offsetRanges.size());
+            for (Map.Entry<Integer, long[]> range : offsetRanges.entrySet()) {
+                index.writeInt(range.getKey());
+                index.writeLong(range.getValue()[0]);
+                index.writeLong(range.getValue()[1]);
+            }
+        }
+
+        static Block read(Path dataFile, DataInputStream index) throws IOException {
+            long position = index.readLong();
+            int compressedLength = index.readInt();
+            int rawLength = index.readInt();
+            int recordCount = index.readInt();
+            long minTimestampMs = index.readLong();
+            long maxTimestampMs = index.readLong();
+            int partitions = index.readInt();
+            Map<Integer, long[]> offsetRanges = new HashMap<>();
+            for (int i = 0; i < partitions; i++) {
+                offsetRanges.put(index.readInt(), new long[]{index.readLong(), index.readLong()});
+            }
+            return new Block(dataFile, position, compressedLength, rawLength, recordCount,
+                    minTimestampMs, maxTimestampMs, offsetRanges);
+        }
+    }
+
+    /**
+     * Запись архива. Сообщения подаются через {@link #accept} (например, stream.forEach(writer)),
+     * {@link #close()} дописывает последний блок и манифест. Если запись прервалась, {@link #abort()} удаляет
+     * записанные сегменты, и недописанный архив нельзя принять за полный. Объект не потокобезопасен.
+     */
+    public static final class Writer implements Consumer<KafkaMessage>, AutoCloseable {
+        private final Path directory;
+        private final String topicName;
+        private final int blockRecords;
+        private final long segmentSize;
+
+        private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream();
+        private final DataOutputStream block = new DataOutputStream(blockBuffer);
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final Map<Integer, long[]> blockOffsets = new TreeMap<>();
+        private int blockCount = 0;
+        private long blockMinTimestampMs = Long.MAX_VALUE;
+        private long blockMaxTimestampMs = Long.MIN_VALUE;
+
+        private int segment = -1;
+        private OutputStream data;
+        private DataOutputStream index;
+        private long segmentPosition = 0;
+
+        private long messages = 0;
+        private long rawBytes = 0;
+        private long compressedBytes = 0;
+        private boolean closed = false;
+
+        private Writer(Path directory, String topicName, int blockRecords, long segmentSize) {
+            this.directory = directory;
+            this.topicName = topicName;
+            this.blockRecords = blockRecords;
+            this.segmentSize = segmentSize;
+            try {
+                Files.createDirectories(directory);
+                if (Files.exists(directory.resolve(MANIFEST))) {
+                    throw new IllegalStateException("Traffic archive already exists in " + directory);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create archive directory " + directory, e);
+            }
+        }
+
+        @Override
+        public void accept(KafkaMessage message) {
+            if (closed) {
+                throw new IllegalStateException("Archive writer is closed");
+            }
+            try {
+                block.writeInt(message.getPartition());
+                block.writeLong(message.getOffset());
+                block.writeLong(message.getTimestamp());
+                writeBytes(block, LazyKafkaMessage.keyBytes(message));
+                writeBytes(block, LazyKafkaMessage.bodyBytes(message));
+
+                List<Header> headers = message.getHeaders() != null ? message.getHeaders() : List.of();
+                block.writeInt(headers.size());
+                for (Header header : headers) {
+                    writeBytes(block, header.key().getBytes(StandardCharsets.UTF_8));
+                    writeBytes(block, header.value());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            blockOffsets.merge(message.getPartition(), new long[]{message.getOffset(), message.getOffset()},
+                    (range, offset) -> new long[]{Math.min(range[0], offset[0]), Math.max(range[1], offset[1])});
+            blockMinTimestampMs = Math.min(blockMinTimestampMs, message.getTimestamp());
+            blockMaxTimestampMs = Math.max(blockMaxTimestampMs, message.getTimestamp());
+            messages++;
+
+            if (++blockCount == blockRecords) {
+                flushBlock();
+            }
+        }
+
+        public long getMessageCount() {
+            return messages;
+        }
+
+        private void flushBlock() {
+            if (blockCount == 0) {
+                return;
+            }
+            byte[] raw = blockBuffer.toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+
+            try {
+                if (data == null || segmentPosition >= segmentSize) {
+                    rollSegment();
+                }
+                compressed.writeTo(data);
+                new Block(null, segmentPosition, compressed.size(), raw.length, blockCount,
+                        blockMinTimestampMs, blockMaxTimestampMs, blockOffsets).write(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write traffic archive block", e);
+            }
+
+            segmentPosition += compressed.size();
+            rawBytes += raw.length;
+            compressedBytes += compressed.size();
+            blockBuffer.reset();
+            blockOffsets.clear();
+            blockCount = 0;
+            blockMinTimestampMs = Long.MAX_VALUE;
+            blockMaxTimestampMs = Long.MIN_VALUE;
+        }
+
+        private void rollSegment() throws IOException {
+            closeSegment();
+            segment++;
+            data = new BufferedOutputStream(Files.newOutputStream(directory.resolve(segmentName(segment, "dat")),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+            index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    directory.resolve(segmentName(segment, "idx")), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+            segmentPosition = 0;
+        }
+
+        private void closeSegment() throws IOException {
+            if (data != null) {
+                data.close();
+                index.close();
+                data = null;
+                index = null;
+            }
+        }
+
+        /**
+         * Прерывает запись: закрывает и удаляет записанные сегменты, манифест не пишется.
+         * Последующий {@link #close()} ничего не делает.
+         */
+        public void abort() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            deflater.end();
+            try {
+                closeSegment();
+            } catch (IOException e) {
+                System.err.println("⚠️ Error closing aborted archive segment: " + e.getMessage());
+            }
+            for (int i = 0; i <= segment; i++) {
+                for (String extension : List.of("dat", "idx")) {
+                    try {
+                        Files.deleteIfExists(directory.resolve(segmentName(i, extension)));
+                    } catch (IOException e) {
+                        System.err.println("⚠️ Failed to delete " + segmentName(i, extension) + ": " + e.getMessage());
+                    }
+                }
+            }
+            System.err.println("❌ Archive of " + topicName + " in " + directory + " aborted after " + messages + " messages");
+        }
+
+        /**
+         * Дописывает последний блок, закрывает сегмент и пишет манифест - только после этого архив можно открыть
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            flushBlock();
+            closed = true;
+            deflater.end();
+
+            Properties manifest = new Properties();
+            manifest.setProperty("topic", topicName);
+            manifest.setProperty("segments", String.valueOf(segment + 1));
+            manifest.setProperty("messages", String.valueOf(messages));
+            try (java.io.Writer writer = Files.newBufferedWriter(directory.resolve(MANIFEST))) {
+                closeSegment();
+                manifest.store(writer, "Traffic archive of " + topicName);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to finish traffic archive " + directory, e);
+            }
+
+            System.out.printf("📼 Archived %d messages of %s: %d bytes -> %d bytes compressed in %d segments%n",
+                    messages, topicName, rawBytes, compressedBytes, segment + 1);
+        }
+    }
+}
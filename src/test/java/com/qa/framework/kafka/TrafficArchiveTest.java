@@ -0,0 +1,122 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Архив трафика на диске без брокера: исходные байты и прерванная запись
+ */
+class TrafficArchiveTest {
+
+    private static final String TOPIC = "archived-orders";
+
+    @Test
+    @DisplayName("📼 Бинарные ключ и тело читаются из архива байт в байт")
+    void testRawBytesRoundTrip() throws IOException {
+        Path directory = Files.createTempDirectory("traffic-archive-");
+        // Не UTF-8: через String такие байты не восстановить
+        byte[] key = {(byte) 0xC3, 0x28, 0x00, (byte) 0xFF};
+        byte[] body = {0x0A, 0x03, (byte) 0x80, (byte) 0xFE};
+
+        try (TrafficArchive.Writer writer = TrafficArchive.writer(directory, TOPIC)) {
+            writer.accept(new LazyKafkaMessage(TOPIC, 0, 7, 1_000, key, body, new RecordHeaders()));
+            writer.accept(new LazyKafkaMessage(TOPIC, 1, 3, 2_000, null, null, new RecordHeaders()));
+        }
+
+        TrafficArchive archive = TrafficArchive.open(directory);
+        assertEquals(2, archive.size());
+        try (Stream<KafkaMessage> messages = archive.read()) {
+            List<KafkaMessage> read = messages.toList();
+            assertArrayEquals(key, LazyKafkaMessage.keyBytes(read.get(0)));
+            assertArrayEquals(body, LazyKafkaMessage.bodyBytes(read.get(0)));
+            assertNull(LazyKafkaMessage.keyBytes(read.get(1)));
+            assertNull(LazyKafkaMessage.bodyBytes(read.get(1)));
+        }
+        assertTrue(archive.find(0, 7).isPresent());
+    }
+
+    @Test
+    @DisplayName("📼 Прерванная запись не оставляет архив, который можно открыть")
+    void testAbortDeletesSegments() throws IOException {
+        Path directory = Files.createTempDirectory("traffic-archive-");
+        TrafficArchive.Writer writer = TrafficArchive.writer(directory, TOPIC);
+        for (int i = 0; i < 5_000; i++) {
+            writer.accept(new KafkaMessage(List.of(), "{\"orderId\":\"ORD-" + i + "\"}", 0, i, i, "KEY-" + i, TOPIC));
+        }
+
+        writer.abort();
+        writer.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count(), "Сегменты и манифест прерванного архива удалены");
+        }
+        assertThrows(UncheckedIOException.class, () -> TrafficArchive.open(directory));
+        assertThrows(IllegalStateException.class,
+                () -> writer.accept(new KafkaMessage(List.of(), "{}", 0, 0, 0, null, TOPIC)));
+    }
+
+    @Test
+    @DisplayName("📼 Обрезанный или неполный сжатый блок - ошибка, а не вечный цикл")
+    void testInflateRejectsShortBlocks() throws IOException {
+        byte[] raw = new byte[4_096];
+        new Random(3).nextBytes(raw);
+
+        assertArrayEquals(raw, TrafficArchive.inflate(deflate(raw, true), raw.length));
+
+        // Поток без завершения: Inflater просит еще данных, которых нет
+        byte[] unfinished = deflate(Arrays.copyOf(raw, 1_000), false);
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(EOFException.class, () -> TrafficArchive.inflate(unfinished, raw.length)));
+
+        // Поток завершен, но распакованных байт меньше, чем записано в манифесте
+        byte[] shorter = deflate(Arrays.copyOf(raw, 1_000), true);
+        assertThrows(IOException.class, () -> TrafficArchive.inflate(shorter, raw.length));
+    }
+
+    @Test
+    @DisplayName("📼 maxInFlight меньше 1 отклоняется при сборке воспроизведения")
+    void testReplayerRejectsNonPositiveMaxInFlight() throws IOException {
+        Path directory = Files.createTempDirectory("traffic-archive-");
+        try (TrafficArchive.Writer writer = TrafficArchive.writer(directory, TOPIC)) {
+            writer.accept(new KafkaMessage(List.of(), "{}", 0, 0, 0, null, TOPIC));
+        }
+
+        TrafficReplayer.Builder builder = TrafficReplayer.builder().archive(TrafficArchive.open(directory));
+        assertThrows(IllegalArgumentException.class, () -> builder.maxInFlight(0).build());
+    }
+
+    /**
+     * finish = false - данные сброшены (SYNC_FLUSH), но поток не завершен
+     */
+    private static byte[] deflate(byte[] raw, boolean finish) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw);
+        if (finish) {
+            deflater.finish();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8_192];
+        int length;
+        while ((length = deflater.deflate(chunk, 0, chunk.length, finish ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH)) > 0) {
+            out.write(chunk, 0, length);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,254 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.utils.CountMinSketch;
+import com.qa.framework.utils.HyperLogLog;
+import org.apache.kafka.common.header.Header;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Профиль трафика топика в постоянной памяти: интенсивность, распределение размеров тела,
+ * число различных ключей (HyperLogLog), самые частые ключи (count-min sketch),
+ * частота заголовков и распределение по partitions.
+ * <p>
+ * Сообщения не сохраняются: каждое обновляет скетчи и счетчики и отбрасывается, поэтому профиль
+ * миллионов сообщений занимает ~150 КБ. Профиль строится за один проход по диапазону ({@link #profile})
+ * или в фоне по новым сообщениям ({@link #start}), снимок берется в любой момент ({@link #snapshot()}).
+ * Интенсивность считается по timestamp сообщений: пиковая - по секундным корзинам за последние
+ * {@value #RATE_WINDOW_SECONDS} секунд timestamp, поэтому сообщения разных partitions могут приходить
+ * не по порядку; более старые сообщения в пик не попадают.
+ */
+public final class TrafficProfiler implements Consumer<KafkaMessage>, AutoCloseable {
+
+    private static final int HEAVY_HITTER_CANDIDATES = 64;
+    private static final int HEAVY_HITTERS_REPORTED = 10;
+    private static final int MAX_TRACKED_HEADERS = 256;
+    private static final int RATE_WINDOW_SECONDS = 600;
+
+    private final String topicName;
+    private final HyperLogLog distinctKeys = new HyperLogLog();
+    private final CountMinSketch keyFrequencies = new CountMinSketch();
+    private final LatencyHistogram payloadSizes = new LatencyHistogram();
+    private final Map<String, Long> heavyHitterCandidates = new HashMap<>();
+    private final Map<String, Long> headerPresence = new TreeMap<>();
+    private final Map<Integer, Long> partitionCounts = new TreeMap<>();
+
+    private long messages = 0;
+    private long payloadBytes = 0;
+    private long nullKeys = 0;
+    private long firstTimestampMs = Long.MAX_VALUE;
+    private long lastTimestampMs = Long.MIN_VALUE;
+    // Кольцо секундных корзин: секунда timestamp -> число сообщений в ней
+    private final long[] rateSeconds = new long[RATE_WINDOW_SECONDS];
+    private final long[] rateCounts = new long[RATE_WINDOW_SECONDS];
+    private long peakPerSecond = 0;
+    private long minCandidateCount = 0;
+
+    private volatile Flow.Subscription subscription;
+    // close() до onSubscribe: подписка отменяется сразу, как только появится
+    private volatile boolean closed = false;
+
+    public TrafficProfiler(String topicName) {
+        this.topicName = topicName;
+        Arrays.fill(rateSeconds, Long.MIN_VALUE);
+    }
+
+    /**
+     * Профиль сообщений за диапазон - один проход в порядке timestamp
+     *
+     * @param endTimestampMs конец диапазона, 0 - до текущего конца топика
+     */
+    public static TrafficProfile profile(String bootstrapServers,
+                                         String topicName,
+                                         long startTimestampMs,
+                                         long endTimestampMs,
+                                         int maxWaitSeconds) {
+        TrafficProfiler profiler = new TrafficProfiler(topicName);
+        try (Stream<KafkaMessage> messages = ConsumerAdapter.streamMessagesInTimeRangeByTimestamp(
+                bootstrapServers, topicName, startTimestampMs, endTimestampMs, maxWaitSeconds)) {
+            messages.forEach(profiler);
+        }
+        TrafficProfile profile = profiler.snapshot();
+        profile.print();
+        return profile;
+    }
+
+    /**
+     * Профилирование новых сообщений топика в фоне до {@link #close()}.
+     * Учитываются сообщения, отправленные после вызова start()
+     */
+    public static TrafficProfiler start(String bootstrapServers, String topicName) {
+        TrafficProfiler profiler = new TrafficProfiler(topicName);
+        TopicPublisher.fromNow(bootstrapServers, topicName).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                profiler.subscription = subscription;
+                if (profiler.closed) {
+                    subscription.cancel();
+                } else {
+                    subscription.request(Long.MAX_VALUE);
+                }
+            }
+
+            @Override
+            public void onNext(KafkaMessage message) {
+                profiler.accept(message);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                System.err.println("❌ Traffic profiler for topic " + topicName + " failed: " + throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        System.out.println("📈 Traffic profiler started for topic " + topicName);
+        return profiler;
+    }
+
+    @Override
+    public synchronized void accept(KafkaMessage message) {
+        messages++;
+
+        byte[] key = LazyKafkaMessage.keyBytes(message);
+        if (key == null) {
+            nullKeys++;
+        } else {
+            distinctKeys.add(key);
+            trackHeavyHitter(key, keyFrequencies.add(key));
+        }
+
+        byte[] body = LazyKafkaMessage.bodyBytes(message);
+        int size = body != null ? body.length : 0;
+        payloadSizes.record(size);
+        payloadBytes += size;
+
+        List<Header> headers = message.getHeaders();
+        for (Header header : headers != null ? headers : List.<Header>of()) {
+            if (headerPresence.containsKey(header.key()) || headerPresence.size() < MAX_TRACKED_HEADERS) {
+                headerPresence.merge(header.key(), 1L, Long::sum);
+            }
+        }
+
+        partitionCounts.merge(message.getPartition(), 1L, Long::sum);
+        trackRate(message.getTimestamp());
+    }
+
+    /**
+     * Кандидаты в частые ключи: ограниченная карта, ключ входит в нее, только если его оценка выше минимальной
+     */
+    private void trackHeavyHitter(byte[] key, long estimate) {
+        if (heavyHitterCandidates.size() == HEAVY_HITTER_CANDIDATES && estimate <= minCandidateCount) {
+            return;
+        }
+
+        String keyString = new String(key, StandardCharsets.UTF_8);
+        if (!heavyHitterCandidates.containsKey(keyString) && heavyHitterCandidates.size() == HEAVY_HITTER_CANDIDATES) {
+            heavyHitterCandidates.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .ifPresent(min -> heavyHitterCandidates.remove(min.getKey()));
+        }
+        heavyHitterCandidates.put(keyString, estimate);
+        minCandidateCount = heavyHitterCandidates.size() < HEAVY_HITTER_CANDIDATES
+                ? 0
+                : Collections.min(heavyHitterCandidates.values());
+    }
+
+    private void trackRate(long timestampMs) {
+        firstTimestampMs = Math.min(firstTimestampMs, timestampMs);
+        lastTimestampMs = Math.max(lastTimestampMs, timestampMs);
+
+        long second = Math.floorDiv(timestampMs, 1000);
+        int slot = (int) Math.floorMod(second, (long) RATE_WINDOW_SECONDS);
+        if (rateSeconds[slot] != second) {
+            if (second < rateSeconds[slot]) {
+                // Секунда вышла из окна корзин - ее счетчик уже перезаписан более новой секундой
+                return;
+            }
+            rateSeconds[slot] = second;
+            rateCounts[slot] = 0;
+        }
+        peakPerSecond = Math.max(peakPerSecond, ++rateCounts[slot]);
+    }
+
+    public synchronized TrafficProfile snapshot() {
+        double durationSeconds = messages > 1 ? (lastTimestampMs - firstTimestampMs) / 1000.0 : 0;
+
+        // Оценки кандидатов могли устареть - берем текущие из скетча
+        List<KeyCount> heavyHitters = heavyHitterCandidates.keySet().stream()
+                .map(key -> new KeyCount(key, keyFrequencies.estimate(key)))
+                .sorted(Comparator.comparingLong(KeyCount::estimatedCount).reversed())
+                .limit(HEAVY_HITTERS_REPORTED)
+                .toList();
+
+        double partitionSkew = 0;
+        if (!partitionCounts.isEmpty()) {
+            double mean = (double) messages / partitionCounts.size();
+            partitionSkew = Collections.max(partitionCounts.values()) / mean;
+        }
+
+        return new TrafficProfile(topicName, messages, payloadBytes, nullKeys,
+                messages > 0 ? firstTimestampMs : 0, messages > 0 ? lastTimestampMs : 0,
+                durationSeconds > 0 ? messages / durationSeconds : 0, peakPerSecond,
+                payloadSizes.percentile(50), payloadSizes.percentile(95), payloadSizes.percentile(99), payloadSizes.max(),
+                distinctKeys.estimate(), heavyHitters,
+                new TreeMap<>(headerPresence), new TreeMap<>(partitionCounts), partitionSkew);
+    }
+
+    /**
+     * Останавливает фоновое профилирование
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        snapshot().print();
+    }
+
+    public record KeyCount(String key, long estimatedCount) {
+    }
+
+    /**
+     * Снимок профиля. Размеры тела - в байтах, partitionSkew = max / среднее по partitions, в которых были
+     * сообщения (1.0 - равномерно).
+     */
+    public record TrafficProfile(String topic,
+                                 long messages,
+                                 long payloadBytes,
+                                 long nullKeys,
+                                 long firstTimestampMs,
+                                 long lastTimestampMs,
+                                 double averageRatePerSecond,
+                                 long peakRatePerSecond,
+                                 long payloadSizeP50,
+                                 long payloadSizeP95,
+                                 long payloadSizeP99,
+                                 long payloadSizeMax,
+                                 long estimatedDistinctKeys,
+                                 List<KeyCount> heavyHitters,
+                                 Map<String, Long> headerPresence,
+                                 Map<Integer, Long> partitionCounts,
+                                 double partitionSkew) {
+
+        public void print() {
+            System.out.println("\n📈 Traffic profile for " + topic);
+            System.out.println("   Messages: " + messages + ", payload bytes: " + payloadBytes + ", null keys: " + nullKeys);
+            System.out.printf("   Rate: avg %.1f msg/s, peak %d msg/s%n", averageRatePerSecond, peakRatePerSecond);
+            System.out.println("   Payload size: p50=" + payloadSizeP50 + "B, p95=" + payloadSizeP95 +
+                    "B, p99=" + payloadSizeP99 + "B, max=" + payloadSizeMax + "B");
+            System.out.println("   Distinct keys (estimate): " + estimatedDistinctKeys);
+            System.out.println("   Heavy hitters: " + heavyHitters);
+            System.out.println("   Headers: " + headerPresence);
+            System.out.printf("   Partitions: %s, skew %.2f%n", partitionCounts, partitionSkew);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.qa.framework.kafka;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Профиль трафика без брокера: пиковая интенсивность при timestamp не по порядку
+ */
+class TrafficProfilerTest {
+
+    @Test
+    @DisplayName("📊 Пик считается по секундам timestamp, даже если partitions чередуются")
+    void testPeakWithInterleavedTimestamps() {
+        TrafficProfiler profiler = new TrafficProfiler("orders");
+        // Две partitions читаются вперемешку: секунды 10 и 11 чередуются, в секунде 10 - 6 сообщений
+        long[] timestamps = {10_100, 11_100, 10_200, 11_200, 10_300, 10_400, 11_300, 10_500, 10_600};
+        for (int i = 0; i < timestamps.length; i++) {
+            profiler.accept(message(i % 2, i, timestamps[i]));
+        }
+
+        TrafficProfiler.TrafficProfile profile = profiler.snapshot();
+        assertEquals(9, profile.messages());
+        assertEquals(6, profile.peakRatePerSecond());
+        assertEquals(10_100, profile.firstTimestampMs());
+        assertEquals(11_300, profile.lastTimestampMs());
+    }
+
+    @Test
+    @DisplayName("📊 Сообщение старше окна корзин не портит пик")
+    void testVeryLateMessageIgnoredForPeak() {
+        TrafficProfiler profiler = new TrafficProfiler("orders");
+        for (int i = 0; i < 3; i++) {
+            profiler.accept(message(0, i, 1_000_000 + i));
+        }
+        // Та же корзина кольца, но на 600 секунд раньше
+        profiler.accept(message(1, 0, 1_000_000 - 600_000));
+
+        TrafficProfiler.TrafficProfile profile = profiler.snapshot();
+        assertEquals(4, profile.messages());
+        assertEquals(3, profile.peakRatePerSecond());
+    }
+
+    private static KafkaMessage message(int partition, long offset, long timestampMs) {
+        return new KafkaMessage(new ArrayList<>(), "{\"orderId\":\"ORD-" + offset + "\"}",
+                partition, offset, timestampMs, "KEY-" + offset, "orders");
+    }
+}
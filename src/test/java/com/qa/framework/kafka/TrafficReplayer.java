@@ -0,0 +1,224 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Воспроизведение {@link TrafficArchive} в топик через общий продюсер {@link ProducerAdapter}.
+ * <p>
+ * Темп задается множителем скорости: 1.0 - с исходными интервалами между timestamp сообщений,
+ * N - в N раз быстрее, {@link Builder#asFastAsPossible()} - без пауз (ограничено только
+ * kafka.load.max.in.flight неподтвержденными записями). Сообщения отправляются в порядке архива;
+ * архив, записанный через {@link ConsumerAdapter#recordMessagesInTimeRange}, упорядочен по timestamp.
+ * Ключ, тело и заголовки уходят в исходных байтах через {@link ProducerAdapter#sendRawAsync} - без кодеков,
+ * поэтому бинарные ключи и тела воспроизводятся байт в байт; partition и timestamp по умолчанию выбирают продюсер и брокер.
+ *
+ * <pre>
+ * ReplayReport report = TrafficReplayer.builder()
+ *         .bootstrapServers(kafkaContainer.getBootstrapServers())
+ *         .archive(TrafficArchive.open(Path.of("captures/orders-burst")))
+ *         .topic("incoming_orders")
+ *         .speed(10)
+ *         .build()
+ *         .run();
+ * </pre>
+ */
+public class TrafficReplayer {
+
+    private final String bootstrapServers;
+    private final TrafficArchive archive;
+    private final String topic;
+    private final double speed;
+    private final long startTimestampMs;
+    private final long endTimestampMs;
+    private final boolean preservePartitions;
+    private final boolean preserveTimestamps;
+    private final int maxInFlight;
+
+    private TrafficReplayer(Builder builder) {
+        this.bootstrapServers = builder.bootstrapServers;
+        this.archive = builder.archive;
+        this.topic = builder.topic != null ? builder.topic : builder.archive.getTopic();
+        this.speed = builder.speed;
+        this.startTimestampMs = builder.startTimestampMs;
+        this.endTimestampMs = builder.endTimestampMs;
+        this.preservePartitions = builder.preservePartitions;
+        this.preserveTimestamps = builder.preserveTimestamps;
+        this.maxInFlight = builder.maxInFlight;
+    }
+
+    /**
+     * Воспроизводит архив в текущем потоке и ждет подтверждения всех отправленных записей
+     */
+    public ReplayReport run() {
+        System.out.println("\n📼 Replay of " + archive.getDirectory() + " to " + topic +
+                (speed > 0 ? " at " + speed + "x" : " as fast as possible"));
+
+        InFlightSender sender = new InFlightSender(maxInFlight);
+        long firstTimestampMs = 0;
+        long lastTimestampMs = 0;
+        long startNanos = System.nanoTime();
+
+        try (Stream<KafkaMessage> messages = archive.read(startTimestampMs, endTimestampMs)) {
+            Iterator<KafkaMessage> iterator = messages.iterator();
+            while (iterator.hasNext()) {
+                KafkaMessage message = iterator.next();
+                if (sender.sent() == 0) {
+                    firstTimestampMs = message.getTimestamp();
+                }
+                lastTimestampMs = Math.max(lastTimestampMs, message.getTimestamp());
+
+                if (speed > 0) {
+                    // Момент отправки - смещение timestamp от первого сообщения, сжатое в speed раз.
+                    // Сообщения с timestamp меньше предыдущих уходят сразу
+                    InFlightSender.parkUntil(startNanos +
+                            (long) (TimeUnit.MILLISECONDS.toNanos(message.getTimestamp() - firstTimestampMs) / speed));
+                }
+
+                sender.send(() -> ProducerAdapter.sendRawAsync(bootstrapServers, toRecord(message)), null);
+            }
+
+            if (!sender.awaitAcks()) {
+                System.err.println("❌ Not all replayed records were acknowledged in " +
+                        InFlightSender.ACK_WAIT_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Replay was interrupted after " + sender.sent() + " records");
+        }
+
+        long sent = sender.sent();
+        ReplayReport report = new ReplayReport(topic, sent, sender.acked(), sender.failed(),
+                Duration.ofMillis(sent > 0 ? lastTimestampMs - firstTimestampMs : 0),
+                Duration.ofNanos(System.nanoTime() - startNanos));
+        report.print();
+        return report;
+    }
+
+    private ProducerRecord<byte[], byte[]> toRecord(KafkaMessage message) {
+        ProducerRecord<byte[], byte[]> record = new ProducerRecord<>(topic,
+                preservePartitions ? message.getPartition() : null,
+                preserveTimestamps ? message.getTimestamp() : null,
+                LazyKafkaMessage.keyBytes(message), LazyKafkaMessage.bodyBytes(message));
+        if (message.getHeaders() != null) {
+            for (Header header : message.getHeaders()) {
+                record.headers().add(header.key(), header.value());
+            }
+        }
+        return record;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Итог воспроизведения: capturedSpan - интервал timestamp в архиве, elapsed - фактическое время
+     */
+    public record ReplayReport(String topic,
+                               long sent,
+                               long acked,
+                               long failed,
+                               Duration capturedSpan,
+                               Duration elapsed) {
+
+        public void print() {
+            System.out.println("📊 Replay report for " + topic);
+            System.out.println("   Sent: " + sent + ", acked: " + acked + ", failed: " + failed);
+            System.out.println("   Captured span: " + capturedSpan.toMillis() + " ms, replayed in " + elapsed.toMillis() + " ms");
+        }
+    }
+
+    // Builder pattern (ручная реализация)
+    public static class Builder {
+        private String bootstrapServers = ConfigurationManager.getKafkaBootstrapServers();
+        private TrafficArchive archive;
+        private String topic;
+        private double speed = 1.0;
+        private long startTimestampMs = Long.MIN_VALUE;
+        private long endTimestampMs = Long.MAX_VALUE;
+        private boolean preservePartitions = false;
+        private boolean preserveTimestamps = false;
+        private int maxInFlight = ConfigurationManager.getKafkaLoadMaxInFlight();
+
+        public Builder bootstrapServers(String bootstrapServers) {
+            this.bootstrapServers = bootstrapServers;
+            return this;
+        }
+
+        public Builder archive(TrafficArchive archive) {
+            this.archive = archive;
+            return this;
+        }
+
+        /**
+         * Целевой топик (по умолчанию - исходный топик архива)
+         */
+        public Builder topic(String topic) {
+            this.topic = topic;
+            return this;
+        }
+
+        /**
+         * Множитель скорости: 1.0 - исходный темп, 10 - в 10 раз быстрее
+         */
+        public Builder speed(double speed) {
+            if (speed <= 0) {
+                throw new IllegalArgumentException("Replay speed must be positive");
+            }
+            this.speed = speed;
+            return this;
+        }
+
+        public Builder asFastAsPossible() {
+            this.speed = 0;
+            return this;
+        }
+
+        /**
+         * Воспроизвести только сообщения с timestamp в [startTimestampMs, endTimestampMs)
+         */
+        public Builder timeRange(long startTimestampMs, long endTimestampMs) {
+            this.startTimestampMs = startTimestampMs;
+            this.endTimestampMs = endTimestampMs;
+            return this;
+        }
+
+        /**
+         * Отправлять в исходную partition (в целевом топике должно быть не меньше partitions)
+         */
+        public Builder preservePartitions(boolean preservePartitions) {
+            this.preservePartitions = preservePartitions;
+            return this;
+        }
+
+        /**
+         * Сохранять исходные timestamp (по умолчанию timestamp ставит продюсер в момент отправки)
+         */
+        public Builder preserveTimestamps(boolean preserveTimestamps) {
+            this.preserveTimestamps = preserveTimestamps;
+            return this;
+        }
+
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        public TrafficReplayer build() {
+            if (archive == null) {
+                throw new IllegalStateException("Archive is required");
+            }
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be positive");
+            }
+            return new TrafficReplayer(this);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.qa.framework.kafka;
+
+/**
+ * Формат тела сообщения в топике.
+ * <p>
+ * encode превращает объект (Map, POJO, JsonNode) в байты записи, decode - байты записи в JSON текст.
+ * Поэтому тело {@link KafkaMessage} всегда JSON строка, и поиск по полям и проверки работают одинаково
+ * для текстовых и бинарных топиков. Реализация должна быть потокобезопасной.
+ * <p>
+ * Строка при encode - всегда значение, а не готовый JSON: json кодек пишет ее JSON строкой в кавычках
+ * (как раньше Gson), кодеки со схемой ее отклоняют. Готовый JSON текст передавайте как
+ * {@code JsonUtils.readTree(json)} или байтами - byte[] продюсер отправляет как есть.
+ */
+public interface ValueCodec {
+
+    /**
+     * Имя кодека в настройках (kafka.value.codec)
+     */
+    String name();
+
+    byte[] encode(String topic, Object value);
+
+    String decode(String topic, byte[] data);
+
+    /**
+     * true - байты записи и есть JSON текст в UTF-8, поля можно искать прямо в байтах
+     */
+    default boolean isJsonText() {
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Десериализатор тела для консюмера: JSON текст через кодек топика ({@link ValueCodecs}).
+ * Для json - то же, что StringDeserializer.
+ */
+public class ValueCodecDeserializer implements Deserializer<String> {
+
+    @Override
+    public String deserialize(String topic, byte[] data) {
+        return ValueCodecs.decode(topic, data);
+    }
+}
@@ -0,0 +1,20 @@
+package com.qa.framework.kafka;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Сериализатор тела для продюсера: кодек по топику ({@link ValueCodecs}), byte[] отправляется как есть
+ */
+public class ValueCodecSerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[] bytes) {
+            return bytes;
+        }
+        return ValueCodecs.encode(topic, data);
+    }
+}
@@ -0,0 +1,78 @@
+package com.qa.framework.kafka;
+
+import com.qa.framework.config.ConfigurationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Выбор кодека тела по топику: kafka.value.codec.&lt;topic&gt;, иначе kafka.value.codec (по умолчанию json).
+ * <p>
+ * Встроенные кодеки: json ({@link com.qa.framework.utils.JsonUtils}), avro и protobuf (бинарные, схема из {@link SchemaRegistry}).
+ * Свои кодеки регистрируются через {@link #register(ValueCodec)}.
+ */
+public final class ValueCodecs {
+
+    private static final Map<String, ValueCodec> CODECS = new ConcurrentHashMap<>();
+    // Топик и кодек, для которых ошибка декодирования уже в логе: при сканировании топика с чужим форматом
+    // иначе печаталась бы строка на каждую запись
+    private static final Set<String> REPORTED_FAILURES = ConcurrentHashMap.newKeySet();
+
+    static {
+        register(new JsonValueCodec());
+        register(new AvroValueCodec());
+        register(new ProtobufValueCodec());
+    }
+
+    private ValueCodecs() {
+    }
+
+    public static void register(ValueCodec codec) {
+        CODECS.put(codec.name(), codec);
+    }
+
+    public static ValueCodec byName(String name) {
+        ValueCodec codec = CODECS.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown value codec: " + name + ", available: " + CODECS.keySet());
+        }
+        return codec;
+    }
+
+    public static ValueCodec forTopic(String topic) {
+        return byName(ConfigurationManager.getKafkaValueCodec(topic));
+    }
+
+    public static byte[] encode(String topic, Object value) {
+        return forTopic(topic).encode(topic, value);
+    }
+
+    /**
+     * Тело записи в JSON текст. Если байты не декодируются кодеком топика, возвращается их текст в UTF-8,
+     * чтобы одна "чужая" запись не останавливала чтение. Ошибка пишется в лог один раз на топик и кодек.
+     */
+    public static String decode(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        ValueCodec codec = forTopic(topic);
+        try {
+            return codec.decode(topic, data);
+        } catch (RuntimeException e) {
+            if (REPORTED_FAILURES.add(topic + "/" + codec.name())) {
+                System.err.println("⚠️ Failed to decode value of " + topic + " with codec " + codec.name() + ": " +
+                        e.getMessage() + " (further failures for this topic are not logged)");
+            }
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * true - тело записей топика JSON текст и поля можно искать в байтах без декодирования
+     */
+    public static boolean isJsonText(String topic) {
+        return topic == null || forTopic(topic).isJsonText();
+    }
+}
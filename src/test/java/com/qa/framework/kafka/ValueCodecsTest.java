@@ -0,0 +1,188 @@
+package com.qa.framework.kafka;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.qa.framework.utils.JsonUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Бинарные кодеки без брокера: байты сверяются с эталонным кодированием
+ * (protobuf-java для .proto из {@link RecordSchema#toProtoSchema()}, GenericDatumWriter для {@link RecordSchema#toAvroSchema()})
+ */
+class ValueCodecsTest {
+
+    private static final String TOPIC = "codec-orders-" + UUID.randomUUID().toString().substring(0, 8);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static String framePrefix;
+
+    @BeforeAll
+    static void registerSchema() {
+        RecordSchema schema = RecordSchema.builder("Order")
+                .field("orderId", RecordSchema.FieldType.STRING)
+                .field("amount", RecordSchema.FieldType.DOUBLE)
+                .field("quantity", RecordSchema.FieldType.INT)
+                .field("total", RecordSchema.FieldType.LONG)
+                .field("paid", RecordSchema.FieldType.BOOLEAN)
+                .optionalField("status", RecordSchema.FieldType.STRING)
+                .build();
+        int schemaId = SchemaRegistry.register(SchemaRegistry.valueSubject(TOPIC), schema);
+        // Магический байт 0 и id схемы big-endian
+        framePrefix = "00" + String.format("%08x", schemaId);
+    }
+
+    @Test
+    @DisplayName("🧬 Protobuf: байты совпадают с эталонной сериализацией")
+    void testProtobufGoldenBytes() {
+        String expected = framePrefix + "00" +   // индекс сообщения [0]
+                "0a054f52442d31" +                 // 1: "ORD-1"
+                "110000000000002940" +             // 2: 12.5 fixed64
+                "1803" +                           // 3: 3
+                "209601" +                         // 4: 150 varint
+                "2801" +                           // 5: true
+                "32034e4557";                      // 6: "NEW"
+
+        assertEquals(expected, HEX.formatHex(encode("protobuf", order("ORD-1", 12.5, 3, 150, true, "NEW"))));
+    }
+
+    @Test
+    @DisplayName("🧬 Protobuf: значения по умолчанию proto3 не пишутся, кроме явно заданного optional")
+    void testProtobufOmitsDefaults() {
+        byte[] bytes = encode("protobuf", order("", 0.0, 0, 0, false, ""));
+
+        // Остается только optional status = "" (явное присутствие)
+        assertEquals(framePrefix + "00" + "3200", HEX.formatHex(bytes));
+        assertEquals("{\"orderId\":\"\",\"amount\":0.0,\"quantity\":0,\"total\":0,\"paid\":false,\"status\":\"\"}",
+                ValueCodecs.byName("protobuf").decode(TOPIC, bytes));
+    }
+
+    @Test
+    @DisplayName("🧬 Protobuf: -0.0 и отрицательный int32 кодируются как в protobuf-java")
+    void testProtobufNegativeValues() {
+        String expected = framePrefix + "00" +
+                "0a0141" +                          // 1: "A"
+                "110000000000000080" +              // 2: -0.0 - не значение по умолчанию
+                "18ffffffffffffffffff01" +          // 3: -1 int32 - 10 байт varint
+                "2801";                             // 5: true; total = 0 и status = null не пишутся
+
+        assertEquals(expected, HEX.formatHex(encode("protobuf", order("A", -0.0, -1, 0, true, null))));
+    }
+
+    @Test
+    @DisplayName("🧬 Avro: байты совпадают с GenericDatumWriter")
+    void testAvroGoldenBytes() {
+        String expected = framePrefix +
+                "0a4f52442d31" +                    // "ORD-1": длина zigzag 5 -> 0a
+                "0000000000002940" +                // 12.5 little-endian
+                "06" +                              // 3 zigzag
+                "ac02" +                            // 150 zigzag -> 300
+                "01" +                              // true
+                "02064e4557";                       // union ветка 1, "NEW"
+
+        assertEquals(expected, HEX.formatHex(encode("avro", order("ORD-1", 12.5, 3, 150, true, "NEW"))));
+
+        String withNull = framePrefix + "0a4f52442d31" + "0000000000002940" + "06" + "ac02" + "01" + "00";
+        assertEquals(withNull, HEX.formatHex(encode("avro", order("ORD-1", 12.5, 3, 150, true, null))));
+    }
+
+    @Test
+    @DisplayName("🧬 Значение не того типа отклоняется, а не приводится молча")
+    void testFieldTypeMismatchRejected() {
+        for (String codec : new String[]{"protobuf", "avro"}) {
+            assertMismatch(codec, "quantity", "12");
+            assertMismatch(codec, "quantity", 1.5);
+            assertMismatch(codec, "quantity", 1L << 40);
+            assertMismatch(codec, "total", "150");
+            assertMismatch(codec, "amount", "12.5");
+            assertMismatch(codec, "paid", "true");
+            assertMismatch(codec, "paid", 1);
+            assertMismatch(codec, "orderId", 42);
+            assertMismatch(codec, "status", false);
+        }
+
+        // Целое подходит и для long, и для double
+        Map<String, Object> widened = order("ORD-1", 12.5, 3, 150, true, "NEW");
+        widened.put("amount", 12);
+        assertArrayEquals(encode("avro", order("ORD-1", 12.0, 3, 150, true, "NEW")), encode("avro", widened));
+    }
+
+    @Test
+    @DisplayName("🧬 Строка - всегда JSON строка: json кодек пишет ее в кавычках, кодеки со схемой отклоняют")
+    void testStringValueRule() {
+        String json = "{\"orderId\":\"ORD-1\"}";
+        assertEquals("\"{\\\"orderId\\\":\\\"ORD-1\\\"}\"",
+                new String(ValueCodecs.byName("json").encode(TOPIC, json), StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> ValueCodecs.byName("protobuf").encode(TOPIC, json));
+        assertThrows(IllegalArgumentException.class, () -> ValueCodecs.byName("avro").encode(TOPIC, json));
+
+        // Готовый JSON текст - через JsonNode, одинаково для всех кодеков
+        Map<String, Object> order = order("ORD-1", 12.5, 3, 150, true, "NEW");
+        JsonNode tree = JsonUtils.readTree(JsonUtils.toJson(order));
+        assertEquals(JsonUtils.toJson(order),
+                new String(ValueCodecs.byName("json").encode(TOPIC, tree), StandardCharsets.UTF_8));
+        assertArrayEquals(encode("protobuf", order), encode("protobuf", tree));
+        assertArrayEquals(encode("avro", order), encode("avro", tree));
+    }
+
+    @Test
+    @DisplayName("🧬 Ошибка декодирования пишется в лог один раз на топик")
+    void testDecodeFailureLoggedOnce() {
+        String topic = "codec-foreign-" + UUID.randomUUID().toString().substring(0, 8);
+        System.setProperty("kafka.value.codec." + topic, "protobuf");
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("{\"n\":" + i + "}",
+                        ValueCodecs.decode(topic, ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8)));
+            }
+        } finally {
+            System.setErr(originalErr);
+            System.clearProperty("kafka.value.codec." + topic);
+        }
+
+        long lines = err.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.contains("Failed to decode value of " + topic))
+                .count();
+        assertEquals(1, lines);
+    }
+
+    private static void assertMismatch(String codec, String field, Object value) {
+        Map<String, Object> order = order("ORD-1", 12.5, 3, 150, true, "NEW");
+        order.put(field, value);
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> ValueCodecs.byName(codec).encode(TOPIC, order), codec + " " + field + " = " + value);
+        assertTrue(error.getMessage().contains(field), error.getMessage());
+    }
+
+    private static byte[] encode(String codec, Object value) {
+        byte[] bytes = ValueCodecs.byName(codec).encode(TOPIC, value);
+        // Обратное декодирование возвращает те же значения
+        assertNotNull(ValueCodecs.byName(codec).decode(TOPIC, bytes));
+        return bytes;
+    }
+
+    private static Map<String, Object> order(String orderId, double amount, int quantity, long total,
+                                             boolean paid, String status) {
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("orderId", orderId);
+        order.put("amount", amount);
+        order.put("quantity", quantity);
+        order.put("total", total);
+        order.put("paid", paid);
+        order.put("status", status);
+        return order;
+    }
+}
@@ -0,0 +1,319 @@
+package com.qa.framework.kafka;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Инкрементальная агрегация сообщений по окнам event-time (timestamp сообщения).
+ * <p>
+ * Окна - скользящие (size, slide) или неперекрывающиеся (tumbling: slide = size). В каждом окне считаются
+ * count, sum по числовым JSON полям и число различных значений JSON полей - в разрезе группы (groupBy по JSON полям).
+ * Водяной знак = максимальный увиденный timestamp - allowedLateness; окно, конец которого водяной знак прошел,
+ * финализируется: результат отдается в onWindow и состояние окна освобождается. Поэтому в памяти только открытые
+ * окна, и часы трафика проверяются за один проход. Записи старше водяного знака для уже закрытых окон
+ * отбрасываются и учитываются в {@link #getLateRecords()}.
+ * <p>
+ * Сообщения подаются через {@link #accept} (например, stream.forEach(aggregator)) или через
+ * {@link #asSubscriber()} из {@link TopicPublisher}. В конце нужно вызвать {@link #finish()}.
+ *
+ * <pre>
+ * // "каждый customerId сделал ровно один заказ в минуту"
+ * WindowedAggregator aggregator = WindowedAggregator.tumbling(Duration.ofMinutes(1))
+ *         .groupBy("customerId")
+ *         .build();
+ * try (Stream&lt;KafkaMessage&gt; messages = ConsumerAdapter.streamMessagesInTimeRangeByTimestamp(...)) {
+ *     messages.forEach(aggregator);
+ * }
+ * aggregator.finish().forEach(window -&gt; assertEquals(1, window.count()));
+ * </pre>
+ * Объект не потокобезопасен.
+ */
+public final class WindowedAggregator implements Consumer<KafkaMessage> {
+
+    private static final int SUBSCRIBER_BATCH = 256;
+
+    private final long sizeMs;
+    private final long slideMs;
+    private final long allowedLatenessMs;
+    private final List<String> groupByFields;
+    private final List<String> sumFields;
+    private final List<String> distinctFields;
+    private final Consumer<WindowResult> onWindow;
+    private final List<WindowResult> collected = new ArrayList<>();
+
+    // Открытые окна: начало окна -> группа -> аккумулятор
+    private final TreeMap<Long, Map<List<String>, Accumulator>> openWindows = new TreeMap<>();
+
+    private long maxTimestampMs = Long.MIN_VALUE;
+    private long closedUpToMs = Long.MIN_VALUE;
+    private long lateRecords = 0;
+
+    private WindowedAggregator(Builder builder) {
+        this.sizeMs = builder.sizeMs;
+        this.slideMs = builder.slideMs;
+        this.allowedLatenessMs = builder.allowedLatenessMs;
+        this.groupByFields = List.copyOf(builder.groupByFields);
+        this.sumFields = List.copyOf(builder.sumFields);
+        this.distinctFields = List.copyOf(builder.distinctFields);
+        this.onWindow = builder.onWindow != null ? builder.onWindow : collected::add;
+    }
+
+    /**
+     * Неперекрывающиеся окна длиной size
+     */
+    public static Builder tumbling(Duration size) {
+        return new Builder(size.toMillis(), size.toMillis());
+    }
+
+    /**
+     * Скользящие окна длиной size, начинающиеся каждые slide
+     */
+    public static Builder sliding(Duration size, Duration slide) {
+        return new Builder(size.toMillis(), slide.toMillis());
+    }
+
+    @Override
+    public void accept(KafkaMessage message) {
+        long timestamp = message.getTimestamp();
+
+        // Все окна, содержащие timestamp: начала кратны slide и лежат в (timestamp - size, timestamp].
+        // Если закрыто даже самое позднее из них - запись опоздала
+        long lastStart = Math.floorDiv(timestamp, slideMs) * slideMs;
+        if (lastStart + sizeMs <= closedUpToMs) {
+            lateRecords++;
+            return;
+        }
+
+        List<String> group = new ArrayList<>(groupByFields.size());
+        for (String field : groupByFields) {
+            group.add(KafkaUtils.extractField(message, field));
+        }
+
+        String[] sumValues = new String[sumFields.size()];
+        for (int i = 0; i < sumValues.length; i++) {
+            sumValues[i] = KafkaUtils.extractField(message, sumFields.get(i));
+        }
+        String[] distinctValues = new String[distinctFields.size()];
+        for (int i = 0; i < distinctValues.length; i++) {
+            distinctValues[i] = KafkaUtils.extractField(message, distinctFields.get(i));
+        }
+
+        for (long start = lastStart; start > timestamp - sizeMs; start -= slideMs) {
+            if (start + sizeMs <= closedUpToMs) {
+                continue;
+            }
+            openWindows.computeIfAbsent(start, key -> new LinkedHashMap<>())
+                    .computeIfAbsent(group, key -> new Accumulator(sumFields.size(), distinctFields.size()))
+                    .add(sumValues, distinctValues);
+        }
+
+        if (timestamp > maxTimestampMs) {
+            maxTimestampMs = timestamp;
+            advanceWatermark(maxTimestampMs - allowedLatenessMs);
+        }
+    }
+
+    /**
+     * Финализирует все открытые окна.
+     *
+     * @return результаты всех окон, если onWindow не задан; иначе пустой список
+     */
+    public List<WindowResult> finish() {
+        advanceWatermark(Long.MAX_VALUE);
+        if (lateRecords > 0) {
+            System.out.println("⚠️ Late records dropped by window aggregation: " + lateRecords);
+        }
+        return new ArrayList<>(collected);
+    }
+
+    public long getLateRecords() {
+        return lateRecords;
+    }
+
+    /**
+     * Подписчик для {@link TopicPublisher}: запрашивает сообщения пачками, на onComplete вызывает finish()
+     */
+    public Flow.Subscriber<KafkaMessage> asSubscriber() {
+        return new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+            private int received = 0;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(SUBSCRIBER_BATCH);
+            }
+
+            @Override
+            public void onNext(KafkaMessage message) {
+                accept(message);
+                if (++received == SUBSCRIBER_BATCH) {
+                    received = 0;
+                    subscription.request(SUBSCRIBER_BATCH);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                System.err.println("❌ Window aggregation stream failed: " + throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                finish();
+            }
+        };
+    }
+
+    private void advanceWatermark(long watermarkMs) {
+        if (watermarkMs <= closedUpToMs) {
+            return;
+        }
+        closedUpToMs = watermarkMs;
+
+        while (!openWindows.isEmpty()) {
+            Map.Entry<Long, Map<List<String>, Accumulator>> window = openWindows.firstEntry();
+            long start = window.getKey();
+            if (watermarkMs != Long.MAX_VALUE && start + sizeMs > watermarkMs) {
+                break;
+            }
+            openWindows.pollFirstEntry();
+            window.getValue().forEach((group, accumulator) -> onWindow.accept(accumulator.toResult(start, group)));
+        }
+    }
+
+    private final class Accumulator {
+        private long count = 0;
+        private final double[] sums;
+        private final List<Set<String>> distinct;
+
+        Accumulator(int sumCount, int distinctCount) {
+            this.sums = new double[sumCount];
+            this.distinct = new ArrayList<>(distinctCount);
+            for (int i = 0; i < distinctCount; i++) {
+                distinct.add(new HashSet<>());
+            }
+        }
+
+        void add(String[] sumValues, String[] distinctValues) {
+            count++;
+            for (int i = 0; i < sumValues.length; i++) {
+                if (sumValues[i] != null) {
+                    try {
+                        sums[i] += Double.parseDouble(sumValues[i]);
+                    } catch (NumberFormatException e) {
+                        // Нечисловое значение в сумму не входит
+                    }
+                }
+            }
+            for (int i = 0; i < distinctValues.length; i++) {
+                distinct.get(i).add(distinctValues[i]);
+            }
+        }
+
+        WindowResult toResult(long start, List<String> group) {
+            Map<String, String> groupValues = new LinkedHashMap<>();
+            for (int i = 0; i < groupByFields.size(); i++) {
+                groupValues.put(groupByFields.get(i), group.get(i));
+            }
+            Map<String, Double> sumValues = new LinkedHashMap<>();
+            for (int i = 0; i < sumFields.size(); i++) {
+                sumValues.put(sumFields.get(i), sums[i]);
+            }
+            Map<String, Integer> distinctCounts = new LinkedHashMap<>();
+            for (int i = 0; i < distinctFields.size(); i++) {
+                distinctCounts.put(distinctFields.get(i), distinct.get(i).size());
+            }
+            return new WindowResult(start, start + sizeMs, groupValues, count, sumValues, distinctCounts);
+        }
+    }
+
+    /**
+     * Итог окна [windowStartMs, windowEndMs) для одной группы
+     *
+     * @param group          значения полей groupBy (null - поля нет в сообщении)
+     * @param sums           поле -> сумма числовых значений
+     * @param distinctCounts поле -> число различных значений (отсутствие поля считается одним значением)
+     */
+    public record WindowResult(long windowStartMs,
+                               long windowEndMs,
+                               Map<String, String> group,
+                               long count,
+                               Map<String, Double> sums,
+                               Map<String, Integer> distinctCounts) {
+
+        public double sum(String field) {
+            return sums.getOrDefault(field, 0.0);
+        }
+
+        public int distinct(String field) {
+            return distinctCounts.getOrDefault(field, 0);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + Instant.ofEpochMilli(windowStartMs) + ", " + Instant.ofEpochMilli(windowEndMs) + ") " +
+                    group + " count=" + count + " sums=" + sums + " distinct=" + distinctCounts;
+        }
+    }
+
+    // Builder pattern (ручная реализация)
+    public static class Builder {
+        private final long sizeMs;
+        private final long slideMs;
+        private long allowedLatenessMs = 0;
+        private final List<String> groupByFields = new ArrayList<>();
+        private final List<String> sumFields = new ArrayList<>();
+        private final List<String> distinctFields = new ArrayList<>();
+        private Consumer<WindowResult> onWindow;
+
+        private Builder(long sizeMs, long slideMs) {
+            if (sizeMs <= 0 || slideMs <= 0 || slideMs > sizeMs) {
+                throw new IllegalArgumentException("Window size and slide must be positive, slide <= size");
+            }
+            this.sizeMs = sizeMs;
+            this.slideMs = slideMs;
+        }
+
+        /**
+         * Группировка по JSON полям (путь через точку)
+         */
+        public Builder groupBy(String... fields) {
+            groupByFields.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        public Builder sum(String... fields) {
+            sumFields.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        public Builder distinct(String... fields) {
+            distinctFields.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        /**
+         * Насколько запись может опоздать относительно максимального timestamp и все еще попасть в свое окно
+         */
+        public Builder allowedLateness(Duration lateness) {
+            this.allowedLatenessMs = lateness.toMillis();
+            return this;
+        }
+
+        /**
+         * Колбэк на каждое финализированное окно (по умолчанию результаты копятся и возвращаются из finish())
+         */
+        public Builder onWindow(Consumer<WindowResult> onWindow) {
+            this.onWindow = onWindow;
+            return this;
+        }
+
+        public WindowedAggregator build() {
+            return new WindowedAggregator(this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.qa.framework.testcontainers.kafkaTests;
+
+import com.qa.framework.kafka.KafkaUtils;
+import com.qa.framework.kafka.LatencyHistogram;
+import com.qa.framework.kafka.LatencyProbe;
+import com.qa.framework.kafka.ProducerAdapter;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Замер задержки LatencyProbe против брокера в Testcontainers.
+ * <p>
+ * Тестируемой системы нет, поэтому входной и выходной топик совпадают:
+ * задержка равна времени "отправка -> чтение" через брокер.
+ */
+@Testcontainers
+public class KafkaLatencyProbeTest {
+
+    private static final int PROBE_COUNT = 200;
+
+    @Container
+    static KafkaContainer kafkaContainer = KafkaTestContainerConfig.createContainer();
+
+    private static String bootstrapServers;
+    private static KafkaTestContainerConfig.PropertyOverrides properties;
+
+    @BeforeAll
+    static void setUp() {
+        // Брокер в контейнере без SSL
+        properties = KafkaTestContainerConfig.overrideClientProperties();
+        bootstrapServers = KafkaTestContainerConfig.getBootstrapServers(kafkaContainer);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        properties.restore();
+    }
+
+    @Test
+    @DisplayName("⏱️ Задержка отправка -> чтение по X-Transaction-Req-Id")
+    void testProbeLatency() {
+        String topic = "probe-" + UUID.randomUUID().toString().substring(0, 8);
+        // Создаем топик до старта консюмера
+        assertTrue(ProducerAdapter.sendMessage(bootstrapServers, topic, "warm-up"));
+
+        try (LatencyProbe probe = LatencyProbe.start(bootstrapServers, topic)) {
+            for (int i = 0; i < PROBE_COUNT; i++) {
+                probe.send(topic, KafkaUtils.createTestMessage("PROBE-" + i, "CUST-" + i, 100.0, "CREATED"));
+            }
+
+            assertTrue(probe.awaitAll(Duration.ofSeconds(30)),
+                    "Не дошли сообщения: " + probe.pendingCount() + ", не отправлены: " + probe.failedCount());
+            assertEquals(0, probe.failedCount());
+
+            LatencyHistogram histogram = probe.histogram();
+            assertEquals(PROBE_COUNT, histogram.count());
+            assertTrue(histogram.percentile(50) <= histogram.percentile(95));
+            assertTrue(histogram.percentile(95) <= histogram.percentile(99));
+            assertTrue(histogram.percentile(99) <= histogram.max());
+            assertTrue(histogram.percentile(99) < Duration.ofSeconds(5).toNanos() / 1000,
+                    "p99 через локальный брокер должен быть меньше 5 секунд");
+        }
+    }
+
+    @Test
+    @DisplayName("⏱️ Время отправки из заголовка для сообщения другого процесса")
+    void testSendTimestampFromHeader() {
+        String topic = "probe-header-" + UUID.randomUUID().toString().substring(0, 8);
+        assertTrue(ProducerAdapter.sendMessage(bootstrapServers, topic, "warm-up"));
+
+        try (LatencyProbe probe = LatencyProbe.start(bootstrapServers, topic)) {
+            // "Другой процесс" отправил сообщение 2 секунды назад - проба знает только id
+            String transactionId = UUID.randomUUID().toString();
+            Instant sentAt = Instant.now().minusSeconds(2);
+            long sentAtMicros = sentAt.getEpochSecond() * 1_000_000L + sentAt.getNano() / 1_000;
+            probe.expect(transactionId);
+
+            ProducerAdapter.sendAsync(bootstrapServers, topic, null,
+                    KafkaUtils.createTestMessage("PROBE-HEADER", "CUST-1", 1.0, "CREATED"),
+                    Map.of("X-Transaction-Req-Id", transactionId,
+                            LatencyProbe.SEND_TIMESTAMP_HEADER, Long.toString(sentAtMicros))).join();
+
+            assertTrue(probe.awaitAll(Duration.ofSeconds(30)));
+            assertEquals(1, probe.histogram().count());
+            assertTrue(probe.histogram().max() >= Duration.ofSeconds(2).toNanos() / 1000,
+                    "Задержка считается от времени в заголовке");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.qa.framework.testcontainers.kafkaTests;
+
+import com.qa.framework.kafka.LoadGenerator;
+import com.qa.framework.kafka.LoadGenerator.ArrivalModel;
+import com.qa.framework.kafka.LoadGenerator.LoadReport;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Генератор нагрузки (LoadGenerator) против брокера в Testcontainers.
+ * <p>
+ * Контейнер общий на класс (static), отправка идет через общий продюсер ProducerAdapter.
+ * Брокер в контейнере без SSL, поэтому SSL из файла окружения отключается системным свойством.
+ */
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class KafkaLoadGeneratorTest {
+
+    private static final double RATE_PER_SECOND = 200;
+    private static final Duration DURATION = Duration.ofSeconds(5);
+
+    @Container
+    static KafkaContainer kafkaContainer = KafkaTestContainerConfig.createContainer();
+
+    private static String bootstrapServers;
+    private static KafkaTestContainerConfig.PropertyOverrides properties;
+
+    @BeforeAll
+    static void setUp() {
+        properties = KafkaTestContainerConfig.overrideClientProperties();
+        bootstrapServers = KafkaTestContainerConfig.getBootstrapServers(kafkaContainer);
+        System.out.println("📋 Bootstrap Servers: " + bootstrapServers);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        properties.restore();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("🚀 Нагрузка с постоянной интенсивностью")
+    void testConstantRate() {
+        LoadReport report = LoadGenerator.builder()
+                .bootstrapServers(bootstrapServers)
+                .topic("load-constant-" + UUID.randomUUID().toString().substring(0, 8))
+                .ratePerSecond(RATE_PER_SECOND)
+                .duration(DURATION)
+                .arrivalModel(ArrivalModel.CONSTANT)
+                .build()
+                .run();
+
+        long expected = (long) (RATE_PER_SECOND * DURATION.toSeconds());
+        assertEquals(expected, report.sent(), "При постоянной интенсивности число отправок детерминировано");
+        assertEquals(report.sent(), report.acked(), "Все записи должны быть подтверждены");
+        assertEquals(0, report.failed());
+        assertTrue(report.achievedRatePerSecond() > RATE_PER_SECOND * 0.7,
+                "Достигнутая интенсивность слишком низкая: " + report.achievedRatePerSecond());
+        assertEquals(report.acked(), report.ackLatencyMicros().count());
+        assertTrue(report.ackLatencyMicros().percentile(50) <= report.ackLatencyMicros().percentile(99));
+        assertTrue(report.ackLatencyMicros().percentile(99) <= report.ackLatencyMicros().max());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("🎲 Нагрузка с пуассоновским потоком (открытая модель)")
+    void testPoissonArrivals() {
+        LoadReport report = LoadGenerator.builder()
+                .bootstrapServers(bootstrapServers)
+                .topic("load-poisson-" + UUID.randomUUID().toString().substring(0, 8))
+                .ratePerSecond(RATE_PER_SECOND)
+                .duration(DURATION)
+                .arrivalModel(ArrivalModel.POISSON)
+                .key(sequence -> "CUST-" + (sequence % 10))
+                .build()
+                .run();
+
+        long expected = (long) (RATE_PER_SECOND * DURATION.toSeconds());
+        assertTrue(report.sent() > expected * 0.7 && report.sent() < expected * 1.3,
+                "Число отправок должно быть близко к rate * duration: " + report.sent());
+        assertEquals(report.sent(), report.acked(), "Все записи должны быть подтверждены");
+        assertEquals(0, report.failed());
+        assertTrue(report.ackLatencyMicros().max() > 0);
+    }
+}
@@ -1,5 +1,6 @@
 package com.qa.framework.testcontainers.kafkaTests;
 
+import com.qa.framework.utils.JsonUtils;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.*;
 import org.testcontainers.containers.KafkaContainer;
@@ -51,6 +52,7 @@ public class KafkaSimpleTest {
 
     @AfterEach
     void tearDown() {
+        kafkaHelper.close();
         System.out.println("🔧 Тест завершён\n");
     }
 
@@ -141,8 +143,7 @@ public class KafkaSimpleTest {
 
         // 6. Преобразуем JSON обратно в Map для проверки
         String receivedJson = messages.get(0).value();
-        com.google.gson.Gson gson = new com.google.gson.Gson();
-        Map<String, Object> receivedMap = gson.fromJson(receivedJson, Map.class);
+        Map<String, Object> receivedMap = JsonUtils.jsonToMap(receivedJson);
 
         // 7. Проверяем поля
         assertEquals(orderId, receivedMap.get("orderId"), "orderId должен совпадать");
@@ -1,8 +1,14 @@
 package com.qa.framework.testcontainers.kafkaTests;
 
+import com.qa.framework.kafka.ConsumerPool;
+import com.qa.framework.kafka.ProducerAdapter;
+import com.qa.framework.kafka.TopicMetadata;
 import org.testcontainers.containers.KafkaContainer;
 import org.testcontainers.utility.DockerImageName;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Конфигурация Kafka контейнера для тестов.
  *
@@ -34,4 +40,57 @@ public class KafkaTestContainerConfig {
     public static String getBootstrapServers(KafkaContainer container) {
         return container.getBootstrapServers();
     }
-}
\ No newline at end of file
+
+    /**
+     * Переопределяет настройки клиента под контейнер (брокер без SSL) на время тестового класса.
+     * Вызывайте в @BeforeAll, а в @AfterAll - {@link PropertyOverrides#restore()}.
+     *
+     * @return переопределения, к которым можно добавить свои через {@link PropertyOverrides#set}
+     */
+    public static PropertyOverrides overrideClientProperties() {
+        return new PropertyOverrides().set("kafka.ssl.enabled", "false");
+    }
+
+    /**
+     * Системные свойства, переопределенные тестом, с прежними значениями для восстановления.
+     * Переопределение глобальное (см. ConfigurationManager), поэтому при каждом изменении закешированные
+     * клиенты Kafka закрываются и создаются заново уже с новыми настройками
+     */
+    public static final class PropertyOverrides {
+        // null - свойства до теста не было
+        private final Map<String, String> previousValues = new LinkedHashMap<>();
+
+        private PropertyOverrides() {
+        }
+
+        public PropertyOverrides set(String key, String value) {
+            String previous = System.setProperty(key, value);
+            if (!previousValues.containsKey(key)) {
+                previousValues.put(key, previous);
+            }
+            resetClients();
+            return this;
+        }
+
+        /**
+         * Возвращает все переопределенные свойства к значениям до теста
+         */
+        public void restore() {
+            previousValues.forEach((key, previous) -> {
+                if (previous == null) {
+                    System.clearProperty(key);
+                } else {
+                    System.setProperty(key, previous);
+                }
+            });
+            previousValues.clear();
+            resetClients();
+        }
+
+        private static void resetClients() {
+            ProducerAdapter.closeAll();
+            ConsumerPool.reset();
+            TopicMetadata.closeAll();
+        }
+    }
+}
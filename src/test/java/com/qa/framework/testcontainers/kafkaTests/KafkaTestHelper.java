@@ -1,5 +1,6 @@
 package com.qa.framework.testcontainers.kafkaTests;
 
+import com.qa.framework.utils.JsonUtils;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
@@ -14,6 +15,7 @@ import org.testcontainers.containers.KafkaContainer;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -21,17 +23,29 @@ import java.util.concurrent.TimeoutException;
 /**
  * Helper класс для работы с Kafka в тестах.
  * Аналог ProducerAdapter и ConsumerAdapter, но для тестового контейнера.
+ * Продюсер создается один раз на helper и закрывается в {@link #close()}.
  */
-public class KafkaTestHelper {
+public class KafkaTestHelper implements AutoCloseable {
 
     private final KafkaContainer container;
     private final String bootstrapServers;
+    private KafkaProducer<String, String> producer;
 
     public KafkaTestHelper(KafkaContainer container) {
         this.container = container;
         this.bootstrapServers = container.getBootstrapServers();
     }
 
+    /**
+     * Общий продюсер helper'а (создаётся при первой отправке)
+     */
+    private synchronized KafkaProducer<String, String> producer() {
+        if (producer == null) {
+            producer = createProducer();
+        }
+        return producer;
+    }
+
     /**
      * Создаёт продюсера для отправки сообщений
      */
@@ -43,6 +57,9 @@ public class KafkaTestHelper {
         props.put(ProducerConfig.ACKS_CONFIG, "all");  // Ждём подтверждения от всех реплик
         props.put(ProducerConfig.RETRIES_CONFIG, 3);   // Повтор при ошибке
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);  // Идемпотентность (гарантия exactly-once)
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);               // Собираем записи в пачки
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 65536);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
 
         return new KafkaProducer<>(props);
     }
@@ -82,23 +99,9 @@ public class KafkaTestHelper {
      * @return true если успешно
      */
     public boolean sendMessage(String topic, Object message, Map<String, String> headers) {
-        // Преобразуем объект в JSON
-        String jsonMessage = message instanceof String ?
-                (String) message :
-                new com.google.gson.Gson().toJson(message);
-
-        try (KafkaProducer<String, String> producer = createProducer()) {
-            ProducerRecord<String, String> record = new ProducerRecord<>(topic, jsonMessage);
-
-            // Добавляем заголовки, если есть
-            if (headers != null) {
-                headers.forEach((key, value) ->
-                        record.headers().add(key, value.getBytes())
-                );
-            }
-
+        try {
             // Отправляем и ждём подтверждения
-            RecordMetadata metadata = producer.send(record).get(10, TimeUnit.SECONDS);
+            RecordMetadata metadata = sendAsync(topic, message, headers).get(10, TimeUnit.SECONDS);
 
             System.out.println("✅ Сообщение отправлено в топик " + topic);
             System.out.println("   Partition: " + metadata.partition());
@@ -122,6 +125,67 @@ public class KafkaTestHelper {
         }
     }
 
+    /**
+     * Асинхронная отправка сообщения - без ожидания подтверждения
+     *
+     * @param message сообщение (строка отправляется как есть, остальное - в JSON)
+     * @param headers заголовки (может быть null)
+     * @return future с метаданными записи
+     */
+    public CompletableFuture<RecordMetadata> sendAsync(String topic, Object message, Map<String, String> headers) {
+        // Преобразуем объект в JSON
+        String jsonMessage = message instanceof String ?
+                (String) message :
+                JsonUtils.toJson(message);
+
+        CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+        try {
+            ProducerRecord<String, String> record = new ProducerRecord<>(topic, jsonMessage);
+
+            // Добавляем заголовки, если есть
+            if (headers != null) {
+                headers.forEach((key, value) ->
+                        record.headers().add(key, value.getBytes())
+                );
+            }
+
+            producer().send(record, (metadata, exception) -> {
+                if (exception != null) {
+                    future.completeExceptionally(exception);
+                } else {
+                    future.complete(metadata);
+                }
+            });
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Отправить пачку сообщений без ожидания каждого
+     *
+     * @return future со списком метаданных в порядке сообщений
+     */
+    public CompletableFuture<List<RecordMetadata>> sendAll(String topic, List<?> messages) {
+        List<CompletableFuture<RecordMetadata>> futures = new ArrayList<>(messages.size());
+        messages.forEach(message -> futures.add(sendAsync(topic, message, null)));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Отправляет накопленные записи и закрывает продюсер
+     */
+    @Override
+    public synchronized void close() {
+        if (producer != null) {
+            producer.close(Duration.ofSeconds(10));
+            producer = null;
+        }
+    }
+
     /**
      * Прочитать сообщения из топика
      *
@@ -0,0 +1,147 @@
+package com.qa.framework.testcontainers.kafkaTests;
+
+import com.qa.framework.kafka.ConsumerAdapter;
+import com.qa.framework.kafka.KafkaMessage;
+import com.qa.framework.kafka.LoadGenerator;
+import com.qa.framework.kafka.LoadGenerator.LoadReport;
+import com.qa.framework.kafka.TrafficArchive;
+import com.qa.framework.kafka.TrafficReplayer;
+import com.qa.framework.kafka.TrafficReplayer.ReplayReport;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Запись трафика в сжатый архив (TrafficArchive) и воспроизведение (TrafficReplayer) против брокера в Testcontainers.
+ * <p>
+ * Исходный трафик создается генератором нагрузки, записывается в архив и воспроизводится в другой топик
+ * без пауз и с ускорением. Маленький блок архива (kafka.archive.block.records) проверяет чтение по индексу.
+ */
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class KafkaTrafficReplayTest {
+
+    private static final double RATE_PER_SECOND = 200;
+    private static final Duration DURATION = Duration.ofSeconds(2);
+
+    @Container
+    static KafkaContainer kafkaContainer = KafkaTestContainerConfig.createContainer();
+
+    @TempDir
+    static Path archiveRoot;
+
+    private static String bootstrapServers;
+    private static KafkaTestContainerConfig.PropertyOverrides properties;
+    private static TrafficArchive archive;
+
+    @BeforeAll
+    static void setUp() {
+        properties = KafkaTestContainerConfig.overrideClientProperties()
+                .set("kafka.archive.block.records", "50");
+        bootstrapServers = KafkaTestContainerConfig.getBootstrapServers(kafkaContainer);
+        System.out.println("📋 Bootstrap Servers: " + bootstrapServers);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        properties.restore();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("📼 Запись трафика топика в сжатый архив")
+    void testRecordTraffic() {
+        String sourceTopic = "replay-source-" + UUID.randomUUID().toString().substring(0, 8);
+        long startTimestampMs = System.currentTimeMillis();
+
+        LoadReport sourceReport = LoadGenerator.builder()
+                .bootstrapServers(bootstrapServers)
+                .topic(sourceTopic)
+                .ratePerSecond(RATE_PER_SECOND)
+                .duration(DURATION)
+                .key(sequence -> "CUST-" + (sequence % 10))
+                .build()
+                .run();
+        assertEquals(sourceReport.sent(), sourceReport.acked());
+
+        archive = ConsumerAdapter.recordMessagesInTimeRange(
+                bootstrapServers, sourceTopic, startTimestampMs, 0, 10, archiveRoot.resolve("source"));
+
+        assertEquals(sourceReport.acked(), archive.size(), "В архив должны попасть все сообщения");
+        assertEquals(sourceTopic, archive.getTopic());
+
+        // Поиск по offset и чтение диапазона идут по индексу
+        KafkaMessage first = archive.find(0, 0).orElseThrow();
+        assertNotNull(first.getBody());
+        long middleTimestampMs = (archive.getFirstTimestamp() + archive.getLastTimestamp()) / 2;
+        try (Stream<KafkaMessage> tail = archive.read(middleTimestampMs, Long.MAX_VALUE)) {
+            long count = tail.count();
+            assertTrue(count > 0 && count < archive.size(), "Во второй половине архива - часть сообщений: " + count);
+        }
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("⏩ Воспроизведение архива без пауз")
+    void testReplayAsFastAsPossible() {
+        assertNotNull(archive, "Архив записывается в первом тесте");
+        String targetTopic = "replay-fast-" + UUID.randomUUID().toString().substring(0, 8);
+        long startTimestampMs = System.currentTimeMillis();
+
+        ReplayReport report = TrafficReplayer.builder()
+                .bootstrapServers(bootstrapServers)
+                .archive(archive)
+                .topic(targetTopic)
+                .asFastAsPossible()
+                .build()
+                .run();
+
+        assertEquals(archive.size(), report.sent());
+        assertEquals(report.sent(), report.acked());
+
+        List<KafkaMessage> replayed = ConsumerAdapter.readMessagesInTimeRange(
+                bootstrapServers, targetTopic, startTimestampMs, 0, 10);
+        assertEquals(archive.size(), replayed.size(), "В целевом топике все сообщения архива");
+        try (Stream<KafkaMessage> original = archive.read()) {
+            assertEquals(original.map(KafkaMessage::getBody).sorted().toList(),
+                    replayed.stream().map(KafkaMessage::getBody).sorted().toList(),
+                    "Тела сообщений воспроизводятся без изменений");
+        }
+        try (Stream<KafkaMessage> original = archive.read()) {
+            assertEquals(original.map(KafkaMessage::getKey).sorted().toList(),
+                    replayed.stream().map(KafkaMessage::getKey).sorted().toList(),
+                    "Ключи сообщений воспроизводятся без изменений");
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("🕒 Воспроизведение архива с ускорением в 4 раза")
+    void testReplayWithSpeedup() {
+        assertNotNull(archive, "Архив записывается в первом тесте");
+        double speed = 4;
+
+        ReplayReport report = TrafficReplayer.builder()
+                .bootstrapServers(bootstrapServers)
+                .archive(archive)
+                .topic("replay-speedup-" + UUID.randomUUID().toString().substring(0, 8))
+                .speed(speed)
+                .build()
+                .run();
+
+        assertEquals(report.sent(), report.acked());
+        long expectedMs = (long) (report.capturedSpan().toMillis() / speed);
+        assertTrue(report.elapsed().toMillis() >= expectedMs * 0.9,
+                "Темп должен сохраняться: " + report.elapsed().toMillis() + " ms < " + expectedMs + " ms");
+    }
+}
@@ -0,0 +1,125 @@
+package com.qa.framework.testcontainers.kafkaTests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.qa.framework.kafka.ConsumerAdapter;
+import com.qa.framework.kafka.KafkaMessage;
+import com.qa.framework.kafka.KafkaUtils;
+import com.qa.framework.kafka.ProducerAdapter;
+import com.qa.framework.kafka.RecordSchema;
+import com.qa.framework.kafka.RecordSchema.FieldType;
+import com.qa.framework.kafka.SchemaRegistry;
+import com.qa.framework.kafka.ValueCodecs;
+import com.qa.framework.utils.JsonUtils;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Кодеки тела (Avro, Protobuf) против брокера в Testcontainers.
+ * <p>
+ * Топику назначается кодек через kafka.value.codec.&lt;topic&gt;, схема регистрируется в {@link SchemaRegistry}.
+ * Сообщение отправляется обычным ProducerAdapter и читается обратно как JSON текст - списком и ленивым потоком.
+ */
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class KafkaValueCodecTest {
+
+    private static final RecordSchema ORDER_SCHEMA = RecordSchema.builder("Order")
+            .field("orderId", FieldType.STRING)
+            .field("customerId", FieldType.STRING)
+            .field("amount", FieldType.DOUBLE)
+            .optionalField("status", FieldType.STRING)
+            .field("timestamp", FieldType.LONG)
+            .field("testRunId", FieldType.STRING)
+            .field("randomValue", FieldType.INT)
+            .build();
+
+    @Container
+    static KafkaContainer kafkaContainer = KafkaTestContainerConfig.createContainer();
+
+    private static String bootstrapServers;
+    private static KafkaTestContainerConfig.PropertyOverrides properties;
+
+    @BeforeAll
+    static void setUp() {
+        properties = KafkaTestContainerConfig.overrideClientProperties();
+        bootstrapServers = KafkaTestContainerConfig.getBootstrapServers(kafkaContainer);
+        System.out.println("📋 Bootstrap Servers: " + bootstrapServers);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        properties.restore();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("🧬 Отправка и чтение сообщения в Avro")
+    void testAvroRoundTrip() {
+        verifyRoundTrip("avro");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("🧬 Отправка и чтение сообщения в Protobuf")
+    void testProtobufRoundTrip() {
+        verifyRoundTrip("protobuf");
+    }
+
+    private void verifyRoundTrip(String codec) {
+        String topic = codec + "-orders-" + UUID.randomUUID().toString().substring(0, 8);
+        String codecProperty = "kafka.value.codec." + topic;
+        System.setProperty(codecProperty, codec);
+        try {
+            SchemaRegistry.register(SchemaRegistry.valueSubject(topic), ORDER_SCHEMA);
+            String orderId = "ORD-" + codec.toUpperCase();
+            Map<String, Object> message = KafkaUtils.createTestMessage(orderId, "CUST-42", 99.5, "CREATED");
+
+            byte[] encoded = ValueCodecs.encode(topic, message);
+            byte[] json = ValueCodecs.byName("json").encode(topic, message);
+            System.out.println("📦 " + codec + ": " + encoded.length + " bytes, json: " + json.length + " bytes");
+            assertTrue(encoded.length < json.length, "Бинарный формат компактнее JSON");
+
+            long startTimestampMs = System.currentTimeMillis() - 1000;
+            assertTrue(ProducerAdapter.sendMessage(bootstrapServers, topic, message));
+
+            // Список: тело декодирует ValueCodecDeserializer
+            List<KafkaMessage> messages = ConsumerAdapter.readMessagesInTimeRange(
+                    bootstrapServers, topic, startTimestampMs, 0, 10);
+            assertEquals(1, messages.size());
+            assertOrder(messages.get(0).getBody(), message);
+
+            // Ленивый поток: тело декодируется из сырых байт при обращении
+            try (Stream<KafkaMessage> stream = ConsumerAdapter.streamMessagesInTimeRange(
+                    bootstrapServers, topic, startTimestampMs, 0, 10)) {
+                KafkaMessage lazy = stream.findFirst().orElseThrow();
+                assertOrder(lazy.getBody(), message);
+            }
+
+            // Поиск по полю работает поверх декодированного тела
+            List<KafkaMessage> found = ConsumerAdapter.findMessagesInTimeRange(bootstrapServers, topic,
+                    startTimestampMs, 0, msg -> msg.getBody().contains(orderId), 1, 10);
+            assertEquals(1, found.size());
+        } finally {
+            System.clearProperty(codecProperty);
+        }
+    }
+
+    private static void assertOrder(String body, Map<String, Object> expected) {
+        JsonNode actual = JsonUtils.readTree(body);
+        assertEquals(expected.get("orderId"), actual.get("orderId").asText());
+        assertEquals(expected.get("customerId"), actual.get("customerId").asText());
+        assertEquals((double) expected.get("amount"), actual.get("amount").asDouble());
+        assertEquals(expected.get("status"), actual.get("status").asText());
+        assertEquals(expected.get("timestamp"), actual.get("timestamp").asLong());
+        assertEquals(expected.get("randomValue"), actual.get("randomValue").asInt());
+    }
+}
@@ -1,17 +1,30 @@
 package com.qa.framework.tests.kafkaTests;
 
 import com.qa.framework.config.ConfigurationManager;
+import com.qa.framework.kafka.CaptureStore;
 import com.qa.framework.kafka.ConsumerAdapter;
+import com.qa.framework.kafka.DeliveryVerifier;
+import com.qa.framework.kafka.JourneyCorrelator;
 import com.qa.framework.kafka.KafkaMessage;
 import com.qa.framework.kafka.ProducerAdapter;
+import com.qa.framework.kafka.TopicPublisher;
+import com.qa.framework.kafka.TrafficProfiler;
+import com.qa.framework.kafka.WindowedAggregator;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.header.Header;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.parallel.Isolated;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.qa.framework.kafka.KafkaUtils.createTestMessage;
 import static org.junit.jupiter.api.Assertions.*;
@@ -194,4 +207,316 @@ public class KafkaIntegrationTests {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @Order(6)
+    @Tag("kafka-consumer-await")
+    @DisplayName("Тест асинхронного ожидания сообщения по testRunId")
+    void testAwaitMessage() {
+        System.out.println("\n⏳ Тест ожидания сообщения через общий консюмер");
+        String orderId = "ORD-AWAIT-" + System.currentTimeMillis();
+        Map<String, Object> message = createTestMessage(orderId, "CUST-003", 250.0, "CREATED");
+        String testRunId = (String) message.get("testRunId");
+
+        // Ожидание регистрируется до отправки - сообщение не будет пропущено
+        CompletableFuture<KafkaMessage> awaited = ConsumerAdapter.awaitMessage(
+                bootstrapServers,
+                testTopic,
+                msg -> msg.getBody() != null && msg.getBody().contains(testRunId),
+                Duration.ofSeconds(30)
+        );
+
+        boolean sent = ProducerAdapter.sendMessage(bootstrapServers, testTopic, message);
+        assertTrue(sent, "Сообщение должно быть отправлено успешно");
+
+        KafkaMessage received = awaited.join();
+        assertTrue(received.getBody().contains(orderId), "Получено сообщение с другим orderId");
+        System.out.println("✅ Сообщение получено: partition " + received.getPartition() +
+                ", offset " + received.getOffset());
+    }
+
+    @Test
+    @Order(7)
+    @Tag("kafka-consumer-key")
+    @DisplayName("Тест поиска сообщения по ключу в одной partition")
+    void testFindMessageByKey() {
+        System.out.println("\n🔑 Тест поиска по ключу");
+        String orderId = "ORD-KEY-" + System.currentTimeMillis();
+        Map<String, Object> message = createTestMessage(orderId, "CUST-004", 300.0, "CREATED");
+
+        RecordMetadata metadata = ProducerAdapter.sendAsync(bootstrapServers, testTopic, orderId, message, null)
+                .join();
+
+        List<KafkaMessage> found = ConsumerAdapter.findMessagesByKeyFromLastMinutes(
+                bootstrapServers, testTopic, orderId, 5, 10);
+
+        assertEquals(1, found.size(), "Должно быть найдено ровно одно сообщение с ключом " + orderId);
+        assertEquals(orderId, found.get(0).getKey());
+        assertEquals(metadata.partition(), found.get(0).getPartition(),
+                "Partition ключа должна совпадать с partition, выбранной продюсером");
+        assertEquals(metadata.offset(), found.get(0).getOffset());
+    }
+
+    @Test
+    @Order(8)
+    @Tag("kafka-consumer-tail")
+    @DisplayName("Тест чтения последних N сообщений по всем partitions в порядке timestamp")
+    void testReadLastMessagesAcrossPartitions() {
+        System.out.println("\n📜 Тест хвоста топика");
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String orderId = "ORD-TAIL-" + System.currentTimeMillis() + "-" + i;
+            orderIds.add(orderId);
+            // Разные ключи - сообщения попадают в разные partitions
+            ProducerAdapter.sendAsync(bootstrapServers, testTopic, orderId,
+                    createTestMessage(orderId, "CUST-005", 10.0 * i, "CREATED"), null).join();
+        }
+
+        List<KafkaMessage> last = ConsumerAdapter.readLastMessages(bootstrapServers, testTopic, orderIds.size(), 10);
+
+        // При равных timestamp порядок между partitions определяется номером partition, поэтому сравниваем множества
+        assertEquals(new HashSet<>(orderIds), last.stream().map(KafkaMessage::getKey).collect(Collectors.toSet()),
+                "Последние сообщения топика должны совпадать с отправленными");
+        for (int i = 1; i < last.size(); i++) {
+            assertTrue(last.get(i - 1).getTimestamp() <= last.get(i).getTimestamp());
+        }
+    }
+
+    @Test
+    @Order(9)
+    @Tag("kafka-consumer-publisher")
+    @DisplayName("Тест чтения топика через Flow.Publisher с запросом по одному сообщению")
+    void testTopicPublisher() {
+        System.out.println("\n📡 Тест Flow.Publisher");
+        String orderPrefix = "ORD-FLOW-" + System.currentTimeMillis();
+        int expected = 3;
+        CompletableFuture<List<String>> received = new CompletableFuture<>();
+
+        // fromNow фиксирует момент в subscribe() - отправленное сразу после подписки не пропускается,
+        // пока консюмер подписки стартует
+        TopicPublisher.fromNow(bootstrapServers, testTopic).subscribe(new Flow.Subscriber<>() {
+            private final List<String> orderIds = new ArrayList<>();
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(KafkaMessage message) {
+                if (message.getKey() != null && message.getKey().startsWith(orderPrefix)) {
+                    orderIds.add(message.getKey());
+                }
+                if (orderIds.size() == expected) {
+                    subscription.cancel();
+                    received.complete(orderIds);
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                received.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                received.complete(orderIds);
+            }
+        });
+
+        for (int i = 0; i < expected; i++) {
+            String orderId = orderPrefix + "-" + i;
+            ProducerAdapter.sendAsync(bootstrapServers, testTopic, orderId,
+                    createTestMessage(orderId, "CUST-006", 5.0, "CREATED"), null);
+        }
+
+        List<String> orderIds = received.orTimeout(30, TimeUnit.SECONDS).join();
+        assertEquals(expected, orderIds.size(), "Подписчик должен получить все отправленные сообщения");
+    }
+
+    @Test
+    @Order(10)
+    @Tag("kafka-consumer-aggregation")
+    @DisplayName("Тест оконной агрегации: count и sum по customerId")
+    void testWindowedAggregation() {
+        System.out.println("\n🧮 Тест оконной агрегации");
+        long startTimestampMs = System.currentTimeMillis();
+        // Один testRunId на все сообщения теста - по нему отбираем свои сообщения
+        String testRunId = "TEST-AGG-" + startTimestampMs;
+
+        List<CompletableFuture<RecordMetadata>> sent = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Map<String, Object> message = createTestMessage(
+                    "ORD-AGG-" + startTimestampMs + "-" + i, "CUST-AGG-" + (i % 2), 10.0, "CREATED");
+            message.put("testRunId", testRunId);
+            sent.add(ProducerAdapter.sendAsync(bootstrapServers, testTopic, message));
+        }
+        sent.forEach(CompletableFuture::join);
+
+        WindowedAggregator aggregator = WindowedAggregator.tumbling(Duration.ofMinutes(1))
+                .groupBy("customerId")
+                .sum("amount")
+                .build();
+
+        try (Stream<KafkaMessage> messages = ConsumerAdapter.streamMessagesInTimeRangeByTimestamp(
+                bootstrapServers, testTopic, startTimestampMs, 0, 10)) {
+            messages.filter(msg -> msg.getBody() != null && msg.getBody().contains(testRunId))
+                    .forEach(aggregator);
+        }
+
+        // Сообщения могли попасть в соседние минуты - суммируем по окнам
+        Map<String, Long> counts = new HashMap<>();
+        Map<String, Double> amounts = new HashMap<>();
+        aggregator.finish().forEach(window -> {
+            String customerId = window.group().get("customerId");
+            counts.merge(customerId, window.count(), Long::sum);
+            amounts.merge(customerId, window.sum("amount"), Double::sum);
+        });
+
+        assertEquals(Map.of("CUST-AGG-0", 3L, "CUST-AGG-1", 3L), counts);
+        assertEquals(30.0, amounts.get("CUST-AGG-0"), 0.001);
+        assertEquals(30.0, amounts.get("CUST-AGG-1"), 0.001);
+    }
+
+    @Test
+    @Order(11)
+    @Tag("kafka-consumer-profile")
+    @DisplayName("Тест профиля трафика: частые ключи и число различных ключей")
+    void testTrafficProfile() {
+        System.out.println("\n📈 Тест профиля трафика");
+        long startTimestampMs = System.currentTimeMillis();
+        String hotKey = "HOT-" + startTimestampMs;
+
+        List<CompletableFuture<RecordMetadata>> sent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            // Половина сообщений - с одним "горячим" ключом
+            String key = i % 2 == 0 ? hotKey : "COLD-" + startTimestampMs + "-" + i;
+            sent.add(ProducerAdapter.sendAsync(bootstrapServers, testTopic, key,
+                    createTestMessage("ORD-PROFILE-" + i, "CUST-007", 1.0, "CREATED"), null));
+        }
+        sent.forEach(CompletableFuture::join);
+
+        TrafficProfiler.TrafficProfile profile = TrafficProfiler.profile(
+                bootstrapServers, testTopic, startTimestampMs, 0, 10);
+
+        assertTrue(profile.messages() >= 20, "В профиль должны попасть все отправленные сообщения");
+        assertEquals(hotKey, profile.heavyHitters().get(0).key(), "Самый частый ключ - горячий");
+        assertTrue(profile.heavyHitters().get(0).estimatedCount() >= 10);
+        assertTrue(profile.estimatedDistinctKeys() >= 11, "Различных ключей не меньше 11");
+        assertTrue(profile.payloadSizeMax() > 0);
+    }
+
+    @Test
+    @Order(12)
+    @Tag("kafka-consumer-capture")
+    @DisplayName("Тест захвата сообщений в хранилище вне heap")
+    void testCaptureStore() {
+        System.out.println("\n💾 Тест захвата сообщений вне heap");
+        long startTimestampMs = System.currentTimeMillis();
+        String key = "CAPTURE-" + startTimestampMs;
+
+        List<CompletableFuture<RecordMetadata>> sent = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sent.add(ProducerAdapter.sendAsync(bootstrapServers, testTopic, key,
+                    createTestMessage("ORD-CAPTURE-" + i, "CUST-008", i, "CREATED"), null));
+        }
+        sent.forEach(CompletableFuture::join);
+
+        try (CaptureStore capture = ConsumerAdapter.captureMessagesInTimeRange(
+                bootstrapServers, testTopic, startTimestampMs, 0, 10)) {
+
+            List<KafkaMessage> captured = capture.stream()
+                    .filter(msg -> key.equals(msg.getKey()))
+                    .toList();
+
+            assertEquals(10, captured.size(), "Захвачены все отправленные сообщения");
+            assertTrue(captured.get(0).getBody().contains("ORD-CAPTURE-"));
+            assertEquals(testTopic, captured.get(0).getTopic());
+            assertTrue(capture.capturedBytes() > 0);
+        }
+    }
+
+    @Test
+    @Order(13)
+    @Tag("kafka-consumer-verification")
+    @DisplayName("Тест проверки доставки: дубли и пропуски по ключу")
+    void testDeliveryVerification() {
+        System.out.println("\n🧮 Тест проверки доставки");
+        long startTimestampMs = System.currentTimeMillis();
+        String cleanKey = "SEQ-CLEAN-" + startTimestampMs;
+        String brokenKey = "SEQ-BROKEN-" + startTimestampMs;
+
+        // У brokenKey номер 2 отправлен дважды, номер 3 пропущен
+        List<String> keys = List.of(cleanKey, cleanKey, cleanKey, brokenKey, brokenKey, brokenKey, brokenKey, brokenKey);
+        List<Integer> sequences = List.of(0, 1, 2, 0, 1, 2, 2, 4);
+        for (int i = 0; i < keys.size(); i++) {
+            // Ждем каждое подтверждение, чтобы порядок записей в partition совпадал с порядком отправки
+            ProducerAdapter.sendAsync(bootstrapServers, testTopic, keys.get(i),
+                    createTestMessage("ORD-SEQ-" + i, "CUST-009", 1.0, "CREATED"),
+                    Map.of("X-Sequence", String.valueOf(sequences.get(i)))).join();
+        }
+
+        List<DeliveryVerifier.Violation> violations = new ArrayList<>();
+        DeliveryVerifier.VerificationReport report = DeliveryVerifier.builder()
+                .sequenceHeader("X-Sequence")
+                .firstSequence(0)
+                .onViolation(violations::add)
+                .build()
+                .verify(bootstrapServers, testTopic, startTimestampMs, 0, 10);
+
+        assertEquals(2, report.keys(), "Номера есть только у сообщений этого теста");
+        assertEquals(1, report.duplicates());
+        assertEquals(1, report.missingSequences());
+        assertEquals(0, report.reorders());
+        assertFalse(report.isClean());
+        assertTrue(violations.stream().allMatch(violation -> violation.key().equals(brokenKey)),
+                "Нарушения только у brokenKey: " + violations);
+    }
+
+    @Test
+    @Order(14)
+    @Tag("kafka-consumer-journey")
+    @DisplayName("Тест сквозного пути транзакции по нескольким топикам")
+    void testTransactionJourney() {
+        System.out.println("\n🧭 Тест сквозного пути транзакции");
+        long startTimestampMs = System.currentTimeMillis();
+        List<String> topics = List.of(
+                ConfigurationManager.getKafkaIncomingOrdersTopic(),
+                ConfigurationManager.getKafkaUserActivitiesTopic(),
+                ConfigurationManager.getKafkaSystemLogsTopic());
+        String transactionId = UUID.randomUUID().toString();
+        String partialTransactionId = UUID.randomUUID().toString();
+
+        // Полная транзакция проходит все топики по очереди, вторая - только первый
+        for (String topic : topics) {
+            assertTrue(ProducerAdapter.sendMessageWithHeaders(bootstrapServers, topic,
+                    createTestMessage("ORD-JOURNEY-" + startTimestampMs, "CUST-010", 42.0, "CREATED"),
+                    Map.of("X-Transaction-Req-Id", transactionId)));
+        }
+        assertTrue(ProducerAdapter.sendMessageWithHeaders(bootstrapServers, topics.get(0),
+                createTestMessage("ORD-JOURNEY-PARTIAL-" + startTimestampMs, "CUST-010", 1.0, "CREATED"),
+                Map.of("X-Transaction-Req-Id", partialTransactionId)));
+
+        JourneyCorrelator.JourneyReport report = JourneyCorrelator.builder()
+                .topics(topics.toArray(new String[0]))
+                .retainMessages(true)
+                .build()
+                .collect(bootstrapServers, startTimestampMs, 0, 30);
+
+        JourneyCorrelator.Journey journey = report.journey(transactionId).orElseThrow();
+        assertTrue(journey.isComplete(topics), "Транзакция должна пройти все топики: " + journey);
+        assertEquals(3, journey.getSteps().size(), "По одному шагу в каждом топике");
+        assertTrue(journey.getSteps().get(0).message().getBody().contains("ORD-JOURNEY-"));
+        assertTrue(journey.latency(topics.get(0), topics.get(2)).isPresent());
+
+        JourneyCorrelator.Journey partial = report.journey(partialTransactionId).orElseThrow();
+        assertFalse(partial.isComplete(topics));
+        assertTrue(report.incomplete().contains(partial));
+        assertTrue(report.hopLatency(topics.get(0), topics.get(1)).count() >= 1);
+        assertTrue(report.endToEnd().count() >= 1);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.qa.framework.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Оценка частоты значений (count-min sketch) в постоянной памяти.
+ * <p>
+ * depth строк по width счетчиков; оценка - минимум по строкам, поэтому она никогда не меньше
+ * настоящей частоты и превышает ее не больше чем на ~e/width от общего числа добавлений
+ * с вероятностью 1 - e^-depth. Объект не потокобезопасен.
+ */
+public final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[][] counters;
+    private long total = 0;
+
+    public CountMinSketch() {
+        this(2048, 4);
+    }
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[depth][width];
+    }
+
+    /**
+     * Добавляет значение и возвращает его новую оценку частоты
+     */
+    public long add(byte[] value) {
+        long hash = SketchHashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = Math.floorMod(h1 + row * h2, width);
+            estimate = Math.min(estimate, ++counters[row][column]);
+        }
+        total++;
+        return estimate;
+    }
+
+    public long add(String value) {
+        return add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long estimate(byte[] value) {
+        long hash = SketchHashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row][Math.floorMod(h1 + row * h2, width)]);
+        }
+        return estimate;
+    }
+
+    public long estimate(String value) {
+        return estimate(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Общее число добавлений
+     */
+    public long total() {
+        return total;
+    }
+}
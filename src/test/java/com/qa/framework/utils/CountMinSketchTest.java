@@ -0,0 +1,84 @@
+package com.qa.framework.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Точность count-min sketch на известных частотах
+ */
+class CountMinSketchTest {
+
+    @Test
+    @DisplayName("📐 Оценка не меньше настоящей частоты и превышает ее не больше чем на e/width от общего числа")
+    void testErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(2048, 4);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+
+        // Zipf-подобное распределение: несколько частых ключей и длинный хвост
+        for (int i = 0; i < 200_000; i++) {
+            int rank = (int) Math.floor(Math.pow(random.nextDouble(), 3) * 20_000);
+            String key = "key-" + rank;
+            sketch.add(key);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        long total = sketch.total();
+        assertEquals(200_000, total);
+        double bound = Math.E / 2048 * total;
+
+        int overBound = 0;
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue(), "Оценка не может быть меньше частоты: " + entry.getKey());
+            if (estimate - entry.getValue() > bound) {
+                overBound++;
+            }
+        }
+        // Граница выполняется с вероятностью 1 - e^-depth (~98%) для каждого ключа
+        assertTrue(overBound <= exact.size() * 0.02,
+                "Ключей с ошибкой больше границы: " + overBound + " из " + exact.size());
+    }
+
+    @Test
+    @DisplayName("📐 Частые ключи оцениваются с малой относительной ошибкой")
+    void testHeavyHitters() {
+        CountMinSketch sketch = new CountMinSketch();
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add("hot");
+            if (i % 2 == 0) {
+                sketch.add("warm");
+            }
+            sketch.add("cold-" + i);
+        }
+
+        assertTrue(sketch.estimate("hot") >= 10_000);
+        assertTrue(sketch.estimate("hot") <= 10_000 * 1.05, "hot: " + sketch.estimate("hot"));
+        assertTrue(sketch.estimate("warm") >= 5_000);
+        assertTrue(sketch.estimate("warm") <= 5_000 * 1.1, "warm: " + sketch.estimate("warm"));
+    }
+
+    @Test
+    @DisplayName("📐 add возвращает текущую оценку, неизвестный ключ без коллизий - 0")
+    void testAddReturnsEstimate() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        assertEquals(0, sketch.estimate("missing"));
+        assertEquals(1, sketch.add("a"));
+        assertEquals(2, sketch.add("a"));
+        assertEquals(2, sketch.estimate("a"));
+        assertEquals(sketch.estimate("a"), sketch.estimate("a".getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("📐 Размеры должны быть положительными")
+    void testDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(16, 0));
+    }
+}
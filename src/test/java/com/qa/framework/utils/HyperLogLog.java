@@ -0,0 +1,66 @@
+package com.qa.framework.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Оценка числа различных значений (HyperLogLog) в постоянной памяти.
+ * <p>
+ * 2^precision регистров по байту: при precision = 14 это 16 КБ и стандартная ошибка ~0.8%
+ * (1.04 / sqrt(2^precision)) независимо от числа значений. Для малых кардинальностей
+ * используется линейный подсчет по пустым регистрам. Объект не потокобезопасен.
+ */
+public final class HyperLogLog {
+
+    private final int precision;
+    private final int registerCount;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(14);
+    }
+
+    /**
+     * @param precision число бит хеша на номер регистра, 4..18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be in 4..18");
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+        this.registers = new byte[registerCount];
+    }
+
+    public void add(byte[] value) {
+        long hash = SketchHashing.hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Сигнальный бит ограничивает ранг, если все оставшиеся биты - нули
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void add(String value) {
+        add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                emptyRegisters++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / registerCount);
+        double estimate = alpha * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+            estimate = registerCount * Math.log((double) registerCount / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+}
@@ -0,0 +1,73 @@
+package com.qa.framework.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Точность HyperLogLog на известных кардинальностях
+ */
+class HyperLogLogTest {
+
+    @Test
+    @DisplayName("📐 Малые кардинальности считаются почти точно (линейный подсчет)")
+    void testSmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog();
+        assertEquals(0, sketch.estimate());
+
+        for (int i = 0; i < 100; i++) {
+            sketch.add("key-" + i);
+        }
+        assertWithin(100, sketch.estimate(), 0.02);
+    }
+
+    @Test
+    @DisplayName("📐 Ошибка на больших кардинальностях в пределах 3 стандартных ошибок")
+    void testLargeCardinality() {
+        // precision 14: стандартная ошибка 1.04 / sqrt(16384) ~ 0.8%
+        for (int cardinality : new int[]{10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog(14);
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add("order-" + i);
+            }
+            assertWithin(cardinality, sketch.estimate(), 0.025);
+        }
+    }
+
+    @Test
+    @DisplayName("📐 Повторы не меняют оценку")
+    void testDuplicatesIgnored() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                sketch.add("customer-" + i);
+            }
+        }
+        assertWithin(5_000, sketch.estimate(), 0.025);
+    }
+
+    @Test
+    @DisplayName("📐 Меньшая точность - большая, но ограниченная ошибка")
+    void testLowPrecision() {
+        // precision 10: стандартная ошибка ~3.3%
+        HyperLogLog sketch = new HyperLogLog(10);
+        for (int i = 0; i < 50_000; i++) {
+            sketch.add("k" + i);
+        }
+        assertWithin(50_000, sketch.estimate(), 0.10);
+    }
+
+    @Test
+    @DisplayName("📐 Точность вне 4..18 отклоняется")
+    void testPrecisionBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+    }
+
+    private static void assertWithin(long expected, long actual, double relativeError) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(error <= relativeError,
+                "Оценка " + actual + " для " + expected + ": ошибка " + error + " > " + relativeError);
+    }
+}
@@ -0,0 +1,134 @@
+package com.qa.framework.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Поиск значения поля в JSON потоковым парсером Jackson без построения дерева или Map.
+ * <p>
+ * Путь задается через точку ("testRunId", "order.customer.id"). Парсер пропускает
+ * не относящиеся к пути объекты и массивы целиком (skipChildren) и останавливается
+ * на первом найденном поле. Тела, которые не начинаются с '{', сразу считаются
+ * несовпадающими - без исключений.
+ */
+public final class JsonFieldMatcher {
+
+    private static final JsonFactory JSON_FACTORY = JsonUtils.factory();
+    private static final Map<String, JsonFieldMatcher> COMPILED = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final String[] segments;
+
+    private JsonFieldMatcher(String path) {
+        this.path = path;
+        this.segments = path.split("\\.");
+    }
+
+    /**
+     * Матчер для пути (кешируется)
+     */
+    public static JsonFieldMatcher forPath(String path) {
+        return COMPILED.computeIfAbsent(path, JsonFieldMatcher::new);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Значение скалярного поля в виде строки (числа - как записаны в JSON).
+     * null - если поля нет, оно не скалярное или тело не JSON объект.
+     */
+    public String extract(String json) {
+        if (!looksLikeObject(json)) {
+            return null;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return findInObject(parser, 0);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * То же для тела в байтах (UTF-8) - без предварительного декодирования в строку
+     */
+    public String extract(byte[] json) {
+        if (!looksLikeObject(json)) {
+            return null;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return findInObject(parser, 0);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * true, если значение поля равно expectedValue
+     */
+    public boolean matches(String json, String expectedValue) {
+        return expectedValue != null && expectedValue.equals(extract(json));
+    }
+
+    /**
+     * Парсер стоит на START_OBJECT, ищем сегмент пути с индексом depth
+     */
+    private String findInObject(JsonParser parser, int depth) throws Exception {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean onPath = segments[depth].equals(parser.currentName());
+            JsonToken value = parser.nextToken();
+
+            if (!onPath) {
+                parser.skipChildren();
+                continue;
+            }
+
+            if (depth == segments.length - 1) {
+                return value.isScalarValue() && value != JsonToken.VALUE_NULL ? parser.getText() : null;
+            }
+            if (value != JsonToken.START_OBJECT) {
+                return null;
+            }
+            return findInObject(parser, depth + 1);
+        }
+        return null;
+    }
+
+    private static boolean looksLikeObject(byte[] json) {
+        if (json == null) {
+            return false;
+        }
+        for (byte b : json) {
+            if (!Character.isWhitespace(b)) {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+
+    private static boolean looksLikeObject(String json) {
+        if (json == null) {
+            return false;
+        }
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.qa.framework.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Потоковый поиск поля в JSON: вложенные пути, массивы, приведение типов и тела не в JSON
+ */
+class JsonFieldMatcherTest {
+
+    private static final String ORDER = """
+            {
+              "orderId": "ORD-1",
+              "items": [{"testRunId": "IN-ARRAY"}, {"sku": "A"}],
+              "meta": {"tags": ["x", "y"], "testRunId": "NESTED"},
+              "order": {"customer": {"id": "CUST-42", "vip": true}, "total": 99.50},
+              "testRunId": "TEST-1",
+              "count": 3,
+              "rate": 1e3,
+              "note": null
+            }
+            """;
+
+    @Test
+    @DisplayName("🔎 Поле верхнего уровня после вложенных объектов и массивов")
+    void testTopLevelField() {
+        assertEquals("TEST-1", JsonFieldMatcher.forPath("testRunId").extract(ORDER));
+        assertEquals("ORD-1", JsonFieldMatcher.forPath("orderId").extract(ORDER));
+        assertNull(JsonFieldMatcher.forPath("missing").extract(ORDER));
+    }
+
+    @Test
+    @DisplayName("🔎 Вложенный путь через точку")
+    void testNestedPath() {
+        assertEquals("CUST-42", JsonFieldMatcher.forPath("order.customer.id").extract(ORDER));
+        assertEquals("NESTED", JsonFieldMatcher.forPath("meta.testRunId").extract(ORDER));
+        assertNull(JsonFieldMatcher.forPath("order.customer.name").extract(ORDER));
+        // Сегмент пути указывает на скаляр, а не на объект
+        assertNull(JsonFieldMatcher.forPath("orderId.value").extract(ORDER));
+    }
+
+    @Test
+    @DisplayName("🔎 Массивы пропускаются целиком, значение-массив не скалярное")
+    void testArrays() {
+        assertNull(JsonFieldMatcher.forPath("items").extract(ORDER));
+        assertNull(JsonFieldMatcher.forPath("meta.tags").extract(ORDER));
+        // Путь внутрь массива не поддерживается - поле из элемента массива не находится
+        assertNull(JsonFieldMatcher.forPath("items.testRunId").extract(ORDER));
+    }
+
+    @Test
+    @DisplayName("🔎 Числа и boolean возвращаются текстом, как записаны в JSON")
+    void testTypeCoercion() {
+        assertEquals("3", JsonFieldMatcher.forPath("count").extract(ORDER));
+        assertEquals("99.50", JsonFieldMatcher.forPath("order.total").extract(ORDER));
+        assertEquals("1e3", JsonFieldMatcher.forPath("rate").extract(ORDER));
+        assertEquals("true", JsonFieldMatcher.forPath("order.customer.vip").extract(ORDER));
+        assertNull(JsonFieldMatcher.forPath("note").extract(ORDER));
+
+        assertTrue(JsonFieldMatcher.forPath("count").matches(ORDER, "3"));
+        assertFalse(JsonFieldMatcher.forPath("count").matches(ORDER, "3.0"));
+        assertFalse(JsonFieldMatcher.forPath("count").matches(ORDER, null));
+    }
+
+    @Test
+    @DisplayName("🔎 Байты UTF-8 дают тот же результат, что и строка")
+    void testBytes() {
+        byte[] body = ("  " + ORDER).getBytes(StandardCharsets.UTF_8);
+        assertEquals("CUST-42", JsonFieldMatcher.forPath("order.customer.id").extract(body));
+        assertEquals("TEST-1", JsonFieldMatcher.forPath("testRunId").extract(body));
+
+        byte[] cyrillic = "{\"status\":\"Создан\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals("Создан", JsonFieldMatcher.forPath("status").extract(cyrillic));
+    }
+
+    @Test
+    @DisplayName("🔎 Тела не в JSON и битый JSON не совпадают и не бросают исключений")
+    void testNonJsonBodies() {
+        JsonFieldMatcher matcher = JsonFieldMatcher.forPath("testRunId");
+
+        assertNull(matcher.extract((String) null));
+        assertNull(matcher.extract((byte[]) null));
+        assertNull(matcher.extract(""));
+        assertNull(matcher.extract("   "));
+        assertNull(matcher.extract("plain text testRunId=TEST-1"));
+        assertNull(matcher.extract("[{\"testRunId\":\"TEST-1\"}]"));
+        assertNull(matcher.extract("\"TEST-1\""));
+        assertNull(matcher.extract("{\"other\": {broken"));
+        assertNull(matcher.extract(new byte[]{0, 1, 2, (byte) 0xFF}));
+        assertFalse(matcher.matches("<xml testRunId=\"TEST-1\"/>", "TEST-1"));
+
+        // Поле до места поломки все равно находится - парсер останавливается на первом совпадении
+        assertEquals("TEST-1", matcher.extract("{\"testRunId\":\"TEST-1\", broken"));
+    }
+
+    @Test
+    @DisplayName("🔎 Матчер для пути кешируется")
+    void testCompiledMatcherIsCached() {
+        assertSame(JsonFieldMatcher.forPath("order.customer.id"), JsonFieldMatcher.forPath("order.customer.id"));
+        assertEquals("order.customer.id", JsonFieldMatcher.forPath("order.customer.id").getPath());
+    }
+}
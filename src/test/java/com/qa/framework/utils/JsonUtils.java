@@ -1,16 +1,113 @@
 package com.qa.framework.utils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Единая точка работы с JSON для Kafka и тестов.
+ * <p>
+ * Один ObjectMapper на JVM; ObjectReader и ObjectWriter неизменяемы и потокобезопасны,
+ * поэтому кешируются по типу и переиспользуются: сериализаторы и десериализаторы типа
+ * ищутся один раз, а не на каждый вызов. Неизвестные поля при чтении в класс или record игнорируются -
+ * в сообщениях обычно есть лишние поля.
+ * <p>
+ * Запись настроена под прежний формат тел Kafka (Gson): сериализуются только поля объекта, геттеры
+ * не используются (вычисляемые getXxx() не попадают в JSON), поля и значения Map, равные null, не пишутся.
+ * Отличие от Gson на проводе - символы &lt; &gt; &amp; = ' пишутся как есть, а не escape-последовательностями;
+ * для разбора JSON это то же самое, но побайтовое сравнение с телами, записанными через Gson, может не совпасть.
+ * Деревья (JsonNode) пишутся как есть, включая явные null.
+ */
 public class JsonUtils {
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // Поток вызывающего не закрывается после записи - буфер можно переиспользовать
+    private static final ObjectMapper objectMapper = new ObjectMapper(JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build())
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .setVisibility(PropertyAccessor.GETTER, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.IS_GETTER, JsonAutoDetect.Visibility.NONE)
+            .setDefaultPropertyInclusion(JsonInclude.Value.construct(
+                    JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL))
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static final ObjectReader TREE_READER = objectMapper.readerFor(JsonNode.class);
+    private static final ObjectReader MAP_READER = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {
+    });
+    private static final ObjectWriter PRETTY_WRITER = objectMapper.writerWithDefaultPrettyPrinter();
+
+    /**
+     * Общий ObjectMapper (для интеграций, которым нужен именно mapper).
+     * Не меняйте его настройки - от них зависят закешированные reader и writer.
+     */
+    public static ObjectMapper mapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Фабрика потоковых парсеров общего mapper
+     */
+    public static JsonFactory factory() {
+        return objectMapper.getFactory();
+    }
+
+    /**
+     * Закешированный reader для типа
+     */
+    public static ObjectReader reader(Class<?> type) {
+        return READERS.computeIfAbsent(type, objectMapper::readerFor);
+    }
+
+    /**
+     * Закешированный writer для типа
+     */
+    public static ObjectWriter writer(Class<?> type) {
+        return WRITERS.computeIfAbsent(type, objectMapper::writerFor);
+    }
 
     public static String toJson(Object object) {
         try {
-            return objectMapper.writeValueAsString(object);
+            return writerFor(object).writeValueAsString(object);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to convert object to JSON", e);
+        }
+    }
+
+    /**
+     * JSON в UTF-8 без промежуточной строки
+     */
+    public static byte[] toBytes(Object object) {
+        try {
+            return writerFor(object).writeValueAsBytes(object);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to convert object to JSON", e);
+        }
+    }
+
+    /**
+     * Запись JSON в UTF-8 в поток. Для повторного использования буфера передавайте
+     * один и тот же ByteArrayOutputStream после reset() - поток не закрывается.
+     */
+    public static void writeTo(Object object, OutputStream out) {
+        try {
+            writerFor(object).writeValue(out, object);
         } catch (Exception e) {
             throw new RuntimeException("Failed to convert object to JSON", e);
         }
@@ -18,7 +115,22 @@ public class JsonUtils {
 
     public static <T> T fromJson(String json, Class<T> clazz) {
         try {
-            return objectMapper.readValue(json, clazz);
+            return reader(clazz).readValue(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse JSON", e);
+        }
+    }
+
+    /**
+     * Чтение JSON в UTF-8 в класс или record без промежуточной строки
+     */
+    public static <T> T fromJson(byte[] json, Class<T> clazz) {
+        return fromJson(json, 0, json.length, clazz);
+    }
+
+    public static <T> T fromJson(byte[] json, int offset, int length, Class<T> clazz) {
+        try {
+            return reader(clazz).readValue(json, offset, length);
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse JSON", e);
         }
@@ -26,15 +138,42 @@ public class JsonUtils {
 
     public static Map<String, Object> jsonToMap(String json) {
         try {
-            return objectMapper.readValue(json, Map.class);
+            return MAP_READER.readValue(json);
         } catch (Exception e) {
             throw new RuntimeException("Failed to convert JSON to Map", e);
         }
     }
 
+    public static JsonNode readTree(String json) {
+        try {
+            return TREE_READER.readTree(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse JSON", e);
+        }
+    }
+
+    public static JsonNode readTree(byte[] json) {
+        try {
+            return TREE_READER.readTree(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse JSON", e);
+        }
+    }
+
+    /**
+     * Дерево из объекта (Map, POJO, record) без записи в текст
+     */
+    public static JsonNode valueToTree(Object object) {
+        return objectMapper.valueToTree(object);
+    }
+
+    public static ObjectNode createObjectNode() {
+        return objectMapper.createObjectNode();
+    }
+
     public static String getFieldValue(String json, String fieldName) {
         try {
-            JsonNode jsonNode = objectMapper.readTree(json);
+            JsonNode jsonNode = TREE_READER.readTree(json);
             return jsonNode.path(fieldName).asText();
         } catch (Exception e) {
             return null;
@@ -43,19 +182,31 @@ public class JsonUtils {
 
     public static boolean isValidJson(String json) {
         try {
-            objectMapper.readTree(json);
+            TREE_READER.readTree(json);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
+    public static String toPrettyJson(Object object) {
+        try {
+            return PRETTY_WRITER.writeValueAsString(object);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to convert object to JSON", e);
+        }
+    }
+
     public static String prettyPrint(String json) {
         try {
-            JsonNode jsonNode = objectMapper.readTree(json);
-            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonNode);
+            JsonNode jsonNode = TREE_READER.readTree(json);
+            return PRETTY_WRITER.writeValueAsString(jsonNode);
         } catch (Exception e) {
             return json; // Возвращаем оригинал если не удалось форматировать
         }
     }
-}
\ No newline at end of file
+
+    private static ObjectWriter writerFor(Object object) {
+        return object != null ? writer(object.getClass()) : objectMapper.writer();
+    }
+}
@@ -0,0 +1,103 @@
+package com.qa.framework.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Формат записи общего mapper и обратное чтение через byte[] и OutputStream
+ */
+class JsonUtilsTest {
+
+    static class Order {
+        private String orderId;
+        private Double amount;
+        private String note;
+        private List<String> tags;
+
+        Order() {
+        }
+
+        Order(String orderId, Double amount, String note, List<String> tags) {
+            this.orderId = orderId;
+            this.amount = amount;
+            this.note = note;
+            this.tags = tags;
+        }
+
+        // Вычисляемое значение - не поле, в JSON не попадает
+        public String getDisplayName() {
+            return "Order " + orderId;
+        }
+
+        public boolean isLarge() {
+            return amount != null && amount > 100;
+        }
+    }
+
+    record Payment(String paymentId, long cents, String comment) {
+    }
+
+    @Test
+    @DisplayName("🧾 Пишутся только поля объекта, null не пишется - как у Gson")
+    void testWireFormat() {
+        Order order = new Order("ORD-1", 150.0, null, List.of("a", "b"));
+
+        assertEquals("{\"orderId\":\"ORD-1\",\"amount\":150.0,\"tags\":[\"a\",\"b\"]}", JsonUtils.toJson(order));
+        assertEquals("{\"paymentId\":\"PAY-1\",\"cents\":1050}", JsonUtils.toJson(new Payment("PAY-1", 1050, null)));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("orderId", "ORD-2");
+        map.put("status", null);
+        assertEquals("{\"orderId\":\"ORD-2\"}", JsonUtils.toJson(map));
+    }
+
+    @Test
+    @DisplayName("🧾 toBytes -> fromJson(byte[]) возвращает тот же объект")
+    void testBytesRoundTrip() {
+        Order order = new Order("ORD-3", 10.5, "fast", List.of("x"));
+
+        byte[] bytes = JsonUtils.toBytes(order);
+        assertArrayEquals(JsonUtils.toJson(order).getBytes(StandardCharsets.UTF_8), bytes);
+
+        Order read = JsonUtils.fromJson(bytes, Order.class);
+        assertEquals("ORD-3", read.orderId);
+        assertEquals(Double.valueOf(10.5), read.amount);
+        assertEquals("fast", read.note);
+        assertEquals(List.of("x"), read.tags);
+
+        Payment payment = new Payment("PAY-2", 99, "тест");
+        assertEquals(payment, JsonUtils.fromJson(JsonUtils.toBytes(payment), Payment.class));
+    }
+
+    @Test
+    @DisplayName("🧾 fromJson читает часть массива и игнорирует неизвестные поля")
+    void testReadSliceAndUnknownFields() {
+        byte[] framed = ("##{\"paymentId\":\"PAY-3\",\"cents\":5,\"extra\":{\"nested\":true}}##")
+                .getBytes(StandardCharsets.UTF_8);
+
+        Payment payment = JsonUtils.fromJson(framed, 2, framed.length - 4, Payment.class);
+        assertEquals(new Payment("PAY-3", 5, null), payment);
+    }
+
+    @Test
+    @DisplayName("🧾 writeTo пишет в переиспользуемый буфер и не закрывает его")
+    void testWriteToReusedBuffer() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        JsonUtils.writeTo(new Payment("PAY-4", 1, null), buffer);
+        assertEquals(new Payment("PAY-4", 1, null), JsonUtils.fromJson(buffer.toByteArray(), Payment.class));
+
+        buffer.reset();
+        JsonUtils.writeTo(new Payment("PAY-5", 2, "второй"), buffer);
+        assertEquals(new Payment("PAY-5", 2, "второй"), JsonUtils.fromJson(buffer.toByteArray(), Payment.class));
+        assertEquals(JsonUtils.toJson(new Payment("PAY-5", 2, "второй")), buffer.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,159 @@
+package com.qa.framework.utils;
+
+/**
+ * Множество long без упаковки в Long: открытая адресация с линейным пробированием в одном long[].
+ * <p>
+ * 8 байт на ячейку при заполнении не больше половины - в 4-6 раз компактнее HashSet&lt;Long&gt;
+ * и без нагрузки на GC от миллионов объектов. Удаление - со сдвигом следующих элементов цепочки
+ * назад, без "надгробий", поэтому множество, в которое постоянно добавляют и из которого удаляют,
+ * не деградирует. Объект не потокобезопасен.
+ */
+public final class LongHashSet {
+
+    // 0 в таблице означает пустую ячейку, само значение 0 хранится флагом
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int mask;
+    private int size = 0;
+    private boolean containsEmpty = false;
+
+    public LongHashSet() {
+        this(1024);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return true, если значения еще не было
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        if (++size * 2 > table.length) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true, если значение было в множестве
+     */
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            if (!containsEmpty) {
+                return false;
+            }
+            containsEmpty = false;
+            size--;
+            return true;
+        }
+
+        int slot = slot(value);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == value) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Занятая таблицей память (байт)
+     */
+    public long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    /**
+     * Закрывает дыру в цепочке: элементы после удаленного, чья "родная" ячейка не лежит
+     * между дырой и их текущей позицией, переносятся в дыру
+     */
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long value = table[slot];
+            if (value == EMPTY) {
+                break;
+            }
+            int home = slot(value);
+            boolean movable = hole <= slot
+                    ? home <= hole || home > slot
+                    : home <= hole && home > slot;
+            if (movable) {
+                table[hole] = value;
+                hole = slot;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void resize() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        mask = table.length - 1;
+        for (long value : old) {
+            if (value != EMPTY) {
+                int slot = slot(value);
+                while (table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private int slot(long value) {
+        // Перемешивание (fmix64), чтобы последовательные значения не шли подряд в таблице
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
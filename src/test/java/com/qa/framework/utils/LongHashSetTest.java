@@ -0,0 +1,141 @@
+package com.qa.framework.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Открытая адресация LongHashSet: цепочки пробирования, удаление со сдвигом, рост таблицы и значение 0
+ */
+class LongHashSetTest {
+
+    // new LongHashSet(8) - таблица на 32 ячейки
+    private static final int CAPACITY = 32;
+
+    @Test
+    @DisplayName("🔢 Удаление из середины цепочки коллизий не теряет остальные элементы")
+    void testRemoveFromCollisionChain() {
+        List<Long> chain = valuesWithHome(5, 5);
+        LongHashSet set = new LongHashSet(8);
+        chain.forEach(set::add);
+        assertEquals(5, set.size());
+
+        assertTrue(set.remove(chain.get(1)));
+        assertFalse(set.contains(chain.get(1)));
+        for (int i = 0; i < chain.size(); i++) {
+            assertEquals(i != 1, set.contains(chain.get(i)), "Элемент цепочки " + i);
+        }
+
+        assertTrue(set.remove(chain.get(0)));
+        assertTrue(set.contains(chain.get(4)));
+        assertFalse(set.remove(chain.get(0)));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    @DisplayName("🔢 Цепочка, переходящая через конец таблицы, сдвигается корректно")
+    void testChainWrapsAroundTable() {
+        List<Long> wrapping = valuesWithHome(CAPACITY - 1, 3);
+        List<Long> atStart = valuesWithHome(0, 2);
+        LongHashSet set = new LongHashSet(8);
+        // Ячейки 31, 0, 1 заняты цепочкой с домом 31, элементы с домом 0 вытеснены дальше
+        wrapping.forEach(set::add);
+        atStart.forEach(set::add);
+
+        assertTrue(set.remove(wrapping.get(0)));
+        wrapping.subList(1, 3).forEach(value -> assertTrue(set.contains(value)));
+        atStart.forEach(value -> assertTrue(set.contains(value)));
+
+        assertTrue(set.remove(wrapping.get(1)));
+        assertTrue(set.remove(atStart.get(0)));
+        assertTrue(set.contains(wrapping.get(2)));
+        assertTrue(set.contains(atStart.get(1)));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    @DisplayName("🔢 0 хранится отдельным флагом и не путается с пустой ячейкой")
+    void testZeroSentinel() {
+        LongHashSet set = new LongHashSet(8);
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(0));
+
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+
+        set.add(-1);
+        set.add(Long.MIN_VALUE);
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    @DisplayName("🔢 Рост таблицы сохраняет все элементы и держит заполнение не выше половины")
+    void testResize() {
+        LongHashSet set = new LongHashSet(8);
+        long initialMemory = set.memoryBytes();
+        for (long value = 1; value <= 10_000; value++) {
+            assertTrue(set.add(value * 31));
+        }
+
+        assertEquals(10_000, set.size());
+        assertTrue(set.memoryBytes() > initialMemory);
+        assertTrue(set.memoryBytes() / Long.BYTES >= 2L * set.size(), "Заполнение не выше половины");
+        for (long value = 1; value <= 10_000; value++) {
+            assertTrue(set.contains(value * 31));
+            assertFalse(set.contains(value * 31 + 1));
+        }
+    }
+
+    @Test
+    @DisplayName("🔢 Случайные добавления и удаления совпадают с HashSet")
+    void testMatchesHashSet() {
+        LongHashSet set = new LongHashSet(8);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200_000; i++) {
+            // Узкий диапазон - много повторов и удалений существующих значений, включая 0
+            long value = random.nextInt(4_000) - 2_000;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value), "add " + value);
+            } else {
+                assertEquals(expected.remove(value), set.remove(value), "remove " + value);
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = -2_000; value < 2_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "contains " + value);
+        }
+    }
+
+    /**
+     * Ненулевые значения с заданной "родной" ячейкой в таблице на {@link #CAPACITY} ячеек (то же fmix64, что в LongHashSet)
+     */
+    private static List<Long> valuesWithHome(int home, int count) {
+        List<Long> values = new ArrayList<>();
+        for (long value = 1; values.size() < count; value++) {
+            long hash = value;
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            if (((int) hash & (CAPACITY - 1)) == home) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+}
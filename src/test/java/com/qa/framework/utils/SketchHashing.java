@@ -0,0 +1,33 @@
+package com.qa.framework.utils;
+
+/**
+ * 64-битный хеш для вероятностных структур (HyperLogLog, CountMinSketch):
+ * FNV-1a по байтам и финальное перемешивание MurmurHash3 (fmix64), чтобы все биты зависели от всех байтов.
+ */
+final class SketchHashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SketchHashing() {
+    }
+
+    static long hash64(byte[] data) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : data) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= data.length;
+        return fmix64(hash);
+    }
+
+    private static long fmix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}